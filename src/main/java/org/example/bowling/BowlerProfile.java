@@ -0,0 +1,91 @@
+package org.example.bowling;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Probabilistic pin model of one bowler.
+ * The first ball of a rack knocks down 0-10 pins with the given weights.
+ * On the second ball the bowler converts the spare with the given
+ * probability, otherwise knocks down fewer pins than are standing,
+ * each count equally likely.
+ */
+public class BowlerProfile {
+    // Typical leave after a non-strike first ball: mostly 7-9 pins down
+    private static final double[] NON_STRIKE_WEIGHTS = {1, 1, 1, 2, 3, 5, 9, 16, 28, 34, 0};
+
+    private final double[] firstBallCumulative;
+    private final double spareConversion;
+
+    public BowlerProfile(double[] firstBallWeights, double spareConversion) {
+        if (firstBallWeights.length != 11) {
+            throw new IllegalArgumentException("First ball weights are needed for 0-10 pins");
+        }
+        if (spareConversion < 0.0 || spareConversion > 1.0) {
+            throw new IllegalArgumentException("Spare conversion must be between 0 and 1");
+        }
+        double total = 0;
+        for (double weight : firstBallWeights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("First ball weights cannot be negative");
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("First ball weights must not all be zero");
+        }
+        this.firstBallCumulative = new double[11];
+        double running = 0;
+        for (int pins = 0; pins <= 10; pins++) {
+            running += firstBallWeights[pins] / total;
+            firstBallCumulative[pins] = running;
+        }
+        this.firstBallCumulative[10] = 1.0;
+        this.spareConversion = spareConversion;
+    }
+
+    // A bowler described by strike rate and spare conversion rate only
+    public static BowlerProfile ofRates(double strikeRate, double spareConversion) {
+        if (strikeRate < 0.0 || strikeRate > 1.0) {
+            throw new IllegalArgumentException("Strike rate must be between 0 and 1");
+        }
+        double nonStrikeTotal = 0;
+        for (double weight : NON_STRIKE_WEIGHTS) {
+            nonStrikeTotal += weight;
+        }
+        double[] weights = new double[11];
+        for (int pins = 0; pins < 10; pins++) {
+            weights[pins] = (1.0 - strikeRate) * NON_STRIKE_WEIGHTS[pins] / nonStrikeTotal;
+        }
+        weights[10] = strikeRate;
+        return new BowlerProfile(weights, spareConversion);
+    }
+
+    public int rollFirstBall(SplittableRandom random) {
+        double draw = random.nextDouble();
+        int pins = 0;
+        while (draw >= firstBallCumulative[pins]) {
+            pins++;
+        }
+        return pins;
+    }
+
+    public int rollSecondBall(SplittableRandom random, int standing) {
+        if (standing == 0 || random.nextDouble() < spareConversion) {
+            return standing;
+        }
+        return random.nextInt(standing);
+    }
+
+    public double getStrikeRate() {
+        return 1.0 - firstBallCumulative[9];
+    }
+
+    public double getSpareConversion() { return spareConversion; }
+
+    @Override
+    public String toString() {
+        return String.format("BowlerProfile(strike=%.3f, spare=%.3f, cumulative=%s)",
+                getStrikeRate(), spareConversion, Arrays.toString(firstBallCumulative));
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.bowling;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte Carlo projections of bowler scores and match outcomes.
+ * Games are simulated into a primitive roll array and scored with
+ * ReferenceScorer.scoreGame, which scores complete games exactly as
+ * BowlingGame does. Work is split across fork/join workers, each half
+ * taking its own SplittableRandom.split(), so a seed always gives the
+ * same result regardless of scheduling.
+ */
+public class BowlingSimulator {
+    private static final long LEAF_GAMES = 50_000;
+
+    private final ForkJoinPool pool;
+
+    public BowlingSimulator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BowlingSimulator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Fills rolls with one complete game and returns the number of rolls
+    public static int simulateRolls(BowlerProfile profile, SplittableRandom random, int[] rolls) {
+        int count = 0;
+        for (int frame = 1; frame < 10; frame++) {
+            int first = profile.rollFirstBall(random);
+            rolls[count++] = first;
+            if (first < 10) {
+                rolls[count++] = profile.rollSecondBall(random, 10 - first);
+            }
+        }
+
+        int first = profile.rollFirstBall(random);
+        rolls[count++] = first;
+        int second = first == 10 ? profile.rollFirstBall(random) : profile.rollSecondBall(random, 10 - first);
+        rolls[count++] = second;
+        if (first == 10 && second < 10) {
+            rolls[count++] = profile.rollSecondBall(random, 10 - second);
+        } else if (first == 10 || first + second == 10) {
+            rolls[count++] = profile.rollFirstBall(random);
+        }
+        return count;
+    }
+
+    public static int simulateGame(BowlerProfile profile, SplittableRandom random, int[] rolls) {
+        simulateRolls(profile, random, rolls);
+        return ReferenceScorer.scoreGame(rolls);
+    }
+
+    public ScoreDistribution simulateScores(BowlerProfile profile, long games, long seed) {
+        return pool.invoke(new ScoresTask(profile, games, new SplittableRandom(seed)));
+    }
+
+    public MatchProjection simulateMatch(BowlerProfile first, BowlerProfile second, long games, long seed) {
+        MatchTally tally = pool.invoke(new MatchTask(first, second, games, new SplittableRandom(seed)));
+        return new MatchProjection(tally.firstWins, tally.secondWins, tally.ties,
+                tally.firstScores, tally.secondScores);
+    }
+
+    private static class ScoresTask extends RecursiveTask<ScoreDistribution> {
+        private static final long serialVersionUID = 1L;
+
+        private final BowlerProfile profile;
+        private final long games;
+        private final SplittableRandom random;
+
+        ScoresTask(BowlerProfile profile, long games, SplittableRandom random) {
+            this.profile = profile;
+            this.games = games;
+            this.random = random;
+        }
+
+        @Override
+        protected ScoreDistribution compute() {
+            if (games > LEAF_GAMES) {
+                ScoresTask left = new ScoresTask(profile, games / 2, random.split());
+                ScoresTask right = new ScoresTask(profile, games - games / 2, random);
+                left.fork();
+                ScoreDistribution rightScores = right.compute();
+                return left.join().merge(rightScores);
+            }
+            ScoreDistribution scores = new ScoreDistribution();
+            int[] rolls = new int[FrameRules.MAX_ROLLS];
+            for (long game = 0; game < games; game++) {
+                scores.record(simulateGame(profile, random, rolls));
+            }
+            return scores;
+        }
+    }
+
+    private static class MatchTally {
+        long firstWins;
+        long secondWins;
+        long ties;
+        final ScoreDistribution firstScores = new ScoreDistribution();
+        final ScoreDistribution secondScores = new ScoreDistribution();
+
+        MatchTally merge(MatchTally other) {
+            firstWins += other.firstWins;
+            secondWins += other.secondWins;
+            ties += other.ties;
+            firstScores.merge(other.firstScores);
+            secondScores.merge(other.secondScores);
+            return this;
+        }
+    }
+
+    private static class MatchTask extends RecursiveTask<MatchTally> {
+        private static final long serialVersionUID = 1L;
+
+        private final BowlerProfile first;
+        private final BowlerProfile second;
+        private final long games;
+        private final SplittableRandom random;
+
+        MatchTask(BowlerProfile first, BowlerProfile second, long games, SplittableRandom random) {
+            this.first = first;
+            this.second = second;
+            this.games = games;
+            this.random = random;
+        }
+
+        @Override
+        protected MatchTally compute() {
+            if (games > LEAF_GAMES) {
+                MatchTask left = new MatchTask(first, second, games / 2, random.split());
+                MatchTask right = new MatchTask(first, second, games - games / 2, random);
+                left.fork();
+                MatchTally rightTally = right.compute();
+                return left.join().merge(rightTally);
+            }
+            MatchTally tally = new MatchTally();
+            int[] rolls = new int[FrameRules.MAX_ROLLS];
+            for (long game = 0; game < games; game++) {
+                int firstScore = simulateGame(first, random, rolls);
+                int secondScore = simulateGame(second, random, rolls);
+                tally.firstScores.record(firstScore);
+                tally.secondScores.record(secondScore);
+                if (firstScore > secondScore) {
+                    tally.firstWins++;
+                } else if (secondScore > firstScore) {
+                    tally.secondWins++;
+                } else {
+                    tally.ties++;
+                }
+            }
+            return tally;
+        }
+    }
+
+    // Usage: BowlingSimulator [games] [strike rate] [spare rate]
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+        double strikeRate = args.length > 1 ? Double.parseDouble(args[1]) : 0.45;
+        double spareRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.75;
+        BowlerProfile profile = BowlerProfile.ofRates(strikeRate, spareRate);
+        BowlingSimulator simulator = new BowlingSimulator();
+
+        long start = System.nanoTime();
+        ScoreDistribution scores = simulator.simulateScores(profile, games, 42);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d games in %.2f s (%,.0f games/s) on %d workers%n",
+                games, seconds, games / seconds, ForkJoinPool.commonPool().getParallelism());
+        System.out.println(scores);
+        System.out.printf("P(250+) = %.5f, P(300) = %.8f%n",
+                scores.probabilityAtLeast(250), scores.probabilityAtLeast(300));
+
+        BowlerProfile opponent = BowlerProfile.ofRates(strikeRate - 0.05, spareRate + 0.05);
+        MatchProjection match = simulator.simulateMatch(profile, opponent, games / 10, 43);
+        System.out.println(match);
+    }
+}
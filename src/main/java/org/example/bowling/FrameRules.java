@@ -0,0 +1,86 @@
+package org.example.bowling;
+
+/**
+ * Checks a whole game's roll sequence against the frame rules.
+ * Works on primitive pin counts so bulk callers avoid Roll objects.
+ */
+public class FrameRules {
+    public static final int MAX_ROLLS = 21;
+
+    private FrameRules() {
+    }
+
+    // Returns null when rolls[0..count) is a complete, legal game
+    public static RuleViolation check(int[] rolls, int count) {
+        int index = 0;
+
+        for (int frame = 1; frame <= 10; frame++) {
+            if (index >= count) {
+                return new RuleViolation(index, "Game incomplete - frame " + frame + " not rolled");
+            }
+            int first = rolls[index];
+            if (first < 0 || first > 10) {
+                return new RuleViolation(index, "Roll must be 0-10");
+            }
+
+            if (frame < 10) {
+                if (first == 10) {
+                    index++;
+                    continue;
+                }
+                if (index + 1 >= count) {
+                    return new RuleViolation(index + 1, "Game incomplete - frame " + frame + " needs a second roll");
+                }
+                int second = rolls[index + 1];
+                if (second < 0 || second > 10) {
+                    return new RuleViolation(index + 1, "Roll must be 0-10");
+                }
+                if (first + second > 10) {
+                    return new RuleViolation(index + 1, "Frame " + frame + " exceeds 10 pins");
+                }
+                index += 2;
+            } else {
+                RuleViolation violation = checkTenthFrame(rolls, count, index);
+                if (violation != null) {
+                    return violation;
+                }
+                index += first == 10 || first + rolls[index + 1] == 10 ? 3 : 2;
+            }
+        }
+
+        if (index < count) {
+            return new RuleViolation(index, "Rolls after game complete");
+        }
+        return null;
+    }
+
+    private static RuleViolation checkTenthFrame(int[] rolls, int count, int index) {
+        int first = rolls[index];
+        if (index + 1 >= count) {
+            return new RuleViolation(index + 1, "Game incomplete - frame 10 needs a second roll");
+        }
+        int second = rolls[index + 1];
+        if (second < 0 || second > 10) {
+            return new RuleViolation(index + 1, "Roll must be 0-10");
+        }
+        if (first < 10 && first + second > 10) {
+            return new RuleViolation(index + 1, "Frame 10 exceeds 10 pins");
+        }
+        if (first < 10 && first + second < 10) {
+            return null;
+        }
+
+        if (index + 2 >= count) {
+            return new RuleViolation(index + 2, "Game incomplete - frame 10 needs a bonus roll");
+        }
+        int third = rolls[index + 2];
+        if (third < 0 || third > 10) {
+            return new RuleViolation(index + 2, "Roll must be 0-10");
+        }
+        // After a strike followed by a non-strike the bonus roll shares that rack
+        if (first == 10 && second < 10 && second + third > 10) {
+            return new RuleViolation(index + 2, "Frame 10 bonus exceeds remaining pins");
+        }
+        return null;
+    }
+}
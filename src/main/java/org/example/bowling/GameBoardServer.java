@@ -0,0 +1,302 @@
+package org.example.bowling;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-optimized HTTP API over a GameRegistry.
+ *
+ *   GET  /games                  game ids (JSON)
+ *   GET  /games/{id}/board       BowlingGame.getDisplay() (text)
+ *   GET  /games/{id}/frames      FrameValues (JSON)
+ *   GET  /standings              games ordered by score (JSON)
+ *   POST /games/{id}/rolls       body is the pins knocked down
+ *
+ * Responses are serialized once and kept as bytes with a version ETag.
+ * An accepted roll drops the game's cached responses and the standings;
+ * pollers that send If-None-Match with the current ETag get 304 without a body.
+ * Requests run on virtual threads when the runtime has them (JDK 21+),
+ * otherwise on a cached thread pool.
+ */
+public class GameBoardServer {
+    private static final String TEXT = "text/plain; charset=utf-8";
+    private static final String JSON = "application/json";
+
+    private final GameRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    public GameBoardServer(GameRegistry registry, int port) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        registry.addRollListener(this::invalidateGame);
+    }
+
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreads.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() { return server.getAddress().getPort(); }
+    public long getCacheHits() { return cacheHits.get(); }
+    public long getCacheMisses() { return cacheMisses.get(); }
+
+    private void invalidateGame(String gameId) {
+        cache.remove(boardPath(gameId));
+        cache.remove(framesPath(gameId));
+        cache.remove("/standings");
+    }
+
+    private static String boardPath(String gameId) { return "/games/" + gameId + "/board"; }
+    private static String framesPath(String gameId) { return "/games/" + gameId + "/frames"; }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String[] parts = path.split("/");
+            String method = exchange.getRequestMethod();
+
+            if ("POST".equals(method) && parts.length == 4 && "games".equals(parts[1]) && "rolls".equals(parts[3])) {
+                postRoll(exchange, parts[2]);
+            } else if (!"GET".equals(method)) {
+                send(exchange, 405, TEXT, new byte[0], null);
+            } else if ("/standings".equals(path) || "/games".equals(path)) {
+                sendCached(exchange, path, registry.getStandingsVersion());
+            } else if (parts.length == 4 && "games".equals(parts[1])
+                    && ("board".equals(parts[3]) || "frames".equals(parts[3]))) {
+                if (!registry.hasGame(parts[2])) {
+                    send(exchange, 404, TEXT, "No such game".getBytes(StandardCharsets.UTF_8), null);
+                } else {
+                    sendCached(exchange, path, registry.getVersion(parts[2]));
+                }
+            } else {
+                send(exchange, 404, TEXT, "Not found".getBytes(StandardCharsets.UTF_8), null);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void postRoll(HttpExchange exchange, String gameId) throws IOException {
+        if (!registry.hasGame(gameId)) {
+            send(exchange, 404, TEXT, "No such game".getBytes(StandardCharsets.UTF_8), null);
+            return;
+        }
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        Roll roll = new Roll(body);
+        if (Roll.TBR.equals(body) || !registry.addRoll(gameId, roll)) {
+            send(exchange, 409, TEXT, "Roll rejected".getBytes(StandardCharsets.UTF_8), null);
+            return;
+        }
+        send(exchange, 204, TEXT, new byte[0], null);
+    }
+
+    private void sendCached(HttpExchange exchange, String path, long version) throws IOException {
+        CachedResponse response = cache.get(path);
+        if (response != null && response.version == version) {
+            cacheHits.incrementAndGet();
+        } else {
+            cacheMisses.incrementAndGet();
+            response = render(path);
+            // A roll accepted while rendering leaves an older version here,
+            // which the version check above turns into a miss next time
+            cache.put(path, response);
+        }
+
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (response.etag.equals(ifNoneMatch)) {
+            send(exchange, 304, response.contentType, null, response.etag);
+        } else {
+            send(exchange, 200, response.contentType, response.body, response.etag);
+        }
+    }
+
+    private CachedResponse render(String path) {
+        if ("/standings".equals(path)) {
+            long version = registry.getStandingsVersion();
+            return new CachedResponse(version, "\"s" + version + "\"", JSON, standingsJson());
+        }
+        if ("/games".equals(path)) {
+            long version = registry.getStandingsVersion();
+            return new CachedResponse(version, "\"g" + version + "\"", JSON, gameIdsJson());
+        }
+        String gameId = path.split("/")[2];
+        boolean board = path.endsWith("/board");
+        return registry.readGame(gameId, (bowler, game, version) -> {
+            String etag = "\"" + (board ? "b" : "f") + version + "\"";
+            byte[] body = board ? game.getDisplay().getBytes(StandardCharsets.UTF_8) : framesJson(game);
+            return new CachedResponse(version, etag, board ? TEXT : JSON, body);
+        });
+    }
+
+    private byte[] gameIdsJson() {
+        StringBuilder sb = new StringBuilder("[");
+        List<String> ids = registry.getGameIds();
+        ids.sort(Comparator.naturalOrder());
+        for (int i = 0; i < ids.size(); i++) {
+            sb.append(i == 0 ? "" : ",").append(jsonString(ids.get(i)));
+        }
+        return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] framesJson(BowlingGame game) {
+        StringBuilder sb = new StringBuilder("[");
+        List<FrameValues> frames = game.getFrameValues();
+        for (int i = 0; i < frames.size(); i++) {
+            FrameValues fv = frames.get(i);
+            sb.append(i == 0 ? "" : ",")
+                    .append("{\"frame\":").append(fv.getFrame())
+                    .append(",\"roll1\":").append(fv.getRoll1().getIntValue())
+                    .append(",\"roll2\":").append(fv.getRoll2().getIntValue())
+                    .append(",\"roll3\":").append(fv.getRoll3().getIntValue())
+                    .append(",\"score\":").append(fv.getScore())
+                    .append(",\"totalScore\":").append(fv.getTotalScore())
+                    .append('}');
+        }
+        return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] standingsJson() {
+        List<Standing> standings = new ArrayList<>();
+        for (String gameId : registry.getGameIds()) {
+            standings.add(registry.readGame(gameId, (bowler, game, version) ->
+                    new Standing(gameId, bowler, currentScore(game), game.isGameComplete())));
+        }
+        standings.sort(Comparator.comparingInt((Standing s) -> s.score).reversed()
+                .thenComparing(s -> s.gameId));
+
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < standings.size(); i++) {
+            Standing s = standings.get(i);
+            sb.append(i == 0 ? "" : ",")
+                    .append("{\"game\":").append(jsonString(s.gameId))
+                    .append(",\"bowler\":").append(jsonString(s.bowler))
+                    .append(",\"score\":").append(s.score)
+                    .append(",\"complete\":").append(s.complete)
+                    .append('}');
+        }
+        return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Latest running total that can be scored so far
+    private static int currentScore(BowlingGame game) {
+        int score = 0;
+        for (FrameValues fv : game.getFrameValues()) {
+            if (fv.getTotalScore() != FrameValues.TBS) {
+                score = fv.getTotalScore();
+            }
+        }
+        return score;
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body, String etag)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        }
+        if (body == null || body.length == 0) {
+            // The exchange ends as soon as the headers are sent; a request body
+            // left unread then makes the server drop the kept-alive connection
+            exchange.getRequestBody().close();
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static class CachedResponse {
+        final long version;
+        final String etag;
+        final String contentType;
+        final byte[] body;
+
+        CachedResponse(long version, String etag, String contentType, byte[] body) {
+            this.version = version;
+            this.etag = etag;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    private static class Standing {
+        final String gameId;
+        final String bowler;
+        final int score;
+        final boolean complete;
+
+        Standing(String gameId, String bowler, int score, boolean complete) {
+            this.gameId = gameId;
+            this.bowler = bowler;
+            this.score = score;
+            this.complete = complete;
+        }
+    }
+
+    // Demo: serves two games on port 8080 (or the port given)
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        GameRegistry registry = new GameRegistry();
+        registry.createGame("lane1", "Ann");
+        registry.createGame("lane2", "Bob");
+        GameBoardServer server = new GameBoardServer(registry, port);
+        server.start();
+        System.out.printf("Serving game boards on http://localhost:%d/standings%n", server.getPort());
+    }
+}
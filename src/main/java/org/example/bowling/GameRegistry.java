@@ -0,0 +1,102 @@
+package org.example.bowling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Live games shared between the lanes that feed rolls and the readers that
+ * poll boards. Every accepted roll bumps the game's version and the
+ * standings version and notifies the listeners, so cached views of the
+ * game can be dropped.
+ */
+public class GameRegistry {
+    private final Map<String, Entry> games = new ConcurrentHashMap<>();
+    private final AtomicLong standingsVersion = new AtomicLong();
+    private final List<Consumer<String>> rollListeners = new CopyOnWriteArrayList<>();
+
+    public void createGame(String gameId, String bowler) {
+        if (games.putIfAbsent(gameId, new Entry(bowler)) != null) {
+            throw new IllegalArgumentException("Game already exists: " + gameId);
+        }
+        standingsVersion.incrementAndGet();
+    }
+
+    public boolean hasGame(String gameId) {
+        return games.containsKey(gameId);
+    }
+
+    // Returns false when the game rejected the roll
+    public boolean addRoll(String gameId, Roll roll) {
+        Entry entry = entry(gameId);
+        synchronized (entry.game) {
+            int rollsBefore = entry.game.getRolls().size();
+            entry.game.addRoll(roll);
+            if (entry.game.getRolls().size() == rollsBefore) {
+                return false;
+            }
+            entry.game.score();
+            entry.version++;
+        }
+        standingsVersion.incrementAndGet();
+        for (Consumer<String> listener : rollListeners) {
+            listener.accept(gameId);
+        }
+        return true;
+    }
+
+    public void addRollListener(Consumer<String> listener) {
+        rollListeners.add(listener);
+    }
+
+    public long getVersion(String gameId) {
+        Entry entry = entry(gameId);
+        synchronized (entry.game) {
+            return entry.version;
+        }
+    }
+
+    public long getStandingsVersion() {
+        return standingsVersion.get();
+    }
+
+    // Reads the game under its lock, so the view is never half way through a roll
+    public <T> T readGame(String gameId, GameReader<T> reader) {
+        Entry entry = entry(gameId);
+        synchronized (entry.game) {
+            return reader.read(entry.bowler, entry.game, entry.version);
+        }
+    }
+
+    public List<String> getGameIds() {
+        return new ArrayList<>(games.keySet());
+    }
+
+    private Entry entry(String gameId) {
+        Entry entry = games.get(gameId);
+        if (entry == null) {
+            throw new IllegalArgumentException("No such game: " + gameId);
+        }
+        return entry;
+    }
+
+    public interface GameReader<T> {
+        T read(String bowler, BowlingGame game, long version);
+    }
+
+    private static class Entry {
+        final String bowler;
+        final BowlingGame game;
+        long version;
+
+        Entry(String bowler) {
+            this.bowler = bowler;
+            this.game = new BowlingGame();
+            this.version = 0;
+        }
+    }
+}
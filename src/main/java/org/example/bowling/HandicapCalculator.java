@@ -0,0 +1,100 @@
+package org.example.bowling;
+
+import java.util.Arrays;
+
+/**
+ * Rolling averages and handicaps over each bowler's last N games.
+ * Every bowler has a ring buffer of recent scores inside one shared int[]
+ * and a running window sum, so recording a game is O(1) no matter how
+ * long the bowler's history is.
+ */
+public class HandicapCalculator {
+    private final int windowSize;
+    private final HandicapFormula formula;
+
+    // Indexed by bowler; scores holds windowSize slots per bowler
+    private int[] scores;
+    private long[] windowSums;
+    private int[] windowCounts;
+    private int[] nextSlots;
+    private long[] gamesBowled;
+
+    public HandicapCalculator(int windowSize, HandicapFormula formula) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window must hold at least one game");
+        }
+        this.windowSize = windowSize;
+        this.formula = formula;
+        this.scores = new int[0];
+        this.windowSums = new long[0];
+        this.windowCounts = new int[0];
+        this.nextSlots = new int[0];
+        this.gamesBowled = new long[0];
+    }
+
+    public void recordGame(int bowler, BowlingGame game) {
+        if (!game.isGameComplete()) {
+            throw new IllegalArgumentException("Only completed games count toward averages");
+        }
+        game.score();
+        recordScore(bowler, game.getFrameValues().get(9).getTotalScore());
+    }
+
+    public void recordScore(int bowler, int score) {
+        if (bowler < 0) {
+            throw new IllegalArgumentException("Bowler must not be negative");
+        }
+        if (score < 0 || score > 300) {
+            throw new IllegalArgumentException("Game score must be 0-300");
+        }
+        ensureCapacity(bowler);
+
+        int slot = bowler * windowSize + nextSlots[bowler];
+        if (windowCounts[bowler] == windowSize) {
+            // Window full - the oldest score drops out
+            windowSums[bowler] -= scores[slot];
+        } else {
+            windowCounts[bowler]++;
+        }
+        scores[slot] = score;
+        windowSums[bowler] += score;
+        nextSlots[bowler] = nextSlots[bowler] + 1 == windowSize ? 0 : nextSlots[bowler] + 1;
+        gamesBowled[bowler]++;
+    }
+
+    private void ensureCapacity(int bowler) {
+        if (bowler < windowSums.length) {
+            return;
+        }
+        int capacity = Math.max(bowler + 1, windowSums.length * 2);
+        scores = Arrays.copyOf(scores, Math.multiplyExact(capacity, windowSize));
+        windowSums = Arrays.copyOf(windowSums, capacity);
+        windowCounts = Arrays.copyOf(windowCounts, capacity);
+        nextSlots = Arrays.copyOf(nextSlots, capacity);
+        gamesBowled = Arrays.copyOf(gamesBowled, capacity);
+    }
+
+    // Bowling averages are truncated, not rounded
+    public int getAverage(int bowler) {
+        int count = getGamesInWindow(bowler);
+        return count == 0 ? 0 : (int) (windowSums[bowler] / count);
+    }
+
+    public int getHandicap(int bowler) {
+        if (getGamesInWindow(bowler) == 0) {
+            return 0;
+        }
+        return formula.calculateHandicap(getAverage(bowler));
+    }
+
+    public int getGamesInWindow(int bowler) {
+        return bowler >= 0 && bowler < windowCounts.length ? windowCounts[bowler] : 0;
+    }
+
+    public long getGamesBowled(int bowler) {
+        return bowler >= 0 && bowler < gamesBowled.length ? gamesBowled[bowler] : 0;
+    }
+
+    public int getWindowSize() { return windowSize; }
+    public HandicapFormula getFormula() { return formula; }
+}
@@ -0,0 +1,36 @@
+package org.example.bowling;
+
+/**
+ * Percentage-of-basis handicap: (basis - average) * percentage / 100,
+ * truncated, never below zero. For example 90% of 220.
+ */
+public class HandicapFormula {
+    private final int basis;
+    private final int percentage;
+
+    public HandicapFormula(int basis, int percentage) {
+        if (basis < 0 || basis > 300) {
+            throw new IllegalArgumentException("Handicap basis must be 0-300");
+        }
+        if (percentage < 0 || percentage > 100) {
+            throw new IllegalArgumentException("Handicap percentage must be 0-100");
+        }
+        this.basis = basis;
+        this.percentage = percentage;
+    }
+
+    public int calculateHandicap(int average) {
+        if (average >= basis) {
+            return 0;
+        }
+        return (basis - average) * percentage / 100;
+    }
+
+    public int getBasis() { return basis; }
+    public int getPercentage() { return percentage; }
+
+    @Override
+    public String toString() {
+        return String.format("HandicapFormula(%d%% of %d)", percentage, basis);
+    }
+}
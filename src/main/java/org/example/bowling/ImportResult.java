@@ -0,0 +1,36 @@
+package org.example.bowling;
+
+import java.util.Collections;
+import java.util.List;
+
+// ImportResult.java - Valid games plus the validation report for one import
+public class ImportResult {
+    private final List<ImportedGame> games;
+    private final List<RejectedRow> rejectedRows;
+    private final long rowsRead;
+
+    public ImportResult(List<ImportedGame> games, List<RejectedRow> rejectedRows, long rowsRead) {
+        this.games = Collections.unmodifiableList(games);
+        this.rejectedRows = Collections.unmodifiableList(rejectedRows);
+        this.rowsRead = rowsRead;
+    }
+
+    public List<ImportedGame> getGames() { return games; }
+    public List<RejectedRow> getRejectedRows() { return rejectedRows; }
+    public long getRowsRead() { return rowsRead; }
+
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Rows read: %d, games accepted: %d, rows rejected: %d%n",
+                rowsRead, games.size(), rejectedRows.size()));
+        for (RejectedRow row : rejectedRows) {
+            sb.append(String.format("  line %d, column %d: %s%n", row.getLine(), row.getColumn(), row.getReason()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportResult(rows=%d, games=%d, rejected=%d)", rowsRead, games.size(), rejectedRows.size());
+    }
+}
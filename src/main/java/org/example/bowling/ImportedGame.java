@@ -0,0 +1,36 @@
+package org.example.bowling;
+
+import java.util.Arrays;
+
+// ImportedGame.java - A validated game read from a league score file
+public class ImportedGame {
+    private final long line;
+    private final String bowler;
+    private final int[] rolls;
+
+    public ImportedGame(long line, String bowler, int[] rolls) {
+        this.line = line;
+        this.bowler = bowler;
+        this.rolls = rolls;
+    }
+
+    public long getLine() { return line; }
+    public String getBowler() { return bowler; }
+    public int[] getRolls() { return Arrays.copyOf(rolls, rolls.length); }
+    public int getRollCount() { return rolls.length; }
+
+    // Replays the rolls into a scored BowlingGame
+    public BowlingGame toBowlingGame() {
+        BowlingGame game = new BowlingGame();
+        for (int pins : rolls) {
+            game.addRoll(new Roll(pins));
+        }
+        game.score();
+        return game;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportedGame(line=%d, bowler='%s', rolls=%s)", line, bowler, Arrays.toString(rolls));
+    }
+}
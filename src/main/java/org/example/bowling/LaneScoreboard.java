@@ -0,0 +1,278 @@
+package org.example.bowling;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Terminal scoreboard for a wall of lanes.
+ * All lane boards are composed into one reusable character buffer. Each
+ * tick compares it with what the terminal already shows and writes only the
+ * changed cells, using ANSI cursor positioning, in a single flush.
+ */
+public class LaneScoreboard {
+    // Each lane board is three rows: marks, totals, then status
+    public static final int LANE_ROWS = 3;
+    public static final int LANE_WIDTH = 51;
+    private static final int LABEL_WIDTH = 8;
+
+    private static final char ESC = 27;
+
+    private final BowlingGame[] games;
+    private final int columns;
+    private final int width;
+    private final int height;
+    private final Writer out;
+
+    // back is the composed board, front what the terminal shows
+    private final char[] back;
+    private final char[] front;
+    private final AtomicIntegerArray changed;
+    private char[] output;
+    private int outputLength;
+    private boolean firstFrame;
+
+    private long framesRendered;
+    private long cellsWritten;
+    private ScheduledExecutorService ticker;
+    private volatile UncheckedIOException renderFailure;
+
+    public LaneScoreboard(int lanes, int columns, Writer out) {
+        if (lanes < 1 || columns < 1) {
+            throw new IllegalArgumentException("Scoreboard needs at least one lane and one column");
+        }
+        this.games = new BowlingGame[lanes];
+        this.columns = columns;
+        this.width = columns * LANE_WIDTH;
+        this.height = ((lanes + columns - 1) / columns) * LANE_ROWS;
+        this.out = out;
+        this.back = new char[width * height];
+        this.front = new char[width * height];
+        this.changed = new AtomicIntegerArray(lanes);
+        this.output = new char[width * height * 2];
+        this.firstFrame = true;
+
+        Arrays.fill(back, ' ');
+        for (int lane = 0; lane < lanes; lane++) {
+            games[lane] = new BowlingGame();
+            changed.set(lane, 1);
+        }
+    }
+
+    public LaneScoreboard(int lanes, int columns) {
+        this(lanes, columns, new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    }
+
+    public int getLaneCount() { return games.length; }
+    public long getFramesRendered() { return framesRendered; }
+    public long getCellsWritten() { return cellsWritten; }
+
+    // The write failure that stopped the ticker, or null
+    public UncheckedIOException getRenderFailure() { return renderFailure; }
+
+    public BowlingGame getGame(int lane) {
+        return games[lane];
+    }
+
+    public void setGame(int lane, BowlingGame game) {
+        games[lane] = game;
+        changed.set(lane, 1);
+    }
+
+    // Adds the roll to the lane's game; the lane is redrawn on the next tick if it was accepted
+    public boolean addRoll(int lane, Roll roll) {
+        BowlingGame game = games[lane];
+        synchronized (game) {
+            int rollsBefore = game.getRolls().size();
+            game.addRoll(roll);
+            if (game.getRolls().size() == rollsBefore) {
+                return false;
+            }
+            game.score();
+        }
+        changed.set(lane, 1);
+        return true;
+    }
+
+    public void start(long tickMillis) {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lane-scoreboard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // A failed write would cancel later ticks without a word, so it is
+    // kept for getRenderFailure and stop, and the ticker shuts down
+    private void tick() {
+        try {
+            render();
+        } catch (UncheckedIOException e) {
+            renderFailure = e;
+            ticker.shutdown();
+        }
+    }
+
+    // Throws the write failure that stopped the ticker, if there was one
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdown();
+            try {
+                ticker.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ticker = null;
+        }
+        if (renderFailure != null) {
+            throw renderFailure;
+        }
+    }
+
+    // Composes changed lanes, writes the changed cells and flushes once
+    public synchronized void render() {
+        for (int lane = 0; lane < games.length; lane++) {
+            if (changed.getAndSet(lane, 0) == 1) {
+                composeLane(lane);
+            }
+        }
+
+        outputLength = 0;
+        if (firstFrame) {
+            // Clear the screen and hide the cursor
+            appendOutput(ESC).appendOutput("[2J").appendOutput(ESC).appendOutput("[?25l");
+            Arrays.fill(front, '\0');
+            firstFrame = false;
+        }
+        for (int row = 0; row < height; row++) {
+            int rowStart = row * width;
+            int col = 0;
+            while (col < width) {
+                if (back[rowStart + col] == front[rowStart + col]) {
+                    col++;
+                    continue;
+                }
+                int runStart = col;
+                while (col < width && back[rowStart + col] != front[rowStart + col]) {
+                    col++;
+                }
+                moveCursor(row + 1, runStart + 1);
+                for (int i = runStart; i < col; i++) {
+                    appendOutput(back[rowStart + i]);
+                }
+                System.arraycopy(back, rowStart + runStart, front, rowStart + runStart, col - runStart);
+                cellsWritten += col - runStart;
+            }
+        }
+
+        if (outputLength > 0) {
+            try {
+                out.write(output, 0, outputLength);
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        framesRendered++;
+    }
+
+    private void composeLane(int lane) {
+        int top = (lane / columns) * LANE_ROWS;
+        int left = (lane % columns) * LANE_WIDTH;
+        BowlingGame game = games[lane];
+
+        String display;
+        String status;
+        synchronized (game) {
+            display = game.getDisplay();
+            InputControlValues ic = game.getInputControl();
+            if (game.isGameComplete()) {
+                status = "Final " + game.getFrameValues().get(9).getTotalScore();
+            } else {
+                status = "Frame " + ic.getFrame() + " Roll " + ic.getRoll();
+            }
+        }
+
+        int newline = display.indexOf('\n');
+        clearCells(top, left, LANE_WIDTH);
+        putText(top, left, "Lane " + (lane + 1));
+        putText(top, left + LABEL_WIDTH, display.substring(0, newline));
+        clearCells(top + 1, left, LANE_WIDTH);
+        putText(top + 1, left + LABEL_WIDTH, display.substring(newline + 1));
+        clearCells(top + 2, left, LANE_WIDTH);
+        putText(top + 2, left + LABEL_WIDTH, status);
+    }
+
+    private void clearCells(int row, int col, int length) {
+        Arrays.fill(back, row * width + col, row * width + col + length, ' ');
+    }
+
+    private void putText(int row, int col, String text) {
+        int length = Math.min(text.length(), width - col);
+        text.getChars(0, length, back, row * width + col);
+    }
+
+    private void moveCursor(int row, int col) {
+        appendOutput(ESC).appendOutput('[');
+        appendNumber(row);
+        appendOutput(';');
+        appendNumber(col);
+        appendOutput('H');
+    }
+
+    private void appendNumber(int value) {
+        if (value >= 10) {
+            appendNumber(value / 10);
+        }
+        appendOutput((char) ('0' + value % 10));
+    }
+
+    private LaneScoreboard appendOutput(char c) {
+        if (outputLength == output.length) {
+            output = Arrays.copyOf(output, output.length * 2);
+        }
+        output[outputLength++] = c;
+        return this;
+    }
+
+    private LaneScoreboard appendOutput(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            appendOutput(text.charAt(i));
+        }
+        return this;
+    }
+
+    // Demo: a 40 lane wall fed random rolls, redrawn at 30 frames per second
+    public static void main(String[] args) throws InterruptedException {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        LaneScoreboard board = new LaneScoreboard(lanes, 2);
+        Random random = new Random();
+
+        board.start(1000 / 30);
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        while (System.currentTimeMillis() < end) {
+            int lane = random.nextInt(lanes);
+            BowlingGame game = board.getGame(lane);
+            if (game.isGameComplete()) {
+                board.setGame(lane, new BowlingGame());
+            } else {
+                board.addRoll(lane, new Roll(random.nextInt(game.getInputControl().getRemaining() + 1)));
+            }
+            Thread.sleep(5);
+        }
+        board.stop();
+
+        System.out.printf("%c[%d;1H%c[?25h%d frames, %d cells written%n",
+                ESC, board.height + 1, ESC, board.getFramesRendered(), board.getCellsWritten());
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.bowling;
+
+import org.example.io.LineChunks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Imports roll-by-roll league score files (CSV or TSV).
+ * Each row is a bowler followed by the pin count of every roll:
+ *
+ *   Bowler,R1,R2,R3,...
+ *   Ann,5,5,4,5,8,2,10,0,10,10,6,2,10,4,6,10,10,10
+ *
+ * The file is split into line-aligned chunks that are parsed in parallel
+ * straight from the bytes (see LineChunks); only the bowler name of an
+ * accepted row and the text of a rejected row become Strings. Each row is
+ * checked against the frame rules, and rows that break them go to the
+ * report with their line, column and reason. An optional header line (first field Bowler, Name or
+ * Player) is skipped, as are trailing empty fields left by spreadsheet
+ * padding.
+ */
+public class LeagueScoreImporter {
+    private static final String[] HEADER_NAMES = {"bowler", "name", "player"};
+
+    private final int parallelism;
+
+    public LeagueScoreImporter() {
+        this(ForkJoinPool.commonPool().getParallelism());
+    }
+
+    public LeagueScoreImporter(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public ImportResult importFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("League file too large to import: " + size + " bytes");
+            }
+            return importBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public ImportResult importBytes(byte[] data) {
+        return importBuffer(ByteBuffer.wrap(data));
+    }
+
+    public ImportResult importBuffer(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = buffer.limit();
+        byte delimiter = detectDelimiter(buffer, start, end);
+
+        long firstLine = 1;
+        int firstLineEnd = LineChunks.lineEnd(buffer, start, end);
+        if (isHeader(buffer, start, firstLineEnd, delimiter)) {
+            start = Math.min(end, firstLineEnd + 1);
+            firstLine = 2;
+        }
+
+        List<ChunkResult> results = LineChunks.parse(buffer, start, end, firstLine, parallelism, ChunkResult::new,
+                (bytes, from, to, line, result) -> parseRow(bytes, from, to, delimiter, line, result));
+
+        List<ImportedGame> games = new ArrayList<>();
+        List<RejectedRow> rejected = new ArrayList<>();
+        long rowsRead = 0;
+        for (ChunkResult result : results) {
+            games.addAll(result.games);
+            rejected.addAll(result.rejected);
+            rowsRead += result.getRowsRead();
+        }
+        return new ImportResult(games, rejected, rowsRead);
+    }
+
+    private static byte detectDelimiter(ByteBuffer buffer, int start, int end) {
+        int lineEnd = LineChunks.lineEnd(buffer, start, end);
+        for (int pos = start; pos < lineEnd; pos++) {
+            if (buffer.get(pos) == '\t') {
+                return '\t';
+            }
+        }
+        return ',';
+    }
+
+    // A header row names the bowler column (Bowler, Name or Player, in any
+    // case) and has no roll field that starts with a digit; any other first
+    // row is parsed as data, so a malformed one is reported, not skipped
+    private static boolean isHeader(ByteBuffer buffer, int from, int to, byte delimiter) {
+        if (!startsWithHeaderName(buffer, from, to, delimiter)) {
+            return false;
+        }
+        boolean inRolls = false;
+        boolean fieldStart = false;
+        for (int pos = from; pos < to; pos++) {
+            byte b = buffer.get(pos);
+            if (b == delimiter) {
+                inRolls = true;
+                fieldStart = true;
+            } else if (fieldStart && b != ' ') {
+                if (inRolls && b >= '0' && b <= '9') {
+                    return false;
+                }
+                fieldStart = false;
+            }
+        }
+        return inRolls;
+    }
+
+    private static boolean startsWithHeaderName(ByteBuffer buffer, int from, int to, byte delimiter) {
+        int fieldEnd = fieldEnd(buffer, from, to, delimiter);
+        int start = LineChunks.skipSpaces(buffer, from, fieldEnd);
+        String name = LineChunks.decode(buffer, start, LineChunks.trimSpaces(buffer, start, fieldEnd));
+        for (String header : HEADER_NAMES) {
+            if (header.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void parseRow(ByteBuffer buffer, int from, int to, byte delimiter, long line,
+                                 ChunkResult result) {
+        int[] rolls = result.rolls;
+        int fieldEnd = fieldEnd(buffer, from, to, delimiter);
+        int bowlerStart = LineChunks.skipSpaces(buffer, from, fieldEnd);
+        int bowlerEnd = LineChunks.trimSpaces(buffer, bowlerStart, fieldEnd);
+        if (bowlerStart == bowlerEnd) {
+            result.reject(line, 1, "Bowler is missing", buffer, from, to);
+            return;
+        }
+
+        int count = 0;
+        int column = 1;
+        int firstEmptyColumn = 0;
+        int pos = fieldEnd;
+        while (pos < to) {
+            pos++; // skip the delimiter
+            column++;
+            fieldEnd = fieldEnd(buffer, pos, to, delimiter);
+            int start = LineChunks.skipSpaces(buffer, pos, fieldEnd);
+            int end = LineChunks.trimSpaces(buffer, start, fieldEnd);
+            pos = fieldEnd;
+
+            if (start == end) {
+                if (firstEmptyColumn == 0) {
+                    firstEmptyColumn = column;
+                }
+                continue;
+            }
+            if (firstEmptyColumn != 0) {
+                result.reject(line, firstEmptyColumn, "Roll is missing", buffer, from, to);
+                return;
+            }
+            if (count == FrameRules.MAX_ROLLS) {
+                result.reject(line, column, "Too many rolls", buffer, from, to);
+                return;
+            }
+            int pins = parsePins(buffer, start, end);
+            if (pins < 0) {
+                result.reject(line, column, "Roll is not a number", buffer, from, to);
+                return;
+            }
+            rolls[count++] = pins;
+        }
+
+        RuleViolation violation = FrameRules.check(rolls, count);
+        if (violation != null) {
+            // Rolls start in the second column
+            result.reject(line, violation.getRollIndex() + 2, violation.getReason(), buffer, from, to);
+            return;
+        }
+        result.games.add(new ImportedGame(line, LineChunks.decode(buffer, bowlerStart, bowlerEnd), Arrays.copyOf(rolls, count)));
+    }
+
+    private static int fieldEnd(ByteBuffer buffer, int from, int to, byte delimiter) {
+        int pos = from;
+        while (pos < to && buffer.get(pos) != delimiter) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // Returns -1 for anything that is not a plain decimal number;
+    // values over 10 are left for the frame rules to report
+    private static int parsePins(ByteBuffer buffer, int from, int to) {
+        if (to - from > 3) {
+            return -1;
+        }
+        int value = 0;
+        for (int pos = from; pos < to; pos++) {
+            byte b = buffer.get(pos);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static class ChunkResult extends LineChunks.Chunk {
+        final int[] rolls = new int[FrameRules.MAX_ROLLS];
+        final List<ImportedGame> games = new ArrayList<>();
+        final List<RejectedRow> rejected = new ArrayList<>();
+
+        void reject(long line, int column, String reason, ByteBuffer buffer, int from, int to) {
+            rejected.add(new RejectedRow(line, column, reason, LineChunks.decode(buffer, from, to)));
+        }
+    }
+}
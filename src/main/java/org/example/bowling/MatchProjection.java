@@ -0,0 +1,44 @@
+package org.example.bowling;
+
+// MatchProjection.java - Head-to-head outcome of two simulated bowlers
+public class MatchProjection {
+    private final long firstWins;
+    private final long secondWins;
+    private final long ties;
+    private final ScoreDistribution firstScores;
+    private final ScoreDistribution secondScores;
+
+    public MatchProjection(long firstWins, long secondWins, long ties,
+                           ScoreDistribution firstScores, ScoreDistribution secondScores) {
+        this.firstWins = firstWins;
+        this.secondWins = secondWins;
+        this.ties = ties;
+        this.firstScores = firstScores;
+        this.secondScores = secondScores;
+    }
+
+    public long getGames() { return firstWins + secondWins + ties; }
+    public long getFirstWins() { return firstWins; }
+    public long getSecondWins() { return secondWins; }
+    public long getTies() { return ties; }
+    public ScoreDistribution getFirstScores() { return firstScores; }
+    public ScoreDistribution getSecondScores() { return secondScores; }
+
+    public double getFirstWinProbability() {
+        return getGames() == 0 ? 0.0 : (double) firstWins / getGames();
+    }
+
+    public double getSecondWinProbability() {
+        return getGames() == 0 ? 0.0 : (double) secondWins / getGames();
+    }
+
+    public double getTieProbability() {
+        return getGames() == 0 ? 0.0 : (double) ties / getGames();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MatchProjection(games=%d, first=%.4f, second=%.4f, tie=%.4f)",
+                getGames(), getFirstWinProbability(), getSecondWinProbability(), getTieProbability());
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.bowling;
+
+import java.util.Arrays;
+
+/**
+ * Minimal, independent scorer used to cross-check BowlingGame.
+ * Rolls are fed one at a time; a roll that breaks the rules (out of range,
+ * more pins than are standing, or after the game is complete) is rejected.
+ * Scores stay TBS until every bonus roll they need has been rolled.
+ */
+public class ReferenceScorer {
+    private final int[] rolls = new int[FrameRules.MAX_ROLLS];
+    private final int[] frameStarts = new int[10];
+    private int count;
+    private int frame = 1;
+    private int roll = 1;
+    private int remaining = 10;
+    private boolean complete;
+
+    public boolean addRoll(int pins) {
+        if (complete || pins < 0 || pins > remaining) {
+            return false;
+        }
+        rolls[count++] = pins;
+
+        if (frame < 10) {
+            if (roll == 1 && pins < 10) {
+                roll = 2;
+                remaining = 10 - pins;
+            } else {
+                startFrame(frame + 1);
+            }
+        } else if (roll == 1) {
+            roll = 2;
+            remaining = pins == 10 ? 10 : 10 - pins;
+        } else if (roll == 2) {
+            int first = rolls[count - 2];
+            if (first == 10 || first + pins == 10) {
+                roll = 3;
+                remaining = first == 10 && pins < 10 ? 10 - pins : 10;
+            } else {
+                complete = true;
+            }
+        } else {
+            complete = true;
+        }
+        return true;
+    }
+
+    private void startFrame(int next) {
+        frame = next;
+        roll = 1;
+        remaining = 10;
+        frameStarts[next - 1] = count;
+    }
+
+    public int getRollCount() { return count; }
+    public int[] getRolls() { return Arrays.copyOf(rolls, count); }
+    public boolean isGameComplete() { return complete; }
+
+    // Input control for the next roll
+    public int getFrame() { return frame; }
+    public int getRoll() { return roll; }
+    public int getRemaining() { return remaining; }
+
+    private boolean isStarted(int f) {
+        return f <= frame && frameStarts[f - 1] < count;
+    }
+
+    private int rollAt(int index) {
+        return index < count ? rolls[index] : FrameValues.TBR;
+    }
+
+    // Roll values as BowlingGame reports them: a strike in frames 1-9 has roll 2 of 0
+    public int getFrameRoll(int f, int rollNum) {
+        if (!isStarted(f)) {
+            return FrameValues.TBR;
+        }
+        int start = frameStarts[f - 1];
+        if (f < 10) {
+            if (rollNum == 3) {
+                return FrameValues.TBR;
+            }
+            if (rollNum == 2 && rolls[start] == 10) {
+                return 0;
+            }
+        }
+        return rollAt(start + rollNum - 1);
+    }
+
+    public int getScore(int f) {
+        if (!isStarted(f)) {
+            return FrameValues.TBS;
+        }
+        int start = frameStarts[f - 1];
+        if (f == 10) {
+            return complete ? sum(start, count) : FrameValues.TBS;
+        }
+        if (rolls[start] == 10 || (start + 1 < count && rolls[start] + rolls[start + 1] == 10)) {
+            // Strike and spare both count the rolls through start + 2
+            return start + 2 < count ? sum(start, start + 3) : FrameValues.TBS;
+        }
+        return start + 1 < count ? rolls[start] + rolls[start + 1] : FrameValues.TBS;
+    }
+
+    public int getTotalScore(int f) {
+        int total = 0;
+        for (int i = 1; i <= f; i++) {
+            int score = getScore(i);
+            if (score == FrameValues.TBS) {
+                return FrameValues.TBS;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    private int sum(int from, int to) {
+        int total = 0;
+        for (int i = from; i < to; i++) {
+            total += rolls[i];
+        }
+        return total;
+    }
+
+    public String getDisplay() {
+        StringBuilder sb = new StringBuilder("|");
+        for (int f = 1; f <= 10; f++) {
+            int r1 = getFrameRoll(f, 1);
+            int r2 = getFrameRoll(f, 2);
+            int r3 = getFrameRoll(f, 3);
+            if (f < 10) {
+                sb.append(r1 == 10 ? 'X' : mark(r1));
+                sb.append(r1 == 10 ? ' ' : (r2 != FrameValues.TBR && r1 + r2 == 10 ? '/' : mark(r2)));
+                sb.append(" |");
+            } else {
+                sb.append(mark(r1));
+                sb.append(r1 < 10 && r2 != FrameValues.TBR && r1 + r2 == 10 ? '/' : mark(r2));
+                boolean rackAfterStrike = r1 == 10 && r2 < 10;
+                sb.append(rackAfterStrike && r3 != FrameValues.TBR && r2 + r3 == 10 ? '/' : mark(r3));
+                sb.append('|');
+            }
+        }
+        sb.append("\n|");
+        for (int f = 1; f <= 10; f++) {
+            int total = getTotalScore(f);
+            String text = total == FrameValues.TBS ? "" : String.valueOf(total);
+            for (int pad = text.length(); pad < 3; pad++) {
+                sb.append(' ');
+            }
+            sb.append(text).append('|');
+        }
+        return sb.toString();
+    }
+
+    private static char mark(int pins) {
+        if (pins == FrameValues.TBR) return ' ';
+        if (pins == 10) return 'X';
+        if (pins == 0) return '-';
+        return (char) ('0' + pins);
+    }
+
+    // Final score of a complete, legal game without building any objects
+    public static int scoreGame(int[] rolls) {
+        int total = 0;
+        int index = 0;
+        for (int f = 0; f < 10; f++) {
+            if (rolls[index] == 10) {
+                total += 10 + rolls[index + 1] + rolls[index + 2];
+                index++;
+            } else if (rolls[index] + rolls[index + 1] == 10) {
+                total += 10 + rolls[index + 2];
+                index += 2;
+            } else {
+                total += rolls[index] + rolls[index + 1];
+                index += 2;
+            }
+        }
+        return total;
+    }
+}
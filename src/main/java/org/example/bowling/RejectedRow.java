@@ -0,0 +1,27 @@
+package org.example.bowling;
+
+// RejectedRow.java - A league score file row that failed validation
+public class RejectedRow {
+    private final long line;
+    private final int column;
+    private final String reason;
+    private final String text;
+
+    public RejectedRow(long line, int column, String reason, String text) {
+        this.line = line;
+        this.column = column;
+        this.reason = reason;
+        this.text = text;
+    }
+
+    // Line is 1-based in the file; column is the 1-based field, 0 for the row as a whole
+    public long getLine() { return line; }
+    public int getColumn() { return column; }
+    public String getReason() { return reason; }
+    public String getText() { return text; }
+
+    @Override
+    public String toString() {
+        return String.format("RejectedRow(line=%d, column=%d, reason='%s', text='%s')", line, column, reason, text);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.bowling;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Random roll sequences for property-based checks of the scorers.
+ * Legal games follow the frame rules; near-legal ones are a legal game
+ * with one small defect (too many pins, out-of-range roll, missing or
+ * extra rolls) so the rejection paths get exercised too.
+ */
+public class RollSequenceGenerator {
+
+    private RollSequenceGenerator() {
+    }
+
+    public static int[] legalGame(SplittableRandom random) {
+        int[] rolls = new int[FrameRules.MAX_ROLLS];
+        int count = 0;
+        for (int frame = 1; frame < 10; frame++) {
+            int first = pins(random, 10);
+            rolls[count++] = first;
+            if (first < 10) {
+                rolls[count++] = pins(random, 10 - first);
+            }
+        }
+        int first = pins(random, 10);
+        int second = pins(random, first == 10 ? 10 : 10 - first);
+        rolls[count++] = first;
+        rolls[count++] = second;
+        if (first == 10 || first + second == 10) {
+            rolls[count++] = pins(random, first == 10 && second < 10 ? 10 - second : 10);
+        }
+        return Arrays.copyOf(rolls, count);
+    }
+
+    // A legal game cut short at a random roll
+    public static int[] partialGame(SplittableRandom random) {
+        int[] game = legalGame(random);
+        return Arrays.copyOf(game, random.nextInt(game.length));
+    }
+
+    public static int[] nearLegalGame(SplittableRandom random) {
+        int[] game = legalGame(random);
+        int position = random.nextInt(game.length);
+        switch (random.nextInt(5)) {
+            case 0: // knock down more pins than are standing
+                game[position] = Math.min(10, game[position] + 1 + random.nextInt(3));
+                return game;
+            case 1: // a roll outside 0-10
+                game[position] = random.nextBoolean() ? 11 + random.nextInt(5) : -1 - random.nextInt(3);
+                return game;
+            case 2: // a missing roll
+                int[] shorter = new int[game.length - 1];
+                System.arraycopy(game, 0, shorter, 0, position);
+                System.arraycopy(game, position + 1, shorter, position, game.length - position - 1);
+                return shorter;
+            case 3: // a roll after the game is over
+                int[] longer = Arrays.copyOf(game, game.length + 1);
+                longer[game.length] = random.nextInt(11);
+                return longer;
+            default: // tenth frame bonus rolls that cannot all stand
+                game[game.length - 1] = random.nextInt(11);
+                game[game.length - 2] = random.nextInt(11);
+                return game;
+        }
+    }
+
+    // Skewed towards strikes, spares and gutters, where the scoring rules branch
+    private static int pins(SplittableRandom random, int standing) {
+        int choice = random.nextInt(10);
+        if (choice < 2) return standing;
+        if (choice < 3) return 0;
+        return random.nextInt(standing + 1);
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.bowling;
+
+// RuleViolation.java - Why and where a roll sequence breaks the frame rules
+public class RuleViolation {
+    private final int rollIndex;
+    private final String reason;
+
+    public RuleViolation(int rollIndex, String reason) {
+        this.rollIndex = rollIndex;
+        this.reason = reason;
+    }
+
+    // Zero-based index of the offending roll in the sequence
+    public int getRollIndex() { return rollIndex; }
+    public String getReason() { return reason; }
+
+    @Override
+    public String toString() {
+        return String.format("RuleViolation(roll=%d, reason='%s')", rollIndex + 1, reason);
+    }
+}
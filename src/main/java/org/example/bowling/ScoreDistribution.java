@@ -0,0 +1,98 @@
+package org.example.bowling;
+
+import java.util.Arrays;
+
+// ScoreDistribution.java - Histogram of simulated game scores (0-300)
+public class ScoreDistribution {
+    public static final int MAX_SCORE = 300;
+
+    private final long[] counts;
+
+    public ScoreDistribution() {
+        this.counts = new long[MAX_SCORE + 1];
+    }
+
+    public void record(int score) {
+        counts[score]++;
+    }
+
+    public ScoreDistribution merge(ScoreDistribution other) {
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            counts[score] += other.counts[score];
+        }
+        return this;
+    }
+
+    public long getGames() {
+        long games = 0;
+        for (long count : counts) {
+            games += count;
+        }
+        return games;
+    }
+
+    public long getCount(int score) {
+        return counts[score];
+    }
+
+    public double getMean() {
+        long games = getGames();
+        if (games == 0) {
+            return 0.0;
+        }
+        double total = 0;
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            total += (double) score * counts[score];
+        }
+        return total / games;
+    }
+
+    public double getStandardDeviation() {
+        long games = getGames();
+        if (games == 0) {
+            return 0.0;
+        }
+        double mean = getMean();
+        double squares = 0;
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            squares += (score - mean) * (score - mean) * counts[score];
+        }
+        return Math.sqrt(squares / games);
+    }
+
+    public double probabilityAtLeast(int score) {
+        long games = getGames();
+        if (games == 0) {
+            return 0.0;
+        }
+        long atLeast = 0;
+        for (int s = Math.max(0, score); s <= MAX_SCORE; s++) {
+            atLeast += counts[s];
+        }
+        return (double) atLeast / games;
+    }
+
+    // Smallest score with at least the given fraction of games at or below it
+    public int percentile(double fraction) {
+        long games = getGames();
+        long target = (long) Math.ceil(fraction * games);
+        long running = 0;
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            running += counts[score];
+            if (running >= target && running > 0) {
+                return score;
+            }
+        }
+        return MAX_SCORE;
+    }
+
+    public long[] getCounts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ScoreDistribution(games=%d, mean=%.1f, sd=%.1f, median=%d)",
+                getGames(), getMean(), getStandardDeviation(), percentile(0.5));
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.bowling;
+
+import java.util.Arrays;
+
+// ScoringMismatch.java - A roll sequence where BowlingGame and ReferenceScorer disagree
+public class ScoringMismatch {
+    public static final String FRAME_VALUES = "FrameValues";
+    public static final String DISPLAY = "Display";
+    public static final String INPUT_CONTROL = "InputControlValues";
+
+    private final String kind;
+    private final int[] rolls;
+    private final int[] shrunkRolls;
+    private final String expected;
+    private final String actual;
+
+    public ScoringMismatch(String kind, int[] rolls, int[] shrunkRolls, String expected, String actual) {
+        this.kind = kind;
+        this.rolls = rolls;
+        this.shrunkRolls = shrunkRolls;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public String getKind() { return kind; }
+    public int[] getRolls() { return Arrays.copyOf(rolls, rolls.length); }
+    public int[] getShrunkRolls() { return Arrays.copyOf(shrunkRolls, shrunkRolls.length); }
+    public String getExpected() { return expected; }
+    public String getActual() { return actual; }
+
+    @Override
+    public String toString() {
+        return String.format("%s mismatch for rolls %s%n  expected: %s%n  actual:   %s",
+                kind, Arrays.toString(shrunkRolls), expected, actual);
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.bowling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+/**
+ * Property-based stress test of BowlingGame against ReferenceScorer.
+ * Random sequences are fed to both, roll by roll, in parallel batches.
+ * InputControlValues are compared after every roll; FrameValues and
+ * getDisplay() once the sequence has been scored. Each kind of mismatch
+ * keeps its first example, shrunk to a minimal failing sequence.
+ * Usage: ScoringStressHarness [games per sequence kind] [seed]
+ */
+public class ScoringStressHarness {
+    public static final String LEGAL = "legal";
+    public static final String PARTIAL = "partial";
+    public static final String NEAR_LEGAL = "near-legal";
+
+    private static final int BATCH_SIZE = 10_000;
+
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        System.out.printf("Seed %d%n", seed);
+
+        for (String kind : new String[] {LEGAL, PARTIAL, NEAR_LEGAL}) {
+            Result result = run(kind, games, seed);
+            System.out.printf("%n%s: %,d games in %,d ms (%,.0f games/s), %,d mismatching%n",
+                    kind, result.getGames(), result.getNanos() / 1_000_000,
+                    result.getGamesPerSecond(), result.getMismatchingGames());
+            for (ScoringMismatch mismatch : result.getExamples()) {
+                System.out.println(mismatch);
+            }
+        }
+    }
+
+    public static Result run(String kind, long games, long seed) {
+        long start = System.nanoTime();
+        long batches = (games + BATCH_SIZE - 1) / BATCH_SIZE;
+        Result result = LongStream.range(0, batches).parallel()
+                .mapToObj(batch -> runBatch(kind, batch,
+                        Math.min(BATCH_SIZE, games - batch * BATCH_SIZE), seed))
+                .reduce(new Result(), Result::merge);
+
+        // Shrinking is only done for the examples that get reported
+        List<ScoringMismatch> shrunk = new ArrayList<>();
+        for (ScoringMismatch example : result.examples.values()) {
+            int[] minimal = shrink(example.getRolls(), example.getKind());
+            ScoringMismatch again = check(minimal);
+            shrunk.add(new ScoringMismatch(example.getKind(), example.getRolls(), minimal,
+                    again.getExpected(), again.getActual()));
+        }
+        result.nanos = System.nanoTime() - start;
+        result.shrunkExamples = shrunk;
+        return result;
+    }
+
+    private static Result runBatch(String kind, long batch, long games, long seed) {
+        SplittableRandom random = new SplittableRandom(seed ^ (batch * 0x9E3779B97F4A7C15L));
+        Result result = new Result();
+        for (long i = 0; i < games; i++) {
+            int[] rolls = generate(kind, random);
+            ScoringMismatch mismatch = check(rolls);
+            result.games++;
+            if (mismatch != null) {
+                result.mismatchingGames++;
+                result.examples.putIfAbsent(mismatch.getKind(), mismatch);
+            }
+        }
+        return result;
+    }
+
+    private static int[] generate(String kind, SplittableRandom random) {
+        switch (kind) {
+            case LEGAL: return RollSequenceGenerator.legalGame(random);
+            case PARTIAL: return RollSequenceGenerator.partialGame(random);
+            case NEAR_LEGAL: return RollSequenceGenerator.nearLegalGame(random);
+            default: throw new IllegalArgumentException("Unknown sequence kind: " + kind);
+        }
+    }
+
+    // Returns the first disagreement between the two scorers, or null
+    public static ScoringMismatch check(int[] rolls) {
+        BowlingGame game = new BowlingGame();
+        ReferenceScorer reference = new ReferenceScorer();
+
+        for (int pins : rolls) {
+            game.addRoll(new Roll(pins));
+            reference.addRoll(pins);
+            if (game.isGameComplete() || reference.isGameComplete()) {
+                if (game.isGameComplete() != reference.isGameComplete()) {
+                    return mismatch(ScoringMismatch.INPUT_CONTROL, rolls,
+                            "complete=" + reference.isGameComplete(), "complete=" + game.isGameComplete());
+                }
+                continue;
+            }
+            InputControlValues ic = game.getInputControl();
+            if (ic.getFrame() != reference.getFrame() || ic.getRoll() != reference.getRoll()
+                    || ic.getRemaining() != reference.getRemaining()) {
+                return mismatch(ScoringMismatch.INPUT_CONTROL, rolls,
+                        inputControl(reference.getFrame(), reference.getRoll(), reference.getRemaining()),
+                        inputControl(ic.getFrame(), ic.getRoll(), ic.getRemaining()));
+            }
+        }
+
+        game.score();
+        for (int f = 1; f <= 10; f++) {
+            FrameValues fv = game.getFrameValues().get(f - 1);
+            if (fv.getRoll1().getIntValue() != reference.getFrameRoll(f, 1)
+                    || fv.getRoll2().getIntValue() != reference.getFrameRoll(f, 2)
+                    || fv.getRoll3().getIntValue() != reference.getFrameRoll(f, 3)
+                    || fv.getScore() != reference.getScore(f)
+                    || fv.getTotalScore() != reference.getTotalScore(f)) {
+                return mismatch(ScoringMismatch.FRAME_VALUES, rolls,
+                        frameValues(f, reference.getFrameRoll(f, 1), reference.getFrameRoll(f, 2),
+                                reference.getFrameRoll(f, 3), reference.getScore(f), reference.getTotalScore(f)),
+                        frameValues(f, fv.getRoll1().getIntValue(), fv.getRoll2().getIntValue(),
+                                fv.getRoll3().getIntValue(), fv.getScore(), fv.getTotalScore()));
+            }
+        }
+
+        String expectedDisplay = reference.getDisplay();
+        String actualDisplay = game.getDisplay();
+        if (!expectedDisplay.equals(actualDisplay)) {
+            return mismatch(ScoringMismatch.DISPLAY, rolls,
+                    expectedDisplay.replace('\n', ' '), actualDisplay.replace('\n', ' '));
+        }
+        return null;
+    }
+
+    private static ScoringMismatch mismatch(String kind, int[] rolls, String expected, String actual) {
+        return new ScoringMismatch(kind, rolls, rolls, expected, actual);
+    }
+
+    private static String inputControl(int frame, int roll, int remaining) {
+        return String.format("frame %d, roll %d, remaining %d", frame, roll, remaining);
+    }
+
+    private static String frameValues(int frame, int roll1, int roll2, int roll3, int score, int total) {
+        return String.format("frame %d rolls %d,%d,%d score %d total %d", frame, roll1, roll2, roll3, score, total);
+    }
+
+    // Greedily drops rolls, then lowers pin counts, while the same kind of mismatch remains
+    public static int[] shrink(int[] rolls, String kind) {
+        int[] current = rolls;
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (int i = current.length - 1; i >= 0; i--) {
+                int[] candidate = new int[current.length - 1];
+                System.arraycopy(current, 0, candidate, 0, i);
+                System.arraycopy(current, i + 1, candidate, i, current.length - i - 1);
+                if (failsWith(candidate, kind)) {
+                    current = candidate;
+                    progress = true;
+                }
+            }
+            for (int i = 0; i < current.length; i++) {
+                int[] candidate = Arrays.copyOf(current, current.length);
+                for (int lower : new int[] {0, candidate[i] / 2, candidate[i] - 1}) {
+                    if (lower >= 0 && lower < current[i]) {
+                        candidate[i] = lower;
+                        if (failsWith(candidate, kind)) {
+                            current = Arrays.copyOf(candidate, candidate.length);
+                            progress = true;
+                            break;
+                        }
+                        candidate[i] = current[i];
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private static boolean failsWith(int[] rolls, String kind) {
+        ScoringMismatch mismatch = check(rolls);
+        return mismatch != null && mismatch.getKind().equals(kind);
+    }
+
+    public static class Result {
+        private long games;
+        private long mismatchingGames;
+        private long nanos;
+        private final Map<String, ScoringMismatch> examples = new LinkedHashMap<>();
+        private List<ScoringMismatch> shrunkExamples = new ArrayList<>();
+
+        public long getGames() { return games; }
+        public long getMismatchingGames() { return mismatchingGames; }
+        public long getNanos() { return nanos; }
+        public List<ScoringMismatch> getExamples() { return shrunkExamples; }
+
+        public double getGamesPerSecond() {
+            return nanos == 0 ? 0.0 : games * 1_000_000_000.0 / nanos;
+        }
+
+        private Result merge(Result other) {
+            Result merged = new Result();
+            merged.games = games + other.games;
+            merged.mismatchingGames = mismatchingGames + other.mismatchingGames;
+            merged.examples.putAll(examples);
+            other.examples.forEach(merged.examples::putIfAbsent);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.example.bowling;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-heap storage for a whole season of scored games.
+ * Every game occupies a fixed-size slot in direct memory, so a season of
+ * millions of frames costs a handful of heap objects instead of
+ * BowlingGame/FrameValues/FrameDisplay graphs per game.
+ */
+public class SeasonFrameStore {
+    // Game slot layout: bowler (int), then 10 frame records
+    // Frame record layout: roll1, roll2, roll3 (byte, -1 = TBR), frame (byte),
+    //                      score (short, -1 = TBS), total score (short, -1 = TBS)
+    public static final int FRAMES_PER_GAME = 10;
+    public static final int FRAME_BYTES = 8;
+    public static final int GAME_HEADER_BYTES = 4;
+    public static final int GAME_BYTES = GAME_HEADER_BYTES + FRAMES_PER_GAME * FRAME_BYTES;
+
+    private static final int ROLL1_OFFSET = 0;
+    private static final int ROLL2_OFFSET = 1;
+    private static final int ROLL3_OFFSET = 2;
+    private static final int FRAME_OFFSET = 3;
+    private static final int SCORE_OFFSET = 4;
+    private static final int TOTAL_OFFSET = 6;
+
+    // Games are kept in fixed-size direct blocks so no single buffer
+    // has to hold the whole season (a ByteBuffer is limited to 2GB)
+    private static final int BLOCK_SHIFT = 16;
+    private static final int GAMES_PER_BLOCK = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = GAMES_PER_BLOCK - 1;
+
+    private ByteBuffer[] blocks;
+    private int gameCount;
+
+    public SeasonFrameStore() {
+        this.blocks = new ByteBuffer[0];
+        this.gameCount = 0;
+    }
+
+    // Stores a scored game and returns its game index
+    public int addGame(int bowler, BowlingGame game) {
+        return addGame(bowler, game.getFrameValues());
+    }
+
+    public int addGame(int bowler, List<FrameValues> frameValues) {
+        if (frameValues.size() != FRAMES_PER_GAME) {
+            throw new IllegalArgumentException("A game must have " + FRAMES_PER_GAME + " frames");
+        }
+        int game = gameCount;
+        ByteBuffer block = blockFor(game);
+        int base = slotOffset(game);
+
+        block.putInt(base, bowler);
+        for (int i = 0; i < FRAMES_PER_GAME; i++) {
+            FrameValues fv = frameValues.get(i);
+            int frameBase = base + GAME_HEADER_BYTES + i * FRAME_BYTES;
+            block.put(frameBase + ROLL1_OFFSET, (byte) fv.getRoll1().getIntValue());
+            block.put(frameBase + ROLL2_OFFSET, (byte) fv.getRoll2().getIntValue());
+            block.put(frameBase + ROLL3_OFFSET, (byte) fv.getRoll3().getIntValue());
+            block.put(frameBase + FRAME_OFFSET, (byte) (i + 1));
+            block.putShort(frameBase + SCORE_OFFSET, (short) fv.getScore());
+            block.putShort(frameBase + TOTAL_OFFSET, (short) fv.getTotalScore());
+        }
+
+        gameCount++;
+        return game;
+    }
+
+    private ByteBuffer blockFor(int game) {
+        int blockIndex = game >>> BLOCK_SHIFT;
+        if (blockIndex >= blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockIndex + 1);
+            blocks[blockIndex] = ByteBuffer.allocateDirect(GAMES_PER_BLOCK * GAME_BYTES)
+                    .order(ByteOrder.nativeOrder());
+        }
+        return blocks[blockIndex];
+    }
+
+    private static int slotOffset(int game) {
+        return (game & BLOCK_MASK) * GAME_BYTES;
+    }
+
+    private int frameOffset(int game, int frame) {
+        checkGame(game);
+        if (frame < 1 || frame > FRAMES_PER_GAME) {
+            throw new IndexOutOfBoundsException("Frame must be 1-10: " + frame);
+        }
+        return slotOffset(game) + GAME_HEADER_BYTES + (frame - 1) * FRAME_BYTES;
+    }
+
+    private void checkGame(int game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("No game " + game + " in season of " + gameCount);
+        }
+    }
+
+    // Single game queries
+    public int getGameCount() { return gameCount; }
+    public long getFrameCount() { return (long) gameCount * FRAMES_PER_GAME; }
+
+    public int getBowler(int game) {
+        checkGame(game);
+        return blocks[game >>> BLOCK_SHIFT].getInt(slotOffset(game));
+    }
+
+    // rollNum is 1-3; returns -1 when the roll was not taken
+    public int getRoll(int game, int frame, int rollNum) {
+        if (rollNum < 1 || rollNum > 3) {
+            throw new IndexOutOfBoundsException("Roll must be 1-3: " + rollNum);
+        }
+        int offset = frameOffset(game, frame);
+        return blocks[game >>> BLOCK_SHIFT].get(offset + rollNum - 1);
+    }
+
+    public int getScore(int game, int frame) {
+        int offset = frameOffset(game, frame);
+        return blocks[game >>> BLOCK_SHIFT].getShort(offset + SCORE_OFFSET);
+    }
+
+    public int getTotalScore(int game, int frame) {
+        int offset = frameOffset(game, frame);
+        return blocks[game >>> BLOCK_SHIFT].getShort(offset + TOTAL_OFFSET);
+    }
+
+    public int getFinalScore(int game) {
+        return getTotalScore(game, FRAMES_PER_GAME);
+    }
+
+    // Materializes one frame on-heap, for callers that need the object model
+    public FrameValues getFrameValues(int game, int frame) {
+        int offset = frameOffset(game, frame);
+        ByteBuffer block = blocks[game >>> BLOCK_SHIFT];
+        FrameValues fv = new FrameValues(frame);
+        fv.setRoll1(toRoll(block.get(offset + ROLL1_OFFSET)));
+        fv.setRoll2(toRoll(block.get(offset + ROLL2_OFFSET)));
+        fv.setRoll3(toRoll(block.get(offset + ROLL3_OFFSET)));
+        fv.setScore(block.getShort(offset + SCORE_OFFSET));
+        fv.setTotalScore(block.getShort(offset + TOTAL_OFFSET));
+        return fv;
+    }
+
+    private static Roll toRoll(byte value) {
+        return value == -1 ? new Roll(Roll.TBR) : new Roll(value);
+    }
+
+    // Bowler queries
+    public int[] getGamesForBowler(int bowler) {
+        int[] games = new int[16];
+        int count = 0;
+        for (int game = 0; game < gameCount; game++) {
+            if (blocks[game >>> BLOCK_SHIFT].getInt(slotOffset(game)) == bowler) {
+                if (count == games.length) {
+                    games = Arrays.copyOf(games, count * 2);
+                }
+                games[count++] = game;
+            }
+        }
+        return Arrays.copyOf(games, count);
+    }
+
+    // Sum of final scores over the bowler's completed games
+    public long getSeasonTotal(int bowler) {
+        long total = 0;
+        for (int game = 0; game < gameCount; game++) {
+            ByteBuffer block = blocks[game >>> BLOCK_SHIFT];
+            int base = slotOffset(game);
+            if (block.getInt(base) == bowler) {
+                int finalScore = block.getShort(base + GAME_HEADER_BYTES
+                        + (FRAMES_PER_GAME - 1) * FRAME_BYTES + TOTAL_OFFSET);
+                if (finalScore != FrameValues.TBS) {
+                    total += finalScore;
+                }
+            }
+        }
+        return total;
+    }
+
+    public double getAverage(int bowler) {
+        long total = 0;
+        int games = 0;
+        for (int game = 0; game < gameCount; game++) {
+            ByteBuffer block = blocks[game >>> BLOCK_SHIFT];
+            int base = slotOffset(game);
+            if (block.getInt(base) == bowler) {
+                int finalScore = block.getShort(base + GAME_HEADER_BYTES
+                        + (FRAMES_PER_GAME - 1) * FRAME_BYTES + TOTAL_OFFSET);
+                if (finalScore != FrameValues.TBS) {
+                    total += finalScore;
+                    games++;
+                }
+            }
+        }
+        return games == 0 ? 0.0 : (double) total / games;
+    }
+
+    // Frame range queries, over season frame positions (game * 10 + frame - 1),
+    // fromFrame inclusive and toFrame exclusive
+    public long sumFrameScores(long fromFrame, long toFrame) {
+        checkFrameRange(fromFrame, toFrame);
+        long sum = 0;
+        for (long position = fromFrame; position < toFrame; position++) {
+            int game = (int) (position / FRAMES_PER_GAME);
+            int frameBase = slotOffset(game) + GAME_HEADER_BYTES
+                    + (int) (position % FRAMES_PER_GAME) * FRAME_BYTES;
+            int score = blocks[game >>> BLOCK_SHIFT].getShort(frameBase + SCORE_OFFSET);
+            if (score != FrameValues.TBS) {
+                sum += score;
+            }
+        }
+        return sum;
+    }
+
+    public long countStrikes(long fromFrame, long toFrame) {
+        checkFrameRange(fromFrame, toFrame);
+        long strikes = 0;
+        for (long position = fromFrame; position < toFrame; position++) {
+            int game = (int) (position / FRAMES_PER_GAME);
+            int frameBase = slotOffset(game) + GAME_HEADER_BYTES
+                    + (int) (position % FRAMES_PER_GAME) * FRAME_BYTES;
+            if (blocks[game >>> BLOCK_SHIFT].get(frameBase + ROLL1_OFFSET) == 10) {
+                strikes++;
+            }
+        }
+        return strikes;
+    }
+
+    private void checkFrameRange(long fromFrame, long toFrame) {
+        if (fromFrame < 0 || toFrame > getFrameCount() || fromFrame > toFrame) {
+            throw new IndexOutOfBoundsException(
+                    "Frame range " + fromFrame + "-" + toFrame + " outside season of " + getFrameCount());
+        }
+    }
+}
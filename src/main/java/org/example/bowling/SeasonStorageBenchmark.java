@@ -0,0 +1,147 @@
+package org.example.bowling;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares heap usage and GC pauses of a season kept as BowlingGame objects
+ * against the same season kept in a SeasonFrameStore.
+ * Usage: SeasonStorageBenchmark [frames] [bowlers]   (defaults 50,000,000 and 5,000)
+ */
+public class SeasonStorageBenchmark {
+    private static final int DISTINCT_GAMES = 1000;
+
+    public static void main(String[] args) {
+        long frames = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        int bowlers = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int games = (int) (frames / SeasonFrameStore.FRAMES_PER_GAME);
+
+        System.out.printf("Season of %,d frames (%,d games, %,d bowlers)%n", frames, games, bowlers);
+        int[][] rollSets = randomRollSets(new Random(42));
+
+        System.out.println("\nOn-heap model (BowlingGame per game):");
+        Measurement onHeap = Measurement.start();
+        List<BowlingGame> season = new ArrayList<>(games);
+        try {
+            for (int game = 0; game < games; game++) {
+                season.add(playGame(rollSets[game % DISTINCT_GAMES]));
+            }
+            long total = 0;
+            for (BowlingGame game : season) {
+                total += game.getFrameValues().get(9).getTotalScore();
+            }
+            onHeap.finish(total);
+        } catch (OutOfMemoryError e) {
+            int built = season.size();
+            season = null;
+            System.out.printf("  OutOfMemoryError after %,d games (%,d frames)%n",
+                    built, (long) built * SeasonFrameStore.FRAMES_PER_GAME);
+            onHeap.finish(0);
+        }
+        season = null;
+
+        System.out.println("\nOff-heap model (SeasonFrameStore):");
+        Measurement offHeap = Measurement.start();
+        SeasonFrameStore store = new SeasonFrameStore();
+        // Template games are scored once; each game slot copies their frames
+        BowlingGame[] templates = new BowlingGame[DISTINCT_GAMES];
+        for (int i = 0; i < DISTINCT_GAMES; i++) {
+            templates[i] = playGame(rollSets[i]);
+        }
+        for (int game = 0; game < games; game++) {
+            store.addGame(game % bowlers, templates[game % DISTINCT_GAMES]);
+        }
+        long total = 0;
+        for (int game = 0; game < store.getGameCount(); game++) {
+            total += store.getFinalScore(game);
+        }
+        offHeap.finish(total);
+        long directBytes = (long) store.getGameCount() * SeasonFrameStore.GAME_BYTES;
+        System.out.printf("  Off-heap bytes: %,d MB%n", directBytes >> 20);
+
+        long start = System.nanoTime();
+        double average = store.getAverage(0);
+        System.out.printf("  Bowler 0 average %.1f in %,d ms%n", average, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static BowlingGame playGame(int[] rolls) {
+        BowlingGame game = new BowlingGame();
+        for (int pins : rolls) {
+            game.addRoll(new Roll(pins));
+        }
+        game.score();
+        return game;
+    }
+
+    private static int[][] randomRollSets(Random random) {
+        int[][] rollSets = new int[DISTINCT_GAMES][];
+        for (int i = 0; i < DISTINCT_GAMES; i++) {
+            List<Integer> rolls = new ArrayList<>();
+            for (int frame = 1; frame <= 10; frame++) {
+                int first = random.nextInt(11);
+                rolls.add(first);
+                if (frame < 10) {
+                    if (first < 10) {
+                        rolls.add(random.nextInt(11 - first));
+                    }
+                } else {
+                    int second = first == 10 ? random.nextInt(11) : random.nextInt(11 - first);
+                    rolls.add(second);
+                    if (first == 10 || first + second == 10) {
+                        rolls.add(first == 10 && second < 10 ? random.nextInt(11 - second) : random.nextInt(11));
+                    }
+                }
+            }
+            rollSets[i] = rolls.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return rollSets;
+    }
+
+    // Heap and GC figures between start() and finish()
+    private static class Measurement {
+        private final long startNanos;
+        private final long startGcCount;
+        private final long startGcMillis;
+
+        private Measurement(long startNanos, long startGcCount, long startGcMillis) {
+            this.startNanos = startNanos;
+            this.startGcCount = startGcCount;
+            this.startGcMillis = startGcMillis;
+        }
+
+        static Measurement start() {
+            System.gc();
+            return new Measurement(System.nanoTime(), gcCount(), gcMillis());
+        }
+
+        void finish(long checksum) {
+            long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
+            long gcs = gcCount() - startGcCount;
+            long gcMillis = gcMillis() - startGcMillis;
+            System.gc();
+            long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            System.out.printf("  Build and scan: %,d ms (checksum %d)%n", elapsed, checksum);
+            System.out.printf("  Heap retained:  %,d MB%n", heapUsed >> 20);
+            System.out.printf("  GC pauses:      %,d collections, %,d ms total%n", gcs, gcMillis);
+        }
+
+        private static long gcCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+            }
+            return count;
+        }
+
+        private static long gcMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.filter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over ID codes, for answering "never seen" without touching
+ * an index or a file.
+ * Sized for an expected number of IDs and a false-positive rate; with k
+ * hash functions and m bits, bits are picked by double hashing one mixed
+ * 64-bit hash of the code. mightContain never misses an added code.
+ * Callers report false positives they find (filter said maybe, data said
+ * no), so the observed rate can be checked against the configured one.
+ */
+public class BloomFilter {
+    private final int capacity;
+    private final double falsePositiveRate;
+    private final long[] bits;
+    private final long bitMask;
+    private final int hashCount;
+    private int added;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public BloomFilter(int expectedItems, double falsePositiveRate) {
+        if (expectedItems < 1) {
+            throw new IllegalArgumentException("Expected items must be positive: " + expectedItems);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        this.capacity = expectedItems;
+        this.falsePositiveRate = falsePositiveRate;
+        // m = -n ln p / (ln 2)^2, rounded up to a power of two
+        double idealBits = -expectedItems * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long bitCount = Long.highestOneBit(Math.max(64L, (long) Math.ceil(idealBits)) - 1) << 1;
+        if (bitCount > (1L << 36)) {
+            throw new IllegalArgumentException("Bloom filter too large for " + expectedItems + " items");
+        }
+        this.bits = new long[(int) (bitCount >>> 6)];
+        this.bitMask = bitCount - 1;
+        this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) expectedItems * Math.log(2)));
+    }
+
+    public void add(int code) {
+        long hash = mix(code);
+        long step = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (hash + i * step) & bitMask;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        added++;
+    }
+
+    // False means the code was never added
+    public boolean mightContain(int code) {
+        queries.increment();
+        long hash = mix(code);
+        long step = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (hash + i * step) & bitMask;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                negatives.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    // Carries the query counts over to a resized filter
+    void inheritMetrics(BloomFilter previous) {
+        queries.add(previous.queries.sum());
+        negatives.add(previous.negatives.sum());
+        falsePositives.add(previous.falsePositives.sum());
+    }
+
+    private static long mix(int code) {
+        long h = (code & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 29);
+    }
+
+    public int getCapacity() { return capacity; }
+    public int getAdded() { return added; }
+    public int getHashCount() { return hashCount; }
+    public long getBitCount() { return bitMask + 1; }
+    public double getFalsePositiveRate() { return falsePositiveRate; }
+    public long getQueries() { return queries.sum(); }
+    public long getNegatives() { return negatives.sum(); }
+    public long getFalsePositives() { return falsePositives.sum(); }
+
+    // Rate expected from the bits set so far: (1 - e^(-kn/m))^k
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) added / getBitCount()), hashCount);
+    }
+
+    // False positives among the queries for codes that were not there
+    public double getObservedFalsePositiveRate() {
+        long absent = getNegatives() + getFalsePositives();
+        return absent == 0 ? 0 : getFalsePositives() / (double) absent;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BloomFilter(ids=%d, bits=%d, hashes=%d, queries=%d, negatives=%d, falsePositives=%d)",
+                added, getBitCount(), hashCount, getQueries(), getNegatives(), getFalsePositives());
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.filter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DataFilter for many writer threads.
+ *
+ * IDs are spread over striped IDIndex instances by ID code, each guarded
+ * by its own lock, so writers of different IDs rarely meet and there is
+ * no global lock. A row takes its number from a shared sequence and is
+ * written to an append log of chunked columns while its stripe is held,
+ * so every query on one ID (sum, count, rows) sees exactly the writes to
+ * that ID that came before it: per-ID queries are linearizable.
+ * Queries across IDs (getData, getRowCount) see each row once it has
+ * been written, but are not one snapshot of all IDs.
+ * IDs that cannot be packed share one small synchronized dictionary.
+ */
+public class ConcurrentDataFilter {
+    private static final int CHUNK_SHIFT = LabelValueColumns.CHUNK_SHIFT;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 1 << (31 - CHUNK_SHIFT);
+
+    private final IDIndex[] stripes;
+    private final int stripeMask;
+    private final IDIndex foreignIds = new IDIndex();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicReferenceArray<LogChunk> log = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    public ConcurrentDataFilter() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public ConcurrentDataFilter(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        }
+        int count = Integer.highestOneBit(Math.min(stripeCount, 1 << 16) * 2 - 1);
+        this.stripes = new IDIndex[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new IDIndex();
+        }
+        this.stripeMask = count - 1;
+    }
+
+    public void addData(LabelValue item) {
+        append(codeFor(item.getId().getValue()), item.getValue());
+    }
+
+    public void addData(String id, int value) {
+        append(codeFor(id != null ? id : "Q0000"), value);
+    }
+
+    private void append(int code, int value) {
+        IDIndex stripe = stripe(code);
+        synchronized (stripe) {
+            long row = sequence.getAndIncrement();
+            if (row > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many rows");
+            }
+            chunk((int) row).write((int) row & CHUNK_MASK, code, value);
+            stripe.add(code, value, (int) row);
+        }
+    }
+
+    private int codeFor(String id) {
+        int code = IDCodec.encode(id);
+        if (code != IDCodec.NO_CODE) {
+            return code;
+        }
+        synchronized (foreignIds) {
+            return foreignIds.codeFor(id);
+        }
+    }
+
+    private int codeOf(String id) {
+        int code = IDCodec.encode(id);
+        if (code != IDCodec.NO_CODE) {
+            return code;
+        }
+        synchronized (foreignIds) {
+            return foreignIds.codeOf(id);
+        }
+    }
+
+    private String idOf(int code) {
+        if (IDCodec.isPacked(code)) {
+            return IDCodec.decode(code);
+        }
+        synchronized (foreignIds) {
+            return foreignIds.idOf(code);
+        }
+    }
+
+    private IDIndex stripe(int code) {
+        int h = code * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & stripeMask];
+    }
+
+    private LogChunk chunk(int row) {
+        int index = row >>> CHUNK_SHIFT;
+        LogChunk chunk = log.get(index);
+        if (chunk == null) {
+            log.compareAndSet(index, null, new LogChunk());
+            chunk = log.get(index);
+        }
+        return chunk;
+    }
+
+    public int filterByIDAndSum(String targetId) {
+        return Math.toIntExact(sum(codeOf(targetId != null ? targetId : "Q0000")));
+    }
+
+    public int filterByIDAndSum(ID targetId) {
+        return Math.toIntExact(sum(codeOf(targetId.getValue())));
+    }
+
+    private long sum(int code) {
+        IDIndex stripe = stripe(code);
+        synchronized (stripe) {
+            return stripe.sum(code);
+        }
+    }
+
+    public int getCount(ID targetId) {
+        int code = codeOf(targetId.getValue());
+        IDIndex stripe = stripe(code);
+        synchronized (stripe) {
+            return stripe.count(code);
+        }
+    }
+
+    public ResultValue filterBy(FilterValue filter) {
+        if ("ID".equals(filter.getName())) {
+            return new ResultValue(sum(codeOf(filter.getValue().getValue())));
+        }
+        return new ResultValue(0);
+    }
+
+    public List<LabelValue> getFilteredData(String targetId) {
+        return filteredRows(codeOf(targetId != null ? targetId : "Q0000"));
+    }
+
+    public List<LabelValue> getFilteredData(ID targetId) {
+        return filteredRows(codeOf(targetId.getValue()));
+    }
+
+    private List<LabelValue> filteredRows(int code) {
+        int[] rows;
+        IDIndex stripe = stripe(code);
+        synchronized (stripe) {
+            rows = stripe.rows(code);
+        }
+        List<LabelValue> filtered = new ArrayList<>(rows.length);
+        if (rows.length > 0) {
+            String id = idOf(code);
+            for (int row : rows) {
+                filtered.add(new LabelValue(id, chunk(row).value(row & CHUNK_MASK)));
+            }
+        }
+        return filtered;
+    }
+
+    // Rows numbered so far; a row may still be in the middle of being written
+    public int getRowCount() {
+        return (int) Math.min(sequence.get(), Integer.MAX_VALUE);
+    }
+
+    // Read-only view of the rows numbered before the call, in sequence order.
+    // A row still being written is waited for when it is read.
+    public List<LabelValue> getData() {
+        int size = getRowCount();
+        return new AbstractList<LabelValue>() {
+            @Override
+            public LabelValue get(int row) {
+                if (row < 0 || row >= size) {
+                    throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+                }
+                LogChunk chunk = chunk(row);
+                int code;
+                while ((code = chunk.code(row & CHUNK_MASK)) == IDCodec.NO_CODE) {
+                    Thread.onSpinWait();
+                }
+                return new LabelValue(idOf(code), chunk.value(row & CHUNK_MASK));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public int distinctIDs() {
+        int distinct = 0;
+        for (IDIndex stripe : stripes) {
+            synchronized (stripe) {
+                distinct += stripe.distinctIDs();
+            }
+        }
+        return distinct;
+    }
+
+    // Values are written before the code; a row with a non-zero code is complete
+    private static class LogChunk {
+        final AtomicIntegerArray codes = new AtomicIntegerArray(CHUNK_SIZE);
+        final int[] values = new int[CHUNK_SIZE];
+
+        void write(int offset, int code, int value) {
+            values[offset] = value;
+            codes.set(offset, code);
+        }
+
+        int code(int offset) {
+            return codes.get(offset);
+        }
+
+        int value(int offset) {
+            return values[offset];
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.filter;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Write throughput of a ConcurrentDataFilter against a DataFilter behind
+ * one lock, for 1 to 64 writer threads adding rows for random IDs.
+ * Usage: ConcurrentFilterBenchmark [rows] [distinctIDs]   (defaults 20,000,000 and 100,000)
+ */
+public class ConcurrentFilterBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws InterruptedException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        String[] ids = new String[distinct];
+        for (int i = 0; i < distinct; i++) {
+            ids[i] = IDCodec.decode(0x30303030 + (i % 10) + (i / 10 % 10 << 8) + (i / 100 % 10 << 16)
+                    + (i / 1000 << 24));
+        }
+
+        System.out.printf("%,d rows over %,d IDs, %d processors%n", rows, distinct,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %22s %22s%n", "threads", "striped (rows/s)", "one lock (rows/s)");
+        for (int threads : THREAD_COUNTS) {
+            ConcurrentDataFilter striped = new ConcurrentDataFilter();
+            double stripedRate = run(threads, rows, ids, striped::addData);
+
+            DataFilter plain = new DataFilter();
+            double lockedRate = run(threads, rows, ids, (id, value) -> {
+                synchronized (plain) {
+                    plain.addData(id, value);
+                }
+            });
+            System.out.printf("%8d %,22.0f %,22.0f%n", threads, stripedRate, lockedRate);
+        }
+    }
+
+    private interface Writer {
+        void add(String id, int value);
+    }
+
+    private static double run(int threads, int rows, String[] ids, Writer writer) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int share = rows / threads + (t < rows % threads ? 1 : 0);
+            SplittableRandom random = new SplittableRandom(t);
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < share; i++) {
+                    writer.add(ids[random.nextInt(ids.length)], i & 1023);
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return rows / ((System.nanoTime() - begin) / 1e9);
+    }
+}
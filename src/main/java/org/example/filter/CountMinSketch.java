@@ -0,0 +1,95 @@
+package org.example.filter;
+
+/**
+ * Count-Min sketch of per-ID totals in a fixed depth x width grid of
+ * counters. An estimate is never below the true total, and with
+ * width = ceil(e / epsilon) and depth = ceil(ln(1 / delta)) it is at most
+ * epsilon * N above it (N the total weight) with probability 1 - delta.
+ * Sketches of the same shape can be merged. Weights must not be negative.
+ */
+public class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long totalWeight;
+
+    public CountMinSketch(double epsilon, double delta) {
+        this(widthFor(epsilon), depthFor(delta));
+    }
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1 || (long) width * depth > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bad sketch shape: " + width + " x " + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+    }
+
+    private static int widthFor(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Epsilon must be between 0 and 1: " + epsilon);
+        }
+        return (int) Math.ceil(Math.E / epsilon);
+    }
+
+    private static int depthFor(double delta) {
+        if (!(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("Delta must be between 0 and 1: " + delta);
+        }
+        return (int) Math.ceil(Math.log(1 / delta));
+    }
+
+    public void add(LabelValue item) {
+        add(item.getId().getValue(), item.getValue());
+    }
+
+    public void add(String id, long weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative: " + weight);
+        }
+        long key = key(id);
+        for (int row = 0; row < depth; row++) {
+            counters[row * width + column(key, row)] += weight;
+        }
+        totalWeight += weight;
+    }
+
+    public long estimate(String id) {
+        long key = key(id);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + column(key, row)]);
+        }
+        return estimate;
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Sketches differ in shape");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        totalWeight += other.totalWeight;
+    }
+
+    public int getWidth() { return width; }
+    public int getDepth() { return depth; }
+    public long getTotalWeight() { return totalWeight; }
+
+    // Packed IDs are keyed by code; others by String hash, outside the code range
+    private static long key(String id) {
+        String value = id != null ? id : "Q0000";
+        int code = IDCodec.encode(value);
+        return code != IDCodec.NO_CODE ? Integer.toUnsignedLong(code) : (1L << 32) | Integer.toUnsignedLong(value.hashCode());
+    }
+
+    private int column(long key, int row) {
+        long h = (key + (row + 1) * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) ((h >>> 1) % width);
+    }
+}
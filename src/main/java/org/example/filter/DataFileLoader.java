@@ -0,0 +1,228 @@
+package org.example.filter;
+
+import org.example.io.LineChunks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Loads ID/value data files (comma or tab separated) into a DataFilter:
+ *
+ *   ID,Value
+ *   Q1234,17
+ *   Q9999,-3
+ *
+ * The file is memory-mapped and split into line-aligned chunks that are
+ * parsed in parallel straight from the bytes (see LineChunks). IDs are
+ * checked with IDValidator.reasonCode over their bytes and ASCII IDs are
+ * packed with IDCodec, and values are parsed as ints, so an accepted row
+ * never becomes a String. Valid IDs with non-ASCII bytes are decoded to be
+ * packed or given a code by the filter. Rows with an invalid ID or a
+ * value that is not an int go to the report instead of the filter.
+ * A first line with neither a valid ID nor a number is taken as a header.
+ * Accepted rows are appended in file order.
+ */
+public class DataFileLoader {
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    private final int parallelism;
+
+    public DataFileLoader() {
+        this(ForkJoinPool.commonPool().getParallelism());
+    }
+
+    public DataFileLoader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public DataLoadResult load(DataFilter filter, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Data file too large to load: " + size + " bytes");
+            }
+            return loadBuffer(filter, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public DataLoadResult loadBytes(DataFilter filter, byte[] data) {
+        return loadBuffer(filter, ByteBuffer.wrap(data));
+    }
+
+    public DataLoadResult loadBuffer(DataFilter filter, ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = buffer.limit();
+
+        long firstLine = 1;
+        int firstLineEnd = LineChunks.lineEnd(buffer, start, end);
+        if (isHeader(buffer, start, LineChunks.trimCR(buffer, start, firstLineEnd))) {
+            start = Math.min(end, firstLineEnd + 1);
+            firstLine = 2;
+        }
+
+        List<ChunkResult> results = LineChunks.parse(buffer, start, end, firstLine, parallelism, ChunkResult::new,
+                DataFileLoader::parseRow);
+
+        // The filter is not thread-safe, so rows are appended by this thread in chunk order
+        List<RejectedID> rejected = new ArrayList<>();
+        long rowsRead = 0;
+        long rowsLoaded = 0;
+        for (ChunkResult result : results) {
+            for (int i = 0; i < result.foreignIds.size(); i++) {
+                result.codes[result.foreignRows[i]] = filter.codeFor(result.foreignIds.get(i));
+            }
+            filter.appendRows(result.codes, result.values, result.size);
+            rejected.addAll(result.rejected);
+            rowsRead += result.getRowsRead();
+            rowsLoaded += result.size;
+        }
+        return new DataLoadResult(rowsRead, rowsLoaded, rejected);
+    }
+
+    private static boolean isHeader(ByteBuffer buffer, int from, int to) {
+        int separator = separator(buffer, from, to);
+        if (separator == to) {
+            return false;
+        }
+        int idStart = LineChunks.skipSpaces(buffer, from, separator);
+        int idEnd = LineChunks.trimSpaces(buffer, idStart, separator);
+        int valueStart = LineChunks.skipSpaces(buffer, separator + 1, to);
+        int valueEnd = LineChunks.trimSpaces(buffer, valueStart, to);
+        return IDValidator.reasonCode(buffer, idStart, idEnd) != IDValidator.VALID && parseValue(buffer, valueStart, valueEnd) == NOT_A_NUMBER;
+    }
+
+    private static void parseRow(ByteBuffer buffer, int from, int to, long line, ChunkResult result) {
+        int separator = separator(buffer, from, to);
+        int idStart = LineChunks.skipSpaces(buffer, from, separator);
+        int idEnd = LineChunks.trimSpaces(buffer, idStart, separator);
+
+        byte reason = IDValidator.reasonCode(buffer, idStart, idEnd);
+        if (reason != IDValidator.VALID) {
+            result.reject(line, LineChunks.decode(buffer, idStart, idEnd), IDValidator.notes(reason));
+            return;
+        }
+        String foreignId = null;
+        int code = isAscii(buffer, idStart, idEnd) ? pack(buffer, idStart) : IDCodec.NO_CODE;
+        if (code == IDCodec.NO_CODE) {
+            // Non-ASCII IDs are decoded; they may still pack if every char is in 1-255
+            String id = LineChunks.decode(buffer, idStart, idEnd);
+            code = IDCodec.encode(id);
+            if (code == IDCodec.NO_CODE) {
+                foreignId = id;
+            }
+        }
+
+        if (separator == to) {
+            result.reject(line, LineChunks.decode(buffer, idStart, idEnd), "Value is missing");
+            return;
+        }
+        int valueStart = LineChunks.skipSpaces(buffer, separator + 1, to);
+        int valueEnd = LineChunks.trimSpaces(buffer, valueStart, to);
+        long value = parseValue(buffer, valueStart, valueEnd);
+        if (value == NOT_A_NUMBER) {
+            result.reject(line, LineChunks.decode(buffer, idStart, idEnd), "Value is not a number");
+            return;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            result.reject(line, LineChunks.decode(buffer, idStart, idEnd), "Value is out of range");
+            return;
+        }
+        result.add(code, (int) value, foreignId);
+    }
+
+    // IDCodec packing of a valid ASCII ID; NO_CODE when it holds a zero byte
+    private static int pack(ByteBuffer buffer, int from) {
+        int code = 0;
+        for (int pos = from + 1; pos < from + 5; pos++) {
+            byte b = buffer.get(pos);
+            if (b == 0) {
+                return IDCodec.NO_CODE;
+            }
+            code = (code << 8) | b;
+        }
+        return code;
+    }
+
+    private static int separator(ByteBuffer buffer, int from, int to) {
+        int pos = from;
+        while (pos < to && buffer.get(pos) != ',' && buffer.get(pos) != '\t') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isAscii(ByteBuffer buffer, int from, int to) {
+        for (int pos = from; pos < to; pos++) {
+            if (buffer.get(pos) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Optionally signed decimal; NOT_A_NUMBER for anything else.
+    // Anything longer than an int can be is returned as Long.MAX_VALUE.
+    private static long parseValue(ByteBuffer buffer, int from, int to) {
+        int pos = from;
+        boolean negative = false;
+        if (pos < to && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        if (pos == to) {
+            return NOT_A_NUMBER;
+        }
+        long value = 0;
+        for (; pos < to; pos++) {
+            byte b = buffer.get(pos);
+            if (b < '0' || b > '9') {
+                return NOT_A_NUMBER;
+            }
+            if (value <= Integer.MAX_VALUE + 1L) {
+                value = value * 10 + (b - '0');
+            }
+        }
+        if (value > Integer.MAX_VALUE + 1L) {
+            return Long.MAX_VALUE;
+        }
+        return negative ? -value : value;
+    }
+
+    private static class ChunkResult extends LineChunks.Chunk {
+        int[] codes = new int[1024];
+        int[] values = new int[1024];
+        int size;
+        // Rows whose ID cannot be packed get their code from the filter when merged
+        int[] foreignRows = new int[0];
+        final List<String> foreignIds = new ArrayList<>();
+        final List<RejectedID> rejected = new ArrayList<>();
+
+        void add(int code, int value, String foreignId) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            if (foreignId != null) {
+                if (foreignIds.size() == foreignRows.length) {
+                    foreignRows = Arrays.copyOf(foreignRows, Math.max(4, foreignRows.length * 2));
+                }
+                foreignRows[foreignIds.size()] = size;
+                foreignIds.add(foreignId);
+            }
+            codes[size] = code;
+            values[size] = value;
+            size++;
+        }
+
+        void reject(long line, String id, String reason) {
+            rejected.add(new RejectedID(line, id, reason));
+        }
+    }
+}
@@ -2,72 +2,631 @@ package org.example.filter;
 
 // DataFilter.java - Main filtering logic
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
+// Rows are stored in ID-code/value columns and indexed by ID code as they
+// are added; LabelValue objects are only created when rows are read back.
+// One thread may add rows while others read snapshots (see DataSnapshot);
+// for several writing threads use ConcurrentDataFilter.
+// Rows can be updated in place and deleted. Deleted rows are only marked
+// (tombstones) and skipped, and row numbers count the rows still present;
+// once the deleted share passes the reclaim threshold a background thread
+// copies the live rows into fresh columns and swaps them in.
 public class DataFilter {
-    private List<LabelValue> data;
+    public static final double DEFAULT_RECLAIM_THRESHOLD = 0.25;
+
+    // One shared reclaimer thread, started on demand and left to expire when idle
+    private static final ExecutorService RECLAIMER = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), task -> {
+                Thread thread = new Thread(task, "datafilter-reclaimer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private LabelValueColumns columns;
+    private IDIndex index;
+    private Tombstones tombstones = new Tombstones();
+    private double reclaimThreshold = DEFAULT_RECLAIM_THRESHOLD;
+    private Future<Integer> pendingReclaim;
+    // True from reclaimInBackground until that reclaim takes its copy of the rows
+    private boolean reclaimQueued;
+    private long reclaims;
+    // Bumped by every update and delete, so a reclaim can tell whether the
+    // rows it copied outside the lock are still current
+    private long changes;
+    // Built by the first topK call, then kept up to date as rows are added
+    private IDSumHeap topSums;
+    // Summaries of the IDs asked for so far, kept up to date as rows are added
+    private IDSummaries summaries;
+    // IDs present, so lookups of absent IDs stop before the index
+    private double bloomFalsePositiveRate = 0.01;
+    private BloomFilter presentIds;
+    // Codes still in presentIds whose rows were all deleted; a hit on one
+    // is not a false positive, and the filter is rebuilt once they pile up
+    private IntLongHashMap deletedIds = new IntLongHashMap();
+    // Expression results, dropped as rows for their IDs are added
+    private final QueryCache queryCache = new QueryCache();
 
     public DataFilter() {
-        this.data = new ArrayList<>();
+        this.columns = new LabelValueColumns();
+        this.index = new IDIndex();
+        this.presentIds = new BloomFilter(1024, bloomFalsePositiveRate);
     }
 
     public DataFilter(List<LabelValue> data) {
-        this.data = new ArrayList<>(data);
+        this();
+        setData(data);
+    }
+
+    public synchronized void setData(List<LabelValue> data) {
+        // Fresh columns and index, so views handed out earlier keep their rows
+        this.columns = new LabelValueColumns();
+        this.index = new IDIndex();
+        this.tombstones = new Tombstones();
+        this.changes++;
+        this.topSums = null;
+        this.summaries = null;
+        this.presentIds = new BloomFilter(1024, bloomFalsePositiveRate);
+        this.deletedIds = new IntLongHashMap();
+        queryCache.clear();
+        for (LabelValue item : data) {
+            addData(item);
+        }
+    }
+
+    public synchronized void addData(LabelValue item) {
+        appendRow(index.codeFor(item.getId().getValue()), item.getValue());
+    }
+
+    public synchronized void addData(String id, int value) {
+        appendRow(index.codeFor(idValue(id)), value);
+    }
+
+    private void appendRow(int code, int value) {
+        if (index.add(code, value, columns.size())) {
+            addPresentId(code);
+        }
+        columns.append(code, value);
+        if (topSums != null) {
+            topSums.add(code, value);
+        }
+        if (summaries != null) {
+            summaries.add(code, value);
+        }
+        queryCache.invalidate(index, code);
+    }
+
+    // Bulk append for loaders: codes come from codeFor or IDCodec
+    synchronized void appendRows(int[] codes, int[] values, int length) {
+        int firstRow = columns.size();
+        for (int i = 0; i < length; i++) {
+            if (index.add(codes[i], values[i], firstRow + i)) {
+                addPresentId(codes[i]);
+            }
+        }
+        if (topSums != null) {
+            for (int i = 0; i < length; i++) {
+                topSums.add(codes[i], values[i]);
+            }
+        }
+        if (summaries != null) {
+            for (int i = 0; i < length; i++) {
+                summaries.add(codes[i], values[i]);
+            }
+        }
+        columns.append(codes, values, length);
+        for (int i = 0; i < length; i++) {
+            queryCache.invalidate(index, codes[i]);
+        }
+    }
+
+    // The Bloom filter is rebuilt twice as large whenever it fills up;
+    // the rebuild reads the index, which already holds the new code
+    private void addPresentId(int code) {
+        if (deletedIds.remove(code)) {
+            return;
+        }
+        if (presentIds.getAdded() == presentIds.getCapacity()) {
+            rebuildPresentIds(presentIds.getCapacity() * 2);
+        } else {
+            presentIds.add(code);
+        }
+    }
+
+    private void rebuildPresentIds(int capacity) {
+        BloomFilter rebuilt = new BloomFilter(capacity, bloomFalsePositiveRate);
+        rebuilt.inheritMetrics(presentIds);
+        index.forEachSum((code, sum) -> rebuilt.add(code));
+        presentIds = rebuilt;
+        deletedIds = new IntLongHashMap();
+    }
+
+    private void removePresentId(int code) {
+        deletedIds.put(code, 1);
+        if (deletedIds.size() * 2 > presentIds.getAdded()) {
+            rebuildPresentIds(presentIds.getCapacity());
+        }
+    }
+
+    public synchronized void setBloomFalsePositiveRate(double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        this.bloomFalsePositiveRate = falsePositiveRate;
+        rebuildPresentIds(Math.max(1024, index.distinctIDs() * 2));
+    }
+
+    // Hit, negative and false-positive counts of the absent-ID checks
+    public synchronized BloomFilter getBloomFilter() {
+        return presentIds;
+    }
+
+    // False when the code is certainly not in the index
+    private boolean mayBePresent(int code) {
+        if (code == IDCodec.NO_CODE || !presentIds.mightContain(code)) {
+            return false;
+        }
+        if (!index.contains(code)) {
+            if (!deletedIds.containsKey(code)) {
+                presentIds.recordFalsePositive();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    // Hit and invalidation counts of the expression result cache, and its size
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    // Codes stay valid across reclaims, which keep the ID dictionary
+    synchronized int codeFor(String id) {
+        return index.codeFor(id);
+    }
+
+    // Sets the value of a row in place and returns the old one; the ID's sum
+    // and the other derived totals are adjusted by the difference
+    public synchronized int updateRow(int row, int value) {
+        int position = position(row);
+        int code = columns.code(position);
+        int old = columns.value(position);
+        long delta = (long) value - old;
+        columns.setValue(position, value);
+        index.update(code, delta);
+        if (topSums != null) {
+            topSums.add(code, delta);
+        }
+        if (summaries != null) {
+            summaries.clear(code);
+        }
+        changes++;
+        queryCache.invalidate(index, code);
+        return old;
+    }
+
+    // Deletes a row and returns it; the rows after it move down by one
+    public synchronized LabelValue deleteRow(int row) {
+        int position = position(row);
+        int code = columns.code(position);
+        int value = columns.value(position);
+        tombstones.markDead(position);
+        boolean idGone = index.remove(code, value, position);
+        if (idGone) {
+            removePresentId(code);
+        }
+        if (topSums != null) {
+            if (idGone) {
+                // The heap cannot drop an ID, so it is rebuilt by the next topK
+                topSums = null;
+            } else {
+                topSums.add(code, -value);
+            }
+        }
+        LabelValue deleted = new LabelValue(index.idOf(code), value);
+        deleted(code);
+        return deleted;
+    }
+
+    // Deletes every row of the ID; returns how many there were
+    public synchronized int deleteID(String id) {
+        return deleteRowsOf(index.codeOf(idValue(id)));
+    }
+
+    public synchronized int deleteID(ID id) {
+        return deleteRowsOf(index.codeOf(id.getValue()));
+    }
+
+    private int deleteRowsOf(int code) {
+        if (!mayBePresent(code)) {
+            return 0;
+        }
+        int[] rows = index.rows(code);
+        for (int row : rows) {
+            tombstones.markDead(row);
+        }
+        index.removeAll(code);
+        removePresentId(code);
+        topSums = null;
+        deleted(code);
+        return rows.length;
+    }
+
+    private void deleted(int code) {
+        if (summaries != null) {
+            summaries.clear(code);
+        }
+        changes++;
+        queryCache.invalidate(index, code);
+        if (tombstones.dead() >= reclaimThreshold * columns.size()) {
+            reclaimInBackground();
+        }
+    }
+
+    // Column position of the row-th row not deleted
+    private int position(int row) {
+        int size = columns.size() - tombstones.dead();
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return tombstones.physicalRow(row, columns.size());
+    }
+
+    public synchronized int getDeletedRowCount() {
+        return tombstones.dead();
+    }
+
+    // Deleted rows as a share of the rows held, deleted or not
+    public synchronized double getTombstoneRatio() {
+        return columns.size() == 0 ? 0 : tombstones.dead() / (double) columns.size();
+    }
+
+    // Deleted share of the rows at which a delete starts a background reclaim;
+    // 1 leaves reclaiming to reclaim() and reclaimInBackground()
+    public synchronized void setReclaimThreshold(double threshold) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("Reclaim threshold must be above 0 and at most 1: " + threshold);
+        }
+        this.reclaimThreshold = threshold;
     }
 
-    public void setData(List<LabelValue> data) {
-        this.data = new ArrayList<>(data);
+    public synchronized double getReclaimThreshold() {
+        return reclaimThreshold;
     }
 
-    public void addData(LabelValue item) {
-        this.data.add(item);
+    // Completed reclaims that dropped at least one row
+    public synchronized long getReclaimCount() {
+        return reclaims;
     }
 
-    public void addData(String id, int value) {
-        this.data.add(new LabelValue(id, value));
+    // Starts a reclaim on the shared reclaimer thread, or returns the one
+    // already queued. A reclaim that has started copying is not reused: it
+    // may swap its result in before rows deleted now, so a new one is queued
+    public synchronized Future<Integer> reclaimInBackground() {
+        if (!reclaimQueued) {
+            reclaimQueued = true;
+            pendingReclaim = RECLAIMER.submit(this::reclaim);
+        }
+        return pendingReclaim;
+    }
+
+    // Drops the deleted rows from the columns and returns how many there were.
+    // The live rows are copied without the lock; rows appended meanwhile are
+    // copied over under the lock, and if rows were updated or deleted meanwhile
+    // the copy is redone under the lock. Row numbers, sums, summaries and cached results
+    // are unchanged; snapshots taken before keep the old columns.
+    public int reclaim() {
+        LabelValueColumns copiedColumns;
+        Tombstones copiedTombstones;
+        IDIndex copiedIndex;
+        long copiedChanges;
+        synchronized (this) {
+            reclaimQueued = false;
+            if (tombstones.dead() == 0) {
+                return 0;
+            }
+            copiedColumns = columns.freeze();
+            copiedTombstones = tombstones.freeze();
+            copiedIndex = index;
+            copiedChanges = changes;
+        }
+        Compacted compacted = new Compacted(copiedIndex);
+        compacted.copyLiveRows(copiedColumns, copiedTombstones, 0, copiedColumns.size());
+        synchronized (this) {
+            int dropped = tombstones.dead();
+            if (index != copiedIndex || changes != copiedChanges) {
+                if (dropped == 0) {
+                    return 0;
+                }
+                compacted = new Compacted(index);
+                compacted.copyLiveRows(columns, tombstones, 0, columns.size());
+            } else {
+                compacted.copyLiveRows(columns, Tombstones.NONE, copiedColumns.size(), columns.size());
+            }
+            columns = compacted.columns;
+            index = compacted.index;
+            tombstones = new Tombstones();
+            topSums = null;
+            rebuildPresentIds(Math.max(1024, index.distinctIDs() * 2));
+            changes++;
+            reclaims++;
+            return dropped;
+        }
+    }
+
+    // Columns and index holding only live rows; the index shares the
+    // dictionary of the one it replaces, so codes need no remapping
+    private static class Compacted {
+        final LabelValueColumns columns = new LabelValueColumns();
+        final IDIndex index;
+
+        Compacted(IDIndex replacing) {
+            this.index = replacing.withSameCodes();
+        }
+
+        void copyLiveRows(LabelValueColumns source, Tombstones deleted, int from, int to) {
+            int[] codes = new int[LabelValueColumns.CHUNK_SIZE];
+            int[] values = new int[LabelValueColumns.CHUNK_SIZE];
+            int row = from;
+            while (row < to) {
+                int chunk = row >>> LabelValueColumns.CHUNK_SHIFT;
+                int chunkEnd = Math.min(to, (chunk + 1) << LabelValueColumns.CHUNK_SHIFT);
+                int[] chunkCodes = source.codeChunk(chunk);
+                int[] chunkValues = source.valueChunk(chunk);
+                long[] dead = deleted.chunkBits(chunk);
+                int firstRow = columns.size();
+                int length = 0;
+                for (; row < chunkEnd; row++) {
+                    int offset = row & (LabelValueColumns.CHUNK_SIZE - 1);
+                    if (dead == null || (dead[offset >>> 6] & (1L << offset)) == 0) {
+                        codes[length] = chunkCodes[offset];
+                        values[length] = chunkValues[offset];
+                        index.add(codes[length], values[length], firstRow + length);
+                        length++;
+                    }
+                }
+                columns.append(codes, values, length);
+            }
+        }
     }
 
-    public List<LabelValue> getData() {
-        return new ArrayList<>(data);
+    // Read-only view of the rows present now; each row is materialized when it is read
+    public synchronized List<LabelValue> getData() {
+        return snapshot().asList();
     }
 
-    // Filter by ID and return sum
-    public int filterByIDAndSum(String targetId) {
-        ID target = new ID(targetId);
-        return data.stream()
-                .filter(item -> item.getId().equals(target))
-                .mapToInt(LabelValue::getValue)
-                .sum();
+    // Zero-copy view of the rows present now, with cursors, streams and pages
+    public synchronized DataSnapshot snapshot() {
+        return new DataSnapshot(columns.freeze(), index, tombstones.freeze());
+    }
+
+    public synchronized int getRowCount() {
+        return columns.size() - tombstones.dead();
+    }
+
+    // Sums are kept as longs; a sum outside the int range throws
+    // ArithmeticException (sum(FilterExpression) gives the long)
+    public synchronized int filterByIDAndSum(String targetId) {
+        return sumOf(index.codeOf(idValue(targetId)));
     }
 
     // Filter by ID and return sum (using ID object)
-    public int filterByIDAndSum(ID targetId) {
-        return data.stream()
-                .filter(item -> item.getId().equals(targetId))
-                .mapToInt(LabelValue::getValue)
-                .sum();
+    public synchronized int filterByIDAndSum(ID targetId) {
+        return sumOf(index.codeOf(targetId.getValue()));
+    }
+
+    private int sumOf(int code) {
+        return mayBePresent(code) ? Math.toIntExact(index.sum(code)) : 0;
+    }
+
+    // Same default as new ID(null)
+    private static String idValue(String id) {
+        return id != null ? id : "Q0000";
     }
 
     // Filter using FilterValue object and return ResultValue
-    public ResultValue filterBy(FilterValue filter) {
+    public synchronized ResultValue filterBy(FilterValue filter) {
+        // Same expressions as the FilterExpression API, so both share cached results
         if ("ID".equals(filter.getName())) {
-            int sum = filterByIDAndSum(filter.getValue());
-            return new ResultValue(sum);
+            return filterBy(FilterExpression.idEquals(filter.getValue().getValue()));
+        }
+        if ("IDPrefix".equals(filter.getName())) {
+            return filterBy(FilterExpression.idPrefix(filter.getValue().getValue()));
         }
         return new ResultValue(0);
     }
 
+    // Filter expressions; getLongSum gives sums outside the int range
+    public synchronized ResultValue filterBy(FilterExpression filter) {
+        return new ResultValue(sum(filter));
+    }
+
+    public synchronized long sum(FilterExpression filter) {
+        return queryCache.lookup("sum", filter, () -> FilterPlan.of(columns, index, tombstones, filter).sum());
+    }
+
+    public synchronized int count(FilterExpression filter) {
+        return queryCache.lookup("count", filter, () -> FilterPlan.of(columns, index, tombstones, filter).count());
+    }
+
+    // Unmodifiable; repeated calls share one list until a matching row is added.
+    // The list holds the IDs and values and creates a new LabelValue on every
+    // read, so a caller changing a row it got cannot change the cached result
+    public synchronized List<LabelValue> getFilteredData(FilterExpression filter) {
+        return queryCache.lookup("rows", filter, () -> {
+            int[] rows = FilterPlan.of(columns, index, tombstones, filter).rows();
+            String[] ids = new String[rows.length];
+            int[] values = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                ids[i] = index.idOf(columns.code(rows[i]));
+                values[i] = columns.value(rows[i]);
+            }
+            return new RowList(ids, values);
+        });
+    }
+
+    private static final class RowList extends AbstractList<LabelValue> implements RandomAccess {
+        private final String[] ids;
+        private final int[] values;
+
+        RowList(String[] ids, int[] values) {
+            this.ids = ids;
+            this.values = values;
+        }
+
+        @Override
+        public LabelValue get(int index) {
+            return new LabelValue(ids[index], values[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    // Sum of the IDs from fromId to toId in string order, inclusive, in O(log n)
+    public synchronized long sumRange(String fromId, String toId) {
+        return sum(FilterExpression.idRange(fromId, toId));
+    }
+
+    public synchronized int countRange(String fromId, String toId) {
+        return count(FilterExpression.idRange(fromId, toId));
+    }
+
+    // Rows of the IDs from fromId to toId, ordered by ID and then by row
+    public synchronized List<LabelValue> getDataInRange(String fromId, String toId) {
+        if (fromId == null || toId == null || fromId.compareTo(toId) > 0) {
+            throw new IllegalArgumentException("Empty ID range: " + fromId + " to " + toId);
+        }
+        SortedIDIndex sorted = index.sorted();
+        int[] codes = sorted.codes(sorted.lowerBound(fromId), sorted.upperBound(toId));
+        List<LabelValue> rows = new ArrayList<>();
+        for (int code : codes) {
+            String id = index.idOf(code);
+            for (int row : index.rows(code)) {
+                rows.add(new LabelValue(id, columns.value(row)));
+            }
+        }
+        return rows;
+    }
+
+    // Sum, count, min and max for every ID in one parallel pass over the columns.
+    // Each worker aggregates whole chunks into its own accumulator; the partial
+    // accumulators are merged at the end. Ordered by ID.
+    public synchronized Map<ID, IDTotals> groupByID() {
+        LabelValueColumns snapshot = columns;
+        IDIndex ids = index;
+        Tombstones deleted = tombstones;
+        int chunks = snapshot.chunkCount();
+        IDTotalsAccumulator totals = IntStream.range(0, chunks).parallel()
+                .collect(IDTotalsAccumulator::new,
+                        (acc, chunk) -> acc.addChunk(snapshot.codeChunk(chunk), snapshot.valueChunk(chunk),
+                                snapshot.chunkLength(chunk), deleted.chunkBits(chunk)),
+                        IDTotalsAccumulator::merge);
+
+        List<IDTotals> results = new ArrayList<>(totals.size());
+        for (int slot = 0; slot < totals.size(); slot++) {
+            results.add(new IDTotals(new ID(ids.idOf(totals.code(slot))), totals.sum(slot),
+                    totals.count(slot), totals.min(slot), totals.max(slot)));
+        }
+        results.sort(Comparator.comparing(totalsForId -> totalsForId.getId().getValue()));
+        Map<ID, IDTotals> grouped = new LinkedHashMap<>();
+        for (IDTotals result : results) {
+            grouped.put(result.getId(), result);
+        }
+        return grouped;
+    }
+
+    // The k IDs with the largest sums, largest first; equal sums in ID code order
+    public synchronized List<HeavyHitter> topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative: " + k);
+        }
+        if (topSums == null) {
+            IDSumHeap heap = new IDSumHeap();
+            index.forEachSum(heap::add);
+            topSums = heap;
+        }
+        List<HeavyHitter> top = new ArrayList<>();
+        for (int code : topSums.topCodes(k)) {
+            top.add(new HeavyHitter(new ID(index.idOf(code)), topSums.sum(code), 0));
+        }
+        return top;
+    }
+
+    // Sum, count, min, max, distinct estimate and quantiles of the ID's
+    // values; a copy, so later rows do not change it
+    public synchronized ValueSummary summarize(String id) {
+        return summaryOf(index.codeOf(idValue(id))).copy();
+    }
+
+    public synchronized ValueSummary summarize(ID id) {
+        return summaryOf(index.codeOf(id.getValue())).copy();
+    }
+
+    // Summary of the matching rows: the per-ID summaries merged when the
+    // expression depends on IDs alone, otherwise built from the matching rows
+    public synchronized ValueSummary summarize(FilterExpression filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter expression cannot be null");
+        }
+        ValueSummary summary = new ValueSummary();
+        if (filter.isIdSet()) {
+            for (int code : filter.idCodes(index)) {
+                summary.merge(summaryOf(code));
+            }
+            return summary;
+        }
+        for (int row : FilterPlan.of(columns, index, tombstones, filter).rows()) {
+            summary.add(columns.value(row));
+        }
+        return summary;
+    }
+
+    // An ID's summary is built from its own rows when first asked for, and
+    // again after an update or delete cleared it
+    private ValueSummary summaryOf(int code) {
+        if (!mayBePresent(code)) {
+            return new ValueSummary();
+        }
+        if (summaries == null) {
+            summaries = new IDSummaries();
+        }
+        ValueSummary summary = summaries.get(code);
+        if (summary == null) {
+            summary = new ValueSummary();
+            for (int row : index.rows(code)) {
+                summary.add(columns.value(row));
+            }
+            summaries.put(code, summary);
+        }
+        return summary;
+    }
+
     // Get filtered data (returns the actual items, not just sum)
-    public List<LabelValue> getFilteredData(String targetId) {
-        ID target = new ID(targetId);
-        return data.stream()
-                .filter(item -> item.getId().equals(target))
-                .collect(Collectors.toList());
+    public synchronized List<LabelValue> getFilteredData(String targetId) {
+        return filteredRows(index.codeOf(idValue(targetId)));
     }
 
-    public List<LabelValue> getFilteredData(ID targetId) {
-        return data.stream()
-                .filter(item -> item.getId().equals(targetId))
-                .collect(Collectors.toList());
+    public synchronized List<LabelValue> getFilteredData(ID targetId) {
+        return filteredRows(index.codeOf(targetId.getValue()));
+    }
+
+    private List<LabelValue> filteredRows(int code) {
+        if (!mayBePresent(code)) {
+            return new ArrayList<>();
+        }
+        int[] rows = index.rows(code);
+        List<LabelValue> filtered = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            filtered.add(new LabelValue(index.idOf(code), columns.value(row)));
+        }
+        return filtered;
     }
 }
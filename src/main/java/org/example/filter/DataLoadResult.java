@@ -0,0 +1,36 @@
+package org.example.filter;
+
+import java.util.Collections;
+import java.util.List;
+
+// DataLoadResult.java - Row counts plus the rejected rows for one data file load
+public class DataLoadResult {
+    private final long rowsRead;
+    private final long rowsLoaded;
+    private final List<RejectedID> rejectedRows;
+
+    public DataLoadResult(long rowsRead, long rowsLoaded, List<RejectedID> rejectedRows) {
+        this.rowsRead = rowsRead;
+        this.rowsLoaded = rowsLoaded;
+        this.rejectedRows = Collections.unmodifiableList(rejectedRows);
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getRowsLoaded() { return rowsLoaded; }
+    public List<RejectedID> getRejectedRows() { return rejectedRows; }
+
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Rows read: %d, rows loaded: %d, rows rejected: %d%n",
+                rowsRead, rowsLoaded, rejectedRows.size()));
+        for (RejectedID row : rejectedRows) {
+            sb.append(String.format("  line %d, ID '%s': %s%n", row.getLine(), row.getId(), row.getReason()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DataLoadResult(rows=%d, loaded=%d, rejected=%d)", rowsRead, rowsLoaded, rejectedRows.size());
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.filter;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only view of the rows a DataFilter held when the snapshot was taken.
+ * Rows are not copied: the snapshot reads frozen copies of the filter's
+ * columns and deleted-row marks, which share their chunks with the
+ * filter; the filter copies a chunk before it rewrites a value in it.
+ * Rows deleted before the snapshot are skipped, so row numbers count
+ * live rows only. LabelValues are built as rows are read; cursors read
+ * the columns without building anything.
+ *
+ * Consistency: one thread may go on adding rows while any number of
+ * threads read snapshots. A snapshot sees exactly the rows whose add
+ * finished before it was taken, and never a later one. setData leaves
+ * earlier snapshots on the old rows. Adding from several threads at
+ * once is not supported; use ConcurrentDataFilter for that.
+ */
+public class DataSnapshot implements Iterable<LabelValue> {
+    private final LabelValueColumns columns;
+    private final IDIndex index;
+    private final Tombstones tombstones;
+    // Positions in the columns, and live rows among them
+    private final int positions;
+    private final int size;
+
+    DataSnapshot(LabelValueColumns columns, IDIndex index, Tombstones tombstones) {
+        this.columns = columns;
+        this.index = index;
+        this.tombstones = tombstones;
+        this.positions = columns.size();
+        this.size = positions - tombstones.dead();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getValue(int row) {
+        return columns.value(position(row));
+    }
+
+    public String getId(int row) {
+        return index.idOf(columns.code(position(row)));
+    }
+
+    public LabelValue get(int row) {
+        int position = position(row);
+        return new LabelValue(index.idOf(columns.code(position)), columns.value(position));
+    }
+
+    public RowCursor cursor() {
+        return new RowCursor(columns, index, tombstones, 0, positions, 0);
+    }
+
+    // Rows from (inclusive) to (exclusive)
+    public RowCursor cursor(int from, int to) {
+        checkRange(from, to);
+        return new RowCursor(columns, index, tombstones, startPosition(from), startPosition(to), from);
+    }
+
+    private int position(int row) {
+        checkRow(row);
+        return tombstones.physicalRow(row, positions);
+    }
+
+    // Position of the row, or the end of the columns for row size()
+    private int startPosition(int row) {
+        return row == size ? positions : tombstones.physicalRow(row, positions);
+    }
+
+    @Override
+    public Iterator<LabelValue> iterator() {
+        return new Iterator<LabelValue>() {
+            private final RowCursor cursor = cursor();
+            private boolean ready = cursor.next();
+
+            @Override
+            public boolean hasNext() {
+                return ready;
+            }
+
+            @Override
+            public LabelValue next() {
+                if (!ready) {
+                    throw new NoSuchElementException();
+                }
+                LabelValue row = cursor.toLabelValue();
+                ready = cursor.next();
+                return row;
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<LabelValue> spliterator() {
+        return new RowSpliterator(0, size);
+    }
+
+    public Stream<LabelValue> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<LabelValue> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    // Up to limit rows starting at offset; an offset at or past the end gives an empty page
+    public List<LabelValue> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative: " + offset + ", " + limit);
+        }
+        int from = Math.min(offset, size);
+        return asList().subList(from, (int) Math.min((long) from + limit, size));
+    }
+
+    public List<LabelValue> asList() {
+        return new AbstractList<LabelValue>() {
+            @Override
+            public LabelValue get(int row) {
+                if (row < 0 || row >= size) {
+                    throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+                }
+                return DataSnapshot.this.get(row);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Spliterator<LabelValue> spliterator() {
+                return DataSnapshot.this.spliterator();
+            }
+        };
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " of " + size);
+        }
+    }
+
+    // Splits by row range, so parallel streams hand each worker whole runs of rows
+    private class RowSpliterator implements Spliterator<LabelValue> {
+        private int row;
+        private final int end;
+
+        RowSpliterator(int row, int end) {
+            this.row = row;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super LabelValue> action) {
+            if (row >= end) {
+                return false;
+            }
+            action.accept(get(row++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super LabelValue> action) {
+            if (row >= end) {
+                return;
+            }
+            RowCursor cursor = cursor(row, end);
+            while (cursor.next()) {
+                action.accept(cursor.toLabelValue());
+            }
+            row = end;
+        }
+
+        @Override
+        public Spliterator<LabelValue> trySplit() {
+            int mid = (row + end) >>> 1;
+            if (mid - row < 1024) {
+                return null;
+            }
+            Spliterator<LabelValue> prefix = new RowSpliterator(row, mid);
+            row = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - row;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
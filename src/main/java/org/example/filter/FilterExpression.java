@@ -0,0 +1,850 @@
+package org.example.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Filter over DataFilter rows, built from ID and value conditions:
+ *
+ *   and(idPrefix("Q12"), valueRange(0, 100), not(idIn("Q1200", "Q1201")))
+ *
+ * ID ranges and prefixes follow ID string order and are looked up in the
+ * index's sorted view (see SortedIDIndex).
+ *
+ * DataFilter compiles an expression against its ID index into a RowFilter
+ * and answers it through the index when the expression names its IDs
+ * (see FilterPlan), otherwise by scanning the columns chunk by chunk.
+ */
+public abstract class FilterExpression {
+
+    public static FilterExpression idEquals(String id) {
+        return new IdIn(Arrays.asList(id));
+    }
+
+    public static FilterExpression idIn(String... ids) {
+        return new IdIn(Arrays.asList(ids));
+    }
+
+    public static FilterExpression idIn(Collection<String> ids) {
+        return new IdIn(ids);
+    }
+
+    public static FilterExpression idPrefix(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null");
+        }
+        return new IdPrefix(prefix);
+    }
+
+    // IDs from fromId to toId in string order, inclusive at both ends
+    public static FilterExpression idRange(String fromId, String toId) {
+        if (fromId == null || toId == null) {
+            throw new IllegalArgumentException("ID range ends cannot be null");
+        }
+        if (fromId.compareTo(toId) > 0) {
+            throw new IllegalArgumentException("Empty ID range: " + fromId + " to " + toId);
+        }
+        return new IdRange(fromId, toId);
+    }
+
+    // Inclusive at both ends
+    public static FilterExpression valueRange(int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Empty value range: " + min + " to " + max);
+        }
+        return new ValueRange(min, max);
+    }
+
+    public static FilterExpression not(FilterExpression operand) {
+        return new Not(operand);
+    }
+
+    public static FilterExpression and(FilterExpression... operands) {
+        return new And(operands(operands));
+    }
+
+    public static FilterExpression or(FilterExpression... operands) {
+        return new Or(operands(operands));
+    }
+
+    private static List<FilterExpression> operands(FilterExpression[] operands) {
+        if (operands.length == 0) {
+            throw new IllegalArgumentException("At least one operand is needed");
+        }
+        for (FilterExpression operand : operands) {
+            if (operand == null) {
+                throw new IllegalArgumentException("Operand cannot be null");
+            }
+        }
+        return Arrays.asList(operands.clone());
+    }
+
+    abstract RowFilter compile(IDIndex index);
+
+    // Codes of the only IDs that can match, or null when the expression does not limit the IDs
+    abstract int[] idCodes(IDIndex index);
+
+    // True when matching depends on nothing but the ID codes from idCodes
+    abstract boolean isIdSet();
+
+    // False when no row with this ID can match, whatever its value; used to
+    // drop only the cached results an added row can change
+    abstract boolean mayMatchId(String id);
+
+    // The only IDs that can match, sorted, or null when they are not named
+    List<String> namedIds() {
+        return null;
+    }
+
+    // Positions [from, to) in index.sorted() of the matching IDs, when the
+    // expression is one ID range or prefix; null otherwise
+    int[] idSpan(IDIndex index) {
+        return null;
+    }
+
+    // Wire form for PartitionedDataFilter: a tag byte per node, then its fields
+    abstract void writeTo(DataOutput out) throws IOException;
+
+    // The wire form as a string, one char per byte, for cache keys: IDs are
+    // length-prefixed, so unlike toString it is never the same for two
+    // different expressions. Null when an ID is too long for the wire form
+    String canonicalKey() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            writeTo(new DataOutputStream(bytes));
+        } catch (UTFDataFormatException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory cannot fail", e);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    static FilterExpression readFrom(DataInput in) throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+            case IdIn.TAG: {
+                List<String> ids = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    ids.add(in.readUTF());
+                }
+                return idIn(ids);
+            }
+            case IdPrefix.TAG:
+                return idPrefix(in.readUTF());
+            case IdRange.TAG:
+                return idRange(in.readUTF(), in.readUTF());
+            case ValueRange.TAG:
+                return valueRange(in.readInt(), in.readInt());
+            case Not.TAG:
+                return not(readFrom(in));
+            case And.TAG:
+                return new And(readOperands(in));
+            case Or.TAG:
+                return new Or(readOperands(in));
+            default:
+                throw new IOException("Unknown filter expression tag: " + tag);
+        }
+    }
+
+    private static List<FilterExpression> readOperands(DataInput in) throws IOException {
+        List<FilterExpression> operands = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            operands.add(readFrom(in));
+        }
+        return operands;
+    }
+
+    private static void writeOperands(DataOutput out, int tag, List<FilterExpression> operands) throws IOException {
+        out.writeByte(tag);
+        out.writeInt(operands.size());
+        for (FilterExpression operand : operands) {
+            operand.writeTo(out);
+        }
+    }
+
+    // ---- Nodes ----
+
+    private static final class IdIn extends FilterExpression {
+        static final int TAG = 1;
+
+        private final List<String> ids;
+
+        IdIn(Collection<String> ids) {
+            List<String> values = new ArrayList<>(new TreeSet<>(valuesOf(ids)));
+            this.ids = values;
+        }
+
+        private static List<String> valuesOf(Collection<String> ids) {
+            List<String> values = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                values.add(id != null ? id : "Q0000");
+            }
+            return values;
+        }
+
+        @Override
+        int[] idCodes(IDIndex index) {
+            int[] codes = new int[ids.size()];
+            int count = 0;
+            for (String id : ids) {
+                int code = index.codeOf(id);
+                if (code != IDCodec.NO_CODE) {
+                    codes[count++] = code;
+                }
+            }
+            return Arrays.copyOf(codes, count);
+        }
+
+        @Override
+        boolean mayMatchId(String id) {
+            return Collections.binarySearch(ids, id) >= 0;
+        }
+
+        @Override
+        List<String> namedIds() {
+            return ids;
+        }
+
+        @Override
+        boolean isIdSet() {
+            return true;
+        }
+
+        @Override
+        RowFilter compile(IDIndex index) {
+            return codeFilter(idCodes(index));
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(TAG);
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                out.writeUTF(id);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return ids.size() == 1 ? "id = " + ids.get(0) : "id in " + ids;
+        }
+    }
+
+    private static final class IdPrefix extends FilterExpression {
+        static final int TAG = 2;
+
+        private final String prefix;
+
+        IdPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        int[] idSpan(IDIndex index) {
+            SortedIDIndex sorted = index.sorted();
+            return new int[] {sorted.lowerBound(prefix), sorted.prefixEnd(prefix)};
+        }
+
+        @Override
+        int[] idCodes(IDIndex index) {
+            int[] span = idSpan(index);
+            return index.sorted().codes(span[0], span[1]);
+        }
+
+        @Override
+        boolean mayMatchId(String id) {
+            return id.startsWith(prefix);
+        }
+
+        @Override
+        boolean isIdSet() {
+            return true;
+        }
+
+        @Override
+        RowFilter compile(IDIndex index) {
+            // Packed IDs with the prefix form one unsigned code range
+            long low = 1;
+            long high = 0;
+            if (prefix.length() <= 5 && (prefix.isEmpty() || prefix.charAt(0) == 'Q')) {
+                low = 0;
+                high = 0;
+                boolean packable = true;
+                for (int i = 1; i < 5; i++) {
+                    int c = i < prefix.length() ? prefix.charAt(i) : -1;
+                    if (c == 0 || c > 0xFF) {
+                        packable = false;
+                    }
+                    low = (low << 8) | (c < 0 ? 0x01 : c);
+                    high = (high << 8) | (c < 0 ? 0xFF : c);
+                }
+                if (!packable) {
+                    low = 1;
+                    high = 0;
+                }
+            }
+            // IDs that cannot be packed are checked one by one up front
+            IntLongHashMap foreign = new IntLongHashMap();
+            for (int code = 1; code <= index.foreignIDCount(); code++) {
+                if (index.idOf(code).startsWith(prefix)) {
+                    foreign.put(code, 1);
+                }
+            }
+            return new CodeRange(low, high, foreign);
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(TAG);
+            out.writeUTF(prefix);
+        }
+
+        @Override
+        public String toString() {
+            return "id prefix '" + prefix + "'";
+        }
+    }
+
+    private static final class IdRange extends FilterExpression {
+        static final int TAG = 3;
+
+        private final String fromId;
+        private final String toId;
+
+        IdRange(String fromId, String toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        int[] idSpan(IDIndex index) {
+            SortedIDIndex sorted = index.sorted();
+            return new int[] {sorted.lowerBound(fromId), sorted.upperBound(toId)};
+        }
+
+        @Override
+        int[] idCodes(IDIndex index) {
+            int[] span = idSpan(index);
+            return index.sorted().codes(span[0], span[1]);
+        }
+
+        @Override
+        boolean mayMatchId(String id) {
+            return id.compareTo(fromId) >= 0 && id.compareTo(toId) <= 0;
+        }
+
+        @Override
+        boolean isIdSet() {
+            return true;
+        }
+
+        @Override
+        RowFilter compile(IDIndex index) {
+            // The range's packed codes are contiguous in code order, so only
+            // the IDs that cannot be packed need a set
+            long low = 1;
+            long high = 0;
+            IntLongHashMap foreign = new IntLongHashMap();
+            for (int code : idCodes(index)) {
+                if (!IDCodec.isPacked(code)) {
+                    foreign.put(code, 1);
+                } else if (low > high) {
+                    low = high = Integer.toUnsignedLong(code);
+                } else {
+                    high = Integer.toUnsignedLong(code);
+                }
+            }
+            return new CodeRange(low, high, foreign);
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(TAG);
+            out.writeUTF(fromId);
+            out.writeUTF(toId);
+        }
+
+        @Override
+        public String toString() {
+            return "id between " + fromId + " and " + toId;
+        }
+    }
+
+    private static final class ValueRange extends FilterExpression {
+        static final int TAG = 4;
+
+        private final int min;
+        private final int max;
+
+        ValueRange(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        int[] idCodes(IDIndex index) {
+            return null;
+        }
+
+        @Override
+        boolean mayMatchId(String id) {
+            return true;
+        }
+
+        @Override
+        boolean isIdSet() {
+            return false;
+        }
+
+        @Override
+        RowFilter compile(IDIndex index) {
+            int low = min;
+            long span = (long) max - min;
+            return new RowFilter() {
+                @Override
+                public boolean test(int code, int value) {
+                    return Integer.toUnsignedLong(value - low) <= span;
+                }
+
+                @Override
+                public void evaluate(int[] codes, int[] values, int length, long[] bits) {
+                    for (int w = 0, base = 0; base < length; w++, base += 64) {
+                        int end = Math.min(64, length - base);
+                        long word = 0;
+                        for (int b = 0; b < end; b++) {
+                            word |= inRange(values[base + b] - low, span) << b;
+                        }
+                        bits[w] = word;
+                    }
+                }
+            };
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(TAG);
+            out.writeInt(min);
+            out.writeInt(max);
+        }
+
+        @Override
+        public String toString() {
+            return "value between " + min + " and " + max;
+        }
+    }
+
+    private static final class Not extends FilterExpression {
+        static final int TAG = 5;
+
+        private final FilterExpression operand;
+
+        Not(FilterExpression operand) {
+            if (operand == null) {
+                throw new IllegalArgumentException("Operand cannot be null");
+            }
+            this.operand = operand;
+        }
+
+        @Override
+        int[] idCodes(IDIndex index) {
+            return null;
+        }
+
+        // Rows of any ID may fall outside the operand
+        @Override
+        boolean mayMatchId(String id) {
+            return true;
+        }
+
+        @Override
+        boolean isIdSet() {
+            return false;
+        }
+
+        @Override
+        RowFilter compile(IDIndex index) {
+            RowFilter inner = operand.compile(index);
+            return new RowFilter() {
+                @Override
+                public boolean test(int code, int value) {
+                    return !inner.test(code, value);
+                }
+
+                @Override
+                public void evaluate(int[] codes, int[] values, int length, long[] bits) {
+                    inner.evaluate(codes, values, length, bits);
+                    int words = (length + 63) >>> 6;
+                    for (int w = 0; w < words; w++) {
+                        bits[w] = ~bits[w];
+                    }
+                    clearTail(bits, length);
+                }
+            };
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            out.writeByte(TAG);
+            operand.writeTo(out);
+        }
+
+        @Override
+        public String toString() {
+            return "not (" + operand + ")";
+        }
+    }
+
+    private static final class And extends FilterExpression {
+        static final int TAG = 6;
+
+        private final List<FilterExpression> operands;
+
+        And(List<FilterExpression> operands) {
+            this.operands = operands;
+        }
+
+        // The intersection of the operands that limit the IDs
+        @Override
+        int[] idCodes(IDIndex index) {
+            IntLongHashMap codes = null;
+            for (FilterExpression operand : operands) {
+                int[] operandCodes = operand.idCodes(index);
+                if (operandCodes == null) {
+                    continue;
+                }
+                IntLongHashMap next = new IntLongHashMap(operandCodes.length);
+                for (int code : operandCodes) {
+                    if (codes == null || codes.containsKey(code)) {
+                        next.put(code, 1);
+                    }
+                }
+                codes = next;
+            }
+            return codes == null ? null : codes.keys();
+        }
+
+        @Override
+        boolean mayMatchId(String id) {
+            for (FilterExpression operand : operands) {
+                if (!operand.mayMatchId(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // The fewest IDs any operand names is enough
+        @Override
+        List<String> namedIds() {
+            List<String> fewest = null;
+            for (FilterExpression operand : operands) {
+                List<String> ids = operand.namedIds();
+                if (ids != null && (fewest == null || ids.size() < fewest.size())) {
+                    fewest = ids;
+                }
+            }
+            return fewest;
+        }
+
+        @Override
+        boolean isIdSet() {
+            for (FilterExpression operand : operands) {
+                if (!operand.isIdSet()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        RowFilter compile(IDIndex index) {
+            RowFilter[] filters = compileAll(operands, index);
+            return new RowFilter() {
+                @Override
+                public boolean test(int code, int value) {
+                    for (RowFilter filter : filters) {
+                        if (!filter.test(code, value)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public void evaluate(int[] codes, int[] values, int length, long[] bits) {
+                    int words = (length + 63) >>> 6;
+                    filters[0].evaluate(codes, values, length, bits);
+                    long[] scratch = new long[words];
+                    for (int f = 1; f < filters.length && any(bits, words); f++) {
+                        filters[f].evaluate(codes, values, length, scratch);
+                        for (int w = 0; w < words; w++) {
+                            bits[w] &= scratch[w];
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            writeOperands(out, TAG, operands);
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " and ");
+        }
+    }
+
+    private static final class Or extends FilterExpression {
+        static final int TAG = 7;
+
+        private final List<FilterExpression> operands;
+
+        Or(List<FilterExpression> operands) {
+            this.operands = operands;
+        }
+
+        // The union, when every operand limits the IDs
+        @Override
+        int[] idCodes(IDIndex index) {
+            IntLongHashMap codes = new IntLongHashMap();
+            for (FilterExpression operand : operands) {
+                int[] operandCodes = operand.idCodes(index);
+                if (operandCodes == null) {
+                    return null;
+                }
+                for (int code : operandCodes) {
+                    codes.put(code, 1);
+                }
+            }
+            return codes.keys();
+        }
+
+        @Override
+        boolean mayMatchId(String id) {
+            for (FilterExpression operand : operands) {
+                if (operand.mayMatchId(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        List<String> namedIds() {
+            TreeSet<String> union = new TreeSet<>();
+            for (FilterExpression operand : operands) {
+                List<String> ids = operand.namedIds();
+                if (ids == null) {
+                    return null;
+                }
+                union.addAll(ids);
+            }
+            return new ArrayList<>(union);
+        }
+
+        @Override
+        boolean isIdSet() {
+            for (FilterExpression operand : operands) {
+                if (!operand.isIdSet()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        RowFilter compile(IDIndex index) {
+            RowFilter[] filters = compileAll(operands, index);
+            return new RowFilter() {
+                @Override
+                public boolean test(int code, int value) {
+                    for (RowFilter filter : filters) {
+                        if (filter.test(code, value)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                @Override
+                public void evaluate(int[] codes, int[] values, int length, long[] bits) {
+                    int words = (length + 63) >>> 6;
+                    filters[0].evaluate(codes, values, length, bits);
+                    long[] scratch = new long[words];
+                    for (int f = 1; f < filters.length; f++) {
+                        filters[f].evaluate(codes, values, length, scratch);
+                        for (int w = 0; w < words; w++) {
+                            bits[w] |= scratch[w];
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        void writeTo(DataOutput out) throws IOException {
+            writeOperands(out, TAG, operands);
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " or ");
+        }
+    }
+
+    // ---- Compiled leaves ----
+
+    private static final class CodeEquals implements RowFilter {
+        private final int code;
+
+        CodeEquals(int code) {
+            this.code = code;
+        }
+
+        @Override
+        public boolean test(int rowCode, int value) {
+            return rowCode == code;
+        }
+
+        @Override
+        public void evaluate(int[] codes, int[] values, int length, long[] bits) {
+            for (int w = 0, base = 0; base < length; w++, base += 64) {
+                int end = Math.min(64, length - base);
+                long word = 0;
+                for (int b = 0; b < end; b++) {
+                    word |= inRange(codes[base + b] - code, 0) << b;
+                }
+                bits[w] = word;
+            }
+        }
+    }
+
+    private static final class CodeSet implements RowFilter {
+        private final IntLongHashMap codes;
+
+        CodeSet(IntLongHashMap codes) {
+            this.codes = codes;
+        }
+
+        @Override
+        public boolean test(int code, int value) {
+            return codes.containsKey(code);
+        }
+
+        @Override
+        public void evaluate(int[] rowCodes, int[] values, int length, long[] bits) {
+            for (int w = 0, base = 0; base < length; w++, base += 64) {
+                int end = Math.min(64, length - base);
+                long word = 0;
+                for (int b = 0; b < end; b++) {
+                    if (codes.containsKey(rowCodes[base + b])) {
+                        word |= 1L << b;
+                    }
+                }
+                bits[w] = word;
+            }
+        }
+    }
+
+    // Packed codes in [low, high] unsigned, plus the listed codes of IDs that cannot be packed
+    private static final class CodeRange implements RowFilter {
+        private final int low;
+        private final long span;
+        private final IntLongHashMap foreign;
+
+        CodeRange(long low, long high, IntLongHashMap foreign) {
+            this.low = (int) low;
+            this.span = high - low;
+            this.foreign = foreign;
+        }
+
+        @Override
+        public boolean test(int code, int value) {
+            return Integer.toUnsignedLong(code - low) <= span || foreign.containsKey(code);
+        }
+
+        @Override
+        public void evaluate(int[] codes, int[] values, int length, long[] bits) {
+            boolean anyForeign = foreign.size() > 0;
+            for (int w = 0, base = 0; base < length; w++, base += 64) {
+                int end = Math.min(64, length - base);
+                long word = 0;
+                for (int b = 0; b < end; b++) {
+                    word |= inRange(codes[base + b] - low, span) << b;
+                }
+                if (anyForeign) {
+                    for (int b = 0; b < end; b++) {
+                        if (foreign.containsKey(codes[base + b])) {
+                            word |= 1L << b;
+                        }
+                    }
+                }
+                bits[w] = word;
+            }
+        }
+    }
+
+    // ---- Helpers ----
+
+    private static RowFilter codeFilter(int[] codes) {
+        if (codes.length == 1) {
+            return new CodeEquals(codes[0]);
+        }
+        IntLongHashMap set = new IntLongHashMap(codes.length);
+        for (int code : codes) {
+            set.put(code, 1);
+        }
+        return new CodeSet(set);
+    }
+
+    private static RowFilter[] compileAll(List<FilterExpression> operands, IDIndex index) {
+        RowFilter[] filters = new RowFilter[operands.size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = operands.get(i).compile(index);
+        }
+        return filters;
+    }
+
+    // 1 when offset, read as unsigned, is at most span (-1 for none), else 0;
+    // branch-free so scans do not stall on unpredictable data
+    private static long inRange(int offset, long span) {
+        return (Integer.toUnsignedLong(offset) - span - 1) >>> 63;
+    }
+
+    private static boolean any(long[] bits, int words) {
+        for (int w = 0; w < words; w++) {
+            if (bits[w] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void clearTail(long[] bits, int length) {
+        if ((length & 63) != 0) {
+            bits[length >>> 6] &= (1L << length) - 1;
+        }
+    }
+
+    private static String join(List<FilterExpression> operands, String separator) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < operands.size(); i++) {
+            sb.append(i == 0 ? "" : separator).append(operands.get(i));
+        }
+        return sb.append(')').toString();
+    }
+}
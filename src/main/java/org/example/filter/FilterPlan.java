@@ -0,0 +1,192 @@
+package org.example.filter;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * How a DataFilter answers one FilterExpression.
+ * When the expression limits the IDs (idEquals, idIn, or an and/or over
+ * them), only those IDs' rows are visited through the index; if it is
+ * nothing but an ID set, sums and counts come straight from the index.
+ * A lone ID range or prefix is summed and counted from the sorted ID
+ * index in O(log n), without visiting its IDs.
+ * Otherwise every column chunk is evaluated to a bitmask in parallel and
+ * the matching values are summed from the mask, after the deleted rows
+ * are masked out. The index only holds live rows.
+ */
+class FilterPlan {
+    private final LabelValueColumns columns;
+    private final IDIndex index;
+    private final Tombstones tombstones;
+    private final RowFilter filter;
+    private final int[] idSpan;
+    private final int[] idCodes;
+    private final boolean idSetOnly;
+
+    private FilterPlan(LabelValueColumns columns, IDIndex index, Tombstones tombstones, FilterExpression expression) {
+        this.columns = columns;
+        this.index = index;
+        this.tombstones = tombstones;
+        this.idSpan = expression.idSpan(index);
+        // A span needs neither the codes nor the row filter until rows() is called
+        this.filter = idSpan != null ? null : expression.compile(index);
+        this.idCodes = idSpan != null ? null : expression.idCodes(index);
+        this.idSetOnly = idSpan != null || (idCodes != null && expression.isIdSet());
+    }
+
+    static FilterPlan of(LabelValueColumns columns, IDIndex index, Tombstones tombstones,
+                         FilterExpression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Filter expression cannot be null");
+        }
+        return new FilterPlan(columns, index, tombstones, expression);
+    }
+
+    boolean usesIndex() {
+        return idSpan != null || idCodes != null;
+    }
+
+    long sum() {
+        if (idSpan != null) {
+            return index.sorted().sum(idSpan[0], idSpan[1]);
+        }
+        if (idCodes == null) {
+            return IntStream.range(0, columns.chunkCount()).parallel()
+                    .mapToLong(this::sumChunk)
+                    .sum();
+        }
+        long sum = 0;
+        for (int code : idCodes) {
+            if (idSetOnly) {
+                sum += index.sum(code);
+            } else {
+                for (int row : index.rows(code)) {
+                    int value = columns.value(row);
+                    if (filter.test(code, value)) {
+                        sum += value;
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    int count() {
+        if (idSpan != null) {
+            return (int) index.sorted().count(idSpan[0], idSpan[1]);
+        }
+        if (idCodes == null) {
+            return IntStream.range(0, columns.chunkCount()).parallel()
+                    .map(this::countChunk)
+                    .sum();
+        }
+        if (idSetOnly) {
+            int count = 0;
+            for (int code : idCodes) {
+                count += index.count(code);
+            }
+            return count;
+        }
+        return rows().length;
+    }
+
+    // Matching row numbers in row order
+    int[] rows() {
+        int[] codes = idSpan != null ? index.sorted().codes(idSpan[0], idSpan[1]) : idCodes;
+        if (codes == null) {
+            int[][] chunkRows = IntStream.range(0, columns.chunkCount()).parallel()
+                    .mapToObj(this::chunkRows)
+                    .toArray(int[][]::new);
+            int total = 0;
+            for (int[] rows : chunkRows) {
+                total += rows.length;
+            }
+            int[] rows = new int[total];
+            int pos = 0;
+            for (int[] chunk : chunkRows) {
+                System.arraycopy(chunk, 0, rows, pos, chunk.length);
+                pos += chunk.length;
+            }
+            return rows;
+        }
+        int[] rows = new int[0];
+        int count = 0;
+        for (int code : codes) {
+            for (int row : index.rows(code)) {
+                if (idSetOnly || filter.test(code, columns.value(row))) {
+                    if (count == rows.length) {
+                        rows = Arrays.copyOf(rows, Math.max(16, count * 2));
+                    }
+                    rows[count++] = row;
+                }
+            }
+        }
+        rows = Arrays.copyOf(rows, count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    private long[] evaluate(int chunk) {
+        int length = columns.chunkLength(chunk);
+        long[] bits = new long[(length + 63) >>> 6];
+        filter.evaluate(columns.codeChunk(chunk), columns.valueChunk(chunk), length, bits);
+        long[] deleted = tombstones.chunkBits(chunk);
+        if (deleted != null) {
+            for (int w = 0; w < bits.length; w++) {
+                bits[w] &= ~deleted[w];
+            }
+        }
+        return bits;
+    }
+
+    private long sumChunk(int chunk) {
+        long[] bits = evaluate(chunk);
+        int[] values = columns.valueChunk(chunk);
+        long sum = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            if (word == -1L) {
+                for (int i = w << 6, end = i + 64; i < end; i++) {
+                    sum += values[i];
+                }
+                continue;
+            }
+            while (word != 0) {
+                sum += values[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return sum;
+    }
+
+    private int countChunk(int chunk) {
+        int count = 0;
+        for (long word : evaluate(chunk)) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private int[] chunkRows(int chunk) {
+        long[] bits = evaluate(chunk);
+        int[] rows = new int[countBits(bits)];
+        int first = chunk << LabelValueColumns.CHUNK_SHIFT;
+        int pos = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                rows[pos++] = first + (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return rows;
+    }
+
+    private static int countBits(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
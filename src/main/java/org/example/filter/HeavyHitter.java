@@ -0,0 +1,26 @@
+package org.example.filter;
+
+// HeavyHitter.java - An ID ranked by its total; error is 0 for exact rankings
+public class HeavyHitter {
+    private final ID id;
+    private final long total;
+    private final long error;
+
+    public HeavyHitter(ID id, long total, long error) {
+        this.id = id;
+        this.total = total;
+        this.error = error;
+    }
+
+    // For sketches the true total lies in [total - error, total]
+    public ID getId() { return id; }
+    public long getTotal() { return total; }
+    public long getError() { return error; }
+
+    @Override
+    public String toString() {
+        return error == 0
+                ? String.format("HeavyHitter(id=%s, total=%d)", id, total)
+                : String.format("HeavyHitter(id=%s, total=%d, error=%d)", id, total, error);
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving summary of the IDs with the largest totals in an unbounded
+ * feed, in a fixed number of counters.
+ * When a new ID arrives and every counter is taken, it replaces the ID
+ * with the smallest count and inherits that count as its error. With m
+ * counters and total weight N so far, each reported total overestimates
+ * the true total by at most its error, every error is at most N / m, and
+ * any ID whose true total is above N / m is always tracked.
+ * Weights must not be negative.
+ */
+public class HeavyHitterSketch {
+    private final int capacity;
+    private final IntLongHashMap packedSlots = new IntLongHashMap();
+    private final Map<String, Integer> foreignSlots = new HashMap<>();
+    private final int[] codes;
+    private final String[] foreignIds;
+    private final long[] counts;
+    private final long[] errors;
+    // Min-heap of slots by count, and each slot's place in it
+    private final int[] heap;
+    private final int[] heapPositions;
+    private int size;
+    private long totalWeight;
+
+    public HeavyHitterSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.codes = new int[capacity];
+        this.foreignIds = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.heap = new int[capacity];
+        this.heapPositions = new int[capacity];
+    }
+
+    public void add(LabelValue item) {
+        add(item.getId().getValue(), item.getValue());
+    }
+
+    public void add(String id, long weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative: " + weight);
+        }
+        String value = id != null ? id : "Q0000";
+        int code = IDCodec.encode(value);
+        totalWeight += weight;
+
+        int slot = slotOf(code, value);
+        if (slot < 0 && size < capacity) {
+            slot = size;
+            heap[size] = slot;
+            heapPositions[slot] = size;
+            size++;
+            track(slot, code, value);
+            counts[slot] = weight;
+            siftUp(heapPositions[slot]);
+            return;
+        }
+        if (slot < 0) {
+            // Take over the smallest counter
+            slot = heap[0];
+            release(slot);
+            errors[slot] = counts[slot];
+            track(slot, code, value);
+        }
+        counts[slot] += weight;
+        siftDown(heapPositions[slot]);
+    }
+
+    private void track(int slot, int code, String id) {
+        codes[slot] = code;
+        foreignIds[slot] = code == IDCodec.NO_CODE ? id : null;
+        if (code == IDCodec.NO_CODE) {
+            foreignSlots.put(id, slot);
+        } else {
+            packedSlots.put(code, slot);
+        }
+    }
+
+    private int slotOf(int code, String id) {
+        if (code != IDCodec.NO_CODE) {
+            return (int) packedSlots.get(code, -1);
+        }
+        Integer slot = foreignSlots.get(id);
+        return slot == null ? -1 : slot;
+    }
+
+    private void release(int slot) {
+        if (foreignIds[slot] != null) {
+            foreignSlots.remove(foreignIds[slot]);
+        } else {
+            packedSlots.remove(codes[slot]);
+        }
+    }
+
+    // Upper bound on the ID's total: its count when tracked, else the smallest count
+    public long estimate(String id) {
+        String value = id != null ? id : "Q0000";
+        int slot = slotOf(IDCodec.encode(value), value);
+        return slot >= 0 ? counts[slot] : getMaxError();
+    }
+
+    public long getTotalWeight() { return totalWeight; }
+    public int getCapacity() { return capacity; }
+
+    // No reported total is more than this above the true total
+    public long getMaxError() {
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+
+    // The k tracked IDs with the largest counts, largest first
+    public List<HeavyHitter> top(int k) {
+        List<HeavyHitter> tracked = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            String id = foreignIds[slot] != null ? foreignIds[slot] : IDCodec.decode(codes[slot]);
+            tracked.add(new HeavyHitter(new ID(id), counts[slot], errors[slot]));
+        }
+        tracked.sort((a, b) -> a.getTotal() != b.getTotal()
+                ? Long.compare(b.getTotal(), a.getTotal())
+                : a.getId().getValue().compareTo(b.getId().getValue()));
+        return new ArrayList<>(tracked.subList(0, Math.min(Math.max(k, 0), tracked.size())));
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[heap[pos]]) {
+                return;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int smallest = pos;
+            int left = 2 * pos + 1;
+            if (left < size && counts[heap[left]] < counts[heap[smallest]]) {
+                smallest = left;
+            }
+            if (left + 1 < size && counts[heap[left + 1]] < counts[heap[smallest]]) {
+                smallest = left + 1;
+            }
+            if (smallest == pos) {
+                return;
+            }
+            swap(pos, smallest);
+            pos = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int slot = heap[a];
+        heap[a] = heap[b];
+        heap[b] = slot;
+        heapPositions[heap[a]] = a;
+        heapPositions[heap[b]] = b;
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.filter;
+
+/**
+ * Canonical int encoding of valid IDs.
+ * A valid ID is "Q" followed by four characters; when each of those is in
+ * 1-255 they are packed big-endian into one int, so equal IDs always get
+ * equal codes and unsigned code order is the IDs' string order.
+ * Packed codes always have a non-zero high byte. Codes with a zero high
+ * byte are left for IDs that cannot be packed (see IDIndex), and 0 itself
+ * is never a code.
+ */
+public class IDCodec {
+    public static final int NO_CODE = 0;
+
+    private IDCodec() {
+    }
+
+    // Returns NO_CODE when the ID is invalid or has a character outside 1-255
+    public static int encode(CharSequence id) {
+        if (id == null || id.length() != 5 || id.charAt(0) != 'Q') {
+            return NO_CODE;
+        }
+        int code = 0;
+        for (int i = 1; i < 5; i++) {
+            char c = id.charAt(i);
+            if (c == 0 || c > 0xFF) {
+                return NO_CODE;
+            }
+            code = (code << 8) | c;
+        }
+        return code;
+    }
+
+    public static boolean isPacked(int code) {
+        return (code >>> 24) != 0;
+    }
+
+    public static String decode(int code) {
+        if (!isPacked(code)) {
+            throw new IllegalArgumentException("Not a packed ID code: " + code);
+        }
+        char[] chars = {'Q', (char) (code >>> 24), (char) ((code >>> 16) & 0xFF),
+                (char) ((code >>> 8) & 0xFF), (char) (code & 0xFF)};
+        return new String(chars);
+    }
+}
@@ -46,14 +46,14 @@ public class IDFilterApp {
 
         // Test filtering
         System.out.println("\nFiltering by ID 'Q1234':");
-        int sum = filter.filterByIDAndSum("Q1234");
+        long sum = filter.sum(FilterExpression.idEquals("Q1234"));
         System.out.printf("Sum: %d%n", sum);
 
         // Test with FilterValue object
         System.out.println("\nUsing FilterValue object:");
         FilterValue filterValue = new FilterValue("ID", "Q1234");
         ResultValue result = filter.filterBy(filterValue);
-        System.out.printf("Result Sum: %d%n", result.getSum());
+        System.out.printf("Result Sum: %d%n", result.getLongSum());
     }
 
     private static void runInteractiveMode() {
@@ -64,8 +64,11 @@ public class IDFilterApp {
         System.out.println("Commands:");
         System.out.println("  add <ID> <value> - Add data item");
         System.out.println("  filter <ID>      - Filter and sum by ID");
+        System.out.println("  stats <ID>       - Sum, count, distinct values and percentiles of an ID");
+        System.out.println("  delete <ID>      - Delete all rows of an ID");
         System.out.println("  validate <ID>    - Validate an ID");
         System.out.println("  list             - Show all data");
+        System.out.println("  cache            - Show query cache statistics");
         System.out.println("  quit             - Exit");
         System.out.println();
 
@@ -107,8 +110,10 @@ public class IDFilterApp {
                             String id = parts[1];
                             ValueValid validation = IDValidator.validateID(id);
                             if (validation.isValid()) {
-                                int sum = filter.filterByIDAndSum(id);
-                                List<LabelValue> filtered = filter.getFilteredData(id);
+                                // Repeated filters are served from the query cache
+                                FilterExpression query = FilterExpression.idEquals(id);
+                                long sum = filter.filterBy(query).getLongSum();
+                                List<LabelValue> filtered = filter.getFilteredData(query);
                                 System.out.printf("Filtered by ID '%s':%n", id);
                                 for (LabelValue item : filtered) {
                                     System.out.printf("  Value: %d%n", item.getValue());
@@ -122,6 +127,32 @@ public class IDFilterApp {
                         }
                         break;
 
+                    case "stats":
+                        if (parts.length == 2) {
+                            ValueSummary summary = filter.summarize(parts[1]);
+                            if (summary.getCount() == 0) {
+                                System.out.printf("No data for ID '%s'%n", parts[1]);
+                            } else {
+                                System.out.printf("ID '%s': sum=%d, count=%d, min=%d, max=%d, distinct~%d%n",
+                                        parts[1], summary.getSum(), summary.getCount(), summary.getMin(),
+                                        summary.getMax(), summary.getDistinctCount());
+                                System.out.printf("  p50~%.1f, p90~%.1f, p99~%.1f%n", summary.getQuantile(0.5),
+                                        summary.getQuantile(0.9), summary.getQuantile(0.99));
+                            }
+                        } else {
+                            System.out.println("Usage: stats <ID>");
+                        }
+                        break;
+
+                    case "delete":
+                        if (parts.length == 2) {
+                            int deleted = filter.deleteID(parts[1]);
+                            System.out.printf("Deleted %d row(s) for ID '%s'%n", deleted, parts[1]);
+                        } else {
+                            System.out.println("Usage: delete <ID>");
+                        }
+                        break;
+
                     case "validate":
                         if (parts.length == 2) {
                             String id = parts[1];
@@ -134,17 +165,22 @@ public class IDFilterApp {
                         break;
 
                     case "list":
-                        List<LabelValue> data = filter.getData();
+                        DataSnapshot data = filter.snapshot();
                         if (data.isEmpty()) {
                             System.out.println("No data available.");
                         } else {
                             System.out.println("All Data:");
-                            for (LabelValue item : data) {
-                                System.out.printf("  ID: %s, Value: %d%n", item.getId(), item.getValue());
+                            RowCursor cursor = data.cursor();
+                            while (cursor.next()) {
+                                System.out.printf("  ID: %s, Value: %d%n", cursor.id(), cursor.value());
                             }
                         }
                         break;
 
+                    case "cache":
+                        System.out.println(filter.getQueryCache());
+                        break;
+
                     default:
                         System.out.println("Unknown command. Type 'quit' to exit.");
                 }
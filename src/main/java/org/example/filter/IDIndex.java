@@ -0,0 +1,216 @@
+package org.example.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running sum and row positions per ID, kept up to date as rows are added.
+ * IDs are keyed by their IDCodec code, so lookups compare ints and never
+ * allocate. IDs that cannot be packed (invalid ones are still accepted
+ * by DataFilter) get codes 1 to 0xFFFFFF from a small dictionary, which
+ * can never collide with a packed code. The dictionary is synchronized;
+ * the sums and postings belong to the writing thread.
+ * The sorted view for range and prefix queries is built on first use and
+ * then kept up to date as rows are added.
+ */
+public class IDIndex {
+    private static final int[] NO_ROWS = new int[0];
+    private static final int MAX_FOREIGN_CODE = 0xFFFFFF;
+
+    // code -> slot in the posting arrays
+    private final IntLongHashMap slots = new IntLongHashMap();
+    private long[] sums = new long[16];
+    private int[][] rows = new int[16][];
+    private int[] counts = new int[16];
+    private int slotCount;
+    private SortedIDIndex sorted;
+
+    private final Map<String, Integer> foreignCodes;
+    private final List<String> foreignIds;
+
+    public IDIndex() {
+        this(new HashMap<>(), new ArrayList<>());
+    }
+
+    private IDIndex(Map<String, Integer> foreignCodes, List<String> foreignIds) {
+        this.foreignCodes = foreignCodes;
+        this.foreignIds = foreignIds;
+    }
+
+    // Empty index sharing this one's ID dictionary, so codes handed out by
+    // either stay valid in both; used to rebuild an index without its deleted rows
+    IDIndex withSameCodes() {
+        return new IDIndex(foreignCodes, foreignIds);
+    }
+
+    // Code for the ID, assigning one if it cannot be packed and is new
+    public int codeFor(String id) {
+        int code = IDCodec.encode(id);
+        if (code != IDCodec.NO_CODE) {
+            return code;
+        }
+        synchronized (foreignCodes) {
+            Integer foreign = foreignCodes.get(id);
+            if (foreign == null) {
+                if (foreignIds.size() == MAX_FOREIGN_CODE) {
+                    throw new IllegalStateException("Too many distinct invalid IDs");
+                }
+                foreignIds.add(id);
+                foreign = foreignIds.size();
+                foreignCodes.put(id, foreign);
+            }
+            return foreign;
+        }
+    }
+
+    // Code for the ID, or NO_CODE when it has never been seen and cannot be packed
+    public int codeOf(String id) {
+        int code = IDCodec.encode(id);
+        if (code != IDCodec.NO_CODE) {
+            return code;
+        }
+        synchronized (foreignCodes) {
+            Integer foreign = foreignCodes.get(id);
+            return foreign == null ? IDCodec.NO_CODE : foreign;
+        }
+    }
+
+    // IDs that cannot be packed have codes 1 to foreignIDCount()
+    public int foreignIDCount() {
+        synchronized (foreignCodes) {
+            return foreignIds.size();
+        }
+    }
+
+    // Safe to call while another thread adds IDs, for DataSnapshot readers
+    public String idOf(int code) {
+        if (IDCodec.isPacked(code)) {
+            return IDCodec.decode(code);
+        }
+        synchronized (foreignCodes) {
+            return foreignIds.get(code - 1);
+        }
+    }
+
+    // Returns true when this is the ID's first row
+    public boolean add(int code, int value, int row) {
+        int slot = (int) slots.get(code, -1);
+        boolean first = slot < 0;
+        if (first) {
+            slot = newSlot();
+            slots.put(code, slot);
+        }
+        sums[slot] += value;
+        int[] slotRows = rows[slot];
+        if (counts[slot] == slotRows.length) {
+            rows[slot] = slotRows = Arrays.copyOf(slotRows, counts[slot] * 2);
+        }
+        slotRows[counts[slot]++] = row;
+        if (sorted != null) {
+            sorted.add(code, value, first);
+        }
+        return first;
+    }
+
+    // A row's value changed by delta
+    public void update(int code, long delta) {
+        int slot = (int) slots.get(code, -1);
+        if (slot < 0) {
+            return;
+        }
+        sums[slot] += delta;
+        if (sorted != null) {
+            sorted.update(code, delta, 0);
+        }
+    }
+
+    // Drops one row; returns true when it was the ID's last row, which
+    // removes the ID. Postings are in row order, so the row is found by
+    // binary search
+    public boolean remove(int code, int value, int row) {
+        int slot = (int) slots.get(code, -1);
+        if (slot < 0) {
+            return false;
+        }
+        int[] slotRows = rows[slot];
+        int pos = Arrays.binarySearch(slotRows, 0, counts[slot], row);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(slotRows, pos + 1, slotRows, pos, counts[slot] - pos - 1);
+        counts[slot]--;
+        sums[slot] -= value;
+        if (sorted != null) {
+            sorted.update(code, -value, -1);
+        }
+        if (counts[slot] == 0) {
+            removeAll(code);
+            return true;
+        }
+        return false;
+    }
+
+    // Drops every row of the ID; its slot is not reused until the index is rebuilt
+    public void removeAll(int code) {
+        int slot = (int) slots.get(code, -1);
+        if (slot < 0) {
+            return;
+        }
+        if (sorted != null && counts[slot] > 0) {
+            sorted.update(code, -sums[slot], -counts[slot]);
+        }
+        slots.remove(code);
+        rows[slot] = NO_ROWS;
+        sums[slot] = 0;
+        counts[slot] = 0;
+    }
+
+    private int newSlot() {
+        if (slotCount == sums.length) {
+            sums = Arrays.copyOf(sums, slotCount * 2);
+            rows = Arrays.copyOf(rows, slotCount * 2);
+            counts = Arrays.copyOf(counts, slotCount * 2);
+        }
+        rows[slotCount] = new int[2];
+        return slotCount++;
+    }
+
+    // The IDs in ID order, with range sums and counts
+    public SortedIDIndex sorted() {
+        if (sorted == null) {
+            sorted = new SortedIDIndex(this);
+        }
+        return sorted;
+    }
+
+    public boolean contains(int code) {
+        return slots.containsKey(code);
+    }
+
+    public long sum(int code) {
+        int slot = (int) slots.get(code, -1);
+        return slot < 0 ? 0 : sums[slot];
+    }
+
+    public int count(int code) {
+        int slot = (int) slots.get(code, -1);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    public int[] rows(int code) {
+        int slot = (int) slots.get(code, -1);
+        return slot < 0 ? NO_ROWS : Arrays.copyOf(rows[slot], counts[slot]);
+    }
+
+    // Visits every ID code with its sum
+    public void forEachSum(IntLongHashMap.Entry visitor) {
+        slots.forEach((code, slot) -> visitor.accept(code, sums[(int) slot]));
+    }
+
+    public int distinctIDs() {
+        return slots.size();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.filter;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Indexed max-heap of per-ID sums, keyed by ID code.
+ * A code's heap position is kept in an IntLongHashMap, so adding to one
+ * sum moves just that entry, in O(log n). The k largest sums are read
+ * best-first from the top of the heap in O(k log k) without changing it.
+ * Equal sums are ordered by code, which for packed IDs is ID order.
+ */
+public class IDSumHeap {
+    private final IntLongHashMap positions = new IntLongHashMap();
+    private int[] codes = new int[16];
+    private long[] sums = new long[16];
+    private int size;
+
+    public void add(int code, long delta) {
+        int pos = (int) positions.get(code, -1);
+        if (pos < 0) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+                sums = Arrays.copyOf(sums, size * 2);
+            }
+            pos = size++;
+            codes[pos] = code;
+            positions.put(code, pos);
+        }
+        sums[pos] += delta;
+        if (delta >= 0) {
+            siftUp(pos);
+        } else {
+            siftDown(pos);
+        }
+    }
+
+    public long sum(int code) {
+        int pos = (int) positions.get(code, -1);
+        return pos < 0 ? 0 : sums[pos];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Codes of the k largest sums, largest first
+    public int[] topCodes(int k) {
+        int count = Math.min(Math.max(k, 0), size);
+        int[] top = new int[count];
+        if (count == 0) {
+            return top;
+        }
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(this::compare);
+        frontier.add(0);
+        for (int i = 0; i < count; i++) {
+            int pos = frontier.poll();
+            top[i] = codes[pos];
+            for (int child = 2 * pos + 1; child <= 2 * pos + 2 && child < size; child++) {
+                frontier.add(child);
+            }
+        }
+        return top;
+    }
+
+    // Negative when position a ranks above position b
+    private int compare(int a, int b) {
+        int bySum = Long.compare(sums[b], sums[a]);
+        return bySum != 0 ? bySum : Integer.compareUnsigned(codes[a], codes[b]);
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (compare(pos, parent) >= 0) {
+                return;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int best = pos;
+            int left = 2 * pos + 1;
+            if (left < size && compare(left, best) < 0) {
+                best = left;
+            }
+            if (left + 1 < size && compare(left + 1, best) < 0) {
+                best = left + 1;
+            }
+            if (best == pos) {
+                return;
+            }
+            swap(pos, best);
+            pos = best;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int code = codes[a];
+        codes[a] = codes[b];
+        codes[b] = code;
+        long sum = sums[a];
+        sums[a] = sums[b];
+        sums[b] = sum;
+        positions.put(codes[a], a);
+        positions.put(codes[b], b);
+    }
+}
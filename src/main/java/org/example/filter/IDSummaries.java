@@ -0,0 +1,53 @@
+package org.example.filter;
+
+import java.util.Arrays;
+
+/**
+ * A ValueSummary per ID code, slots found through an IntLongHashMap as in
+ * IDSumHeap. Only IDs that were asked for have a summary: the owner builds
+ * one from the ID's rows on first use, and rows are added to it as they
+ * arrive. The sketches cannot take a value back out, so an update or
+ * delete clears the ID's summary and it is rebuilt the same way.
+ */
+class IDSummaries {
+    private final IntLongHashMap slots = new IntLongHashMap();
+    private ValueSummary[] summaries = new ValueSummary[16];
+    private int size;
+
+    // Rows of codes with no summary are left for the owner's rebuild
+    void add(int code, int value) {
+        int slot = (int) slots.get(code, -1);
+        if (slot >= 0 && summaries[slot] != null) {
+            summaries[slot].add(value);
+        }
+    }
+
+    // The code's summary, or null when it has none or it was cleared
+    ValueSummary get(int code) {
+        int slot = (int) slots.get(code, -1);
+        return slot < 0 ? null : summaries[slot];
+    }
+
+    void put(int code, ValueSummary summary) {
+        int slot = (int) slots.get(code, -1);
+        if (slot < 0) {
+            slot = newSlot(code);
+        }
+        summaries[slot] = summary;
+    }
+
+    private int newSlot(int code) {
+        if (size == summaries.length) {
+            summaries = Arrays.copyOf(summaries, size * 2);
+        }
+        slots.put(code, size);
+        return size++;
+    }
+
+    void clear(int code) {
+        int slot = (int) slots.get(code, -1);
+        if (slot >= 0) {
+            summaries[slot] = null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.filter;
+
+// IDTotals.java - Sum, count, min and max of the values for one ID
+public class IDTotals {
+    private final ID id;
+    private final long sum;
+    private final long count;
+    private final int min;
+    private final int max;
+
+    public IDTotals(ID id, long sum, long count, int min, int max) {
+        this.id = id;
+        this.sum = sum;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+    }
+
+    public ID getId() { return id; }
+    public long getSum() { return sum; }
+    public long getCount() { return count; }
+    public int getMin() { return min; }
+    public int getMax() { return max; }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        IDTotals other = (IDTotals) obj;
+        return id.equals(other.id) && sum == other.sum && count == other.count
+                && min == other.min && max == other.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return java.util.Objects.hash(id, sum, count, min, max);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IDTotals(id=%s, sum=%d, count=%d, min=%d, max=%d)", id, sum, count, min, max);
+    }
+}
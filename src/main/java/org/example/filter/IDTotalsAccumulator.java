@@ -0,0 +1,82 @@
+package org.example.filter;
+
+import java.util.Arrays;
+
+/**
+ * Per-ID sum, count, min and max over ID-code/value rows, in primitive
+ * arrays behind an IntLongHashMap of code to slot. One accumulator is
+ * filled per worker and the partial results are merged at the end.
+ */
+public class IDTotalsAccumulator {
+    private final IntLongHashMap slots = new IntLongHashMap();
+    private int[] codes = new int[16];
+    private long[] sums = new long[16];
+    private long[] counts = new long[16];
+    private int[] mins = new int[16];
+    private int[] maxs = new int[16];
+    private int size;
+
+    public void add(int code, int value) {
+        int slot = slotFor(code);
+        sums[slot] += value;
+        counts[slot]++;
+        if (value < mins[slot]) mins[slot] = value;
+        if (value > maxs[slot]) maxs[slot] = value;
+    }
+
+    public void addChunk(int[] chunkCodes, int[] chunkValues, int length) {
+        for (int i = 0; i < length; i++) {
+            add(chunkCodes[i], chunkValues[i]);
+        }
+    }
+
+    // Skips the rows whose bit is set in deleted (one bit per row; null for none)
+    public void addChunk(int[] chunkCodes, int[] chunkValues, int length, long[] deleted) {
+        if (deleted == null) {
+            addChunk(chunkCodes, chunkValues, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((deleted[i >>> 6] & (1L << i)) == 0) {
+                add(chunkCodes[i], chunkValues[i]);
+            }
+        }
+    }
+
+    public void merge(IDTotalsAccumulator other) {
+        for (int i = 0; i < other.size; i++) {
+            int slot = slotFor(other.codes[i]);
+            sums[slot] += other.sums[i];
+            counts[slot] += other.counts[i];
+            if (other.mins[i] < mins[slot]) mins[slot] = other.mins[i];
+            if (other.maxs[i] > maxs[slot]) maxs[slot] = other.maxs[i];
+        }
+    }
+
+    private int slotFor(int code) {
+        int slot = (int) slots.get(code, -1);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+            sums = Arrays.copyOf(sums, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+            mins = Arrays.copyOf(mins, size * 2);
+            maxs = Arrays.copyOf(maxs, size * 2);
+        }
+        slot = size++;
+        codes[slot] = code;
+        mins[slot] = Integer.MAX_VALUE;
+        maxs[slot] = Integer.MIN_VALUE;
+        slots.put(code, slot);
+        return slot;
+    }
+
+    public int size() { return size; }
+    public int code(int slot) { return codes[slot]; }
+    public long sum(int slot) { return sums[slot]; }
+    public long count(int slot) { return counts[slot]; }
+    public int min(int slot) { return mins[slot]; }
+    public int max(int slot) { return maxs[slot]; }
+}
@@ -0,0 +1,87 @@
+package org.example.filter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Result of a bulk IDValidator call: one validity bit and one reason code
+ * (IDValidator.VALID, TOO_SHORT, ...) per ID, about 1.1 bytes an ID.
+ * ValueValid objects are only built when a failure is asked for.
+ */
+public class IDValidation {
+    private final int size;
+    private final long[] validBits;
+    private final byte[] reasonCodes;
+    private final IntFunction<String> ids;
+    private int validCount;
+
+    IDValidation(int size, IntFunction<String> ids) {
+        this.size = size;
+        this.validBits = new long[(size + 63) >>> 6];
+        this.reasonCodes = new byte[size];
+        this.ids = ids;
+    }
+
+    void set(int i, byte reasonCode) {
+        reasonCodes[i] = reasonCode;
+        if (reasonCode == IDValidator.VALID) {
+            validBits[i >>> 6] |= 1L << i;
+            validCount++;
+        }
+    }
+
+    public int size() { return size; }
+    public int getValidCount() { return validCount; }
+    public int getInvalidCount() { return size - validCount; }
+
+    public boolean isValid(int i) {
+        checkIndex(i);
+        return (validBits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public byte getReasonCode(int i) {
+        checkIndex(i);
+        return reasonCodes[i];
+    }
+
+    public String getNotes(int i) {
+        return IDValidator.notes(getReasonCode(i));
+    }
+
+    // The result's own arrays, not copies
+    public long[] getValidWords() { return validBits; }
+    public byte[] getReasonCodes() { return reasonCodes; }
+
+    public BitSet toBitSet() {
+        return BitSet.valueOf(validBits);
+    }
+
+    // Same ValueValid that IDValidator.validateID gives for ID i
+    public ValueValid toValueValid(int i) {
+        byte reason = getReasonCode(i);
+        return new ValueValid(ids.apply(i), reason == IDValidator.VALID, IDValidator.notes(reason));
+    }
+
+    public List<ValueValid> getFailures() {
+        List<ValueValid> failures = new ArrayList<>(getInvalidCount());
+        for (int i = 0; i < size; i++) {
+            if (reasonCodes[i] != IDValidator.VALID) {
+                failures.add(toValueValid(i));
+            }
+        }
+        return failures;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("ID " + i + " of " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IDValidation(size=%d, valid=%d, invalid=%d)", size, validCount, getInvalidCount());
+    }
+}
@@ -1,47 +1,110 @@
 package org.example.filter;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class IDValidator {
+    // Reason codes used by the bulk validators; see notes(byte)
+    public static final byte VALID = 0;
+    public static final byte NULL_ID = 1;
+    public static final byte TOO_SHORT = 2;
+    public static final byte TOO_LONG = 3;
+    public static final byte NO_Q_PREFIX = 4;
+
+    private static final String[] NOTES = {"", "ID cannot be null", "Too short", "Too long", "Must begin with Q"};
 
     public static ValueValid validateID(String id) {
         ValueValid result = new ValueValid();
         result.setValue(id);
 
-        if (id == null) {
-            result.setValid(false);
-            result.setNotes("ID cannot be null");
-            return result;
-        }
+        byte reason = reasonCode(id);
+        result.setValid(reason == VALID);
+        result.setNotes(notes(reason));
+        return result;
+    }
 
-        if (id.length() < 5) {
-            result.setValid(false);
-            result.setNotes("Too short");
-            return result;
+    public static List<ValueValid> validateIDs(String[] ids) {
+        List<ValueValid> results = new ArrayList<>();
+        for (String id : ids) {
+            results.add(validateID(id));
         }
+        return results;
+    }
 
-        if (id.length() > 5) {
-            result.setValid(false);
-            result.setNotes("Too long");
-            return result;
+    // Bulk validation: a validity bit and a reason code per ID, and no
+    // ValueValid objects unless a failure is asked for
+    public static IDValidation validateAll(String[] ids) {
+        IDValidation result = new IDValidation(ids.length, i -> ids[i]);
+        for (int i = 0; i < ids.length; i++) {
+            result.set(i, reasonCode(ids[i]));
         }
+        return result;
+    }
 
-        if (!id.startsWith("Q")) {
-            result.setValid(false);
-            result.setNotes("Must begin with Q");
-            return result;
+    public static IDValidation validateAll(List<? extends CharSequence> ids) {
+        IDValidation result = new IDValidation(ids.size(), i -> {
+            CharSequence id = ids.get(i);
+            return id == null ? null : id.toString();
+        });
+        int i = 0;
+        for (CharSequence id : ids) {
+            result.set(i++, reasonCode(id));
         }
+        return result;
+    }
 
-        result.setValid(true);
-        result.setNotes("");
+    // IDs held as UTF-8 bytes: ID i is lengths[i] bytes from offsets[i]
+    public static IDValidation validateAll(ByteBuffer buffer, int[] offsets, int[] lengths) {
+        if (offsets.length != lengths.length) {
+            throw new IllegalArgumentException("Offsets and lengths differ in size");
+        }
+        IDValidation result = new IDValidation(offsets.length, i -> {
+            byte[] bytes = new byte[lengths[i]];
+            buffer.get(offsets[i], bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        });
+        for (int i = 0; i < offsets.length; i++) {
+            result.set(i, reasonCode(buffer, offsets[i], offsets[i] + lengths[i]));
+        }
         return result;
     }
 
-    public static List<ValueValid> validateIDs(String[] ids) {
-        List<ValueValid> results = new ArrayList<>();
-        for (String id : ids) {
-            results.add(validateID(id));
+    public static byte reasonCode(CharSequence id) {
+        if (id == null) {
+            return NULL_ID;
         }
-        return results;
+        return reasonCode(id.length(), id.length() > 0 && id.charAt(0) == 'Q');
+    }
+
+    // Same rules over UTF-8 bytes; the length counted is the String length
+    // the bytes decode to, so non-ASCII IDs get the same answer as validateID
+    public static byte reasonCode(ByteBuffer buffer, int from, int to) {
+        int length = 0;
+        for (int pos = from; pos < to; pos++) {
+            int b = buffer.get(pos) & 0xFF;
+            if (b < 0x80 || b >= 0xC0) {
+                // A four-byte sequence decodes to a surrogate pair
+                length += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return reasonCode(length, to > from && buffer.get(from) == 'Q');
+    }
+
+    private static byte reasonCode(int length, boolean startsWithQ) {
+        if (length < 5) {
+            return TOO_SHORT;
+        }
+        if (length > 5) {
+            return TOO_LONG;
+        }
+        if (!startsWithQ) {
+            return NO_Q_PREFIX;
+        }
+        return VALID;
+    }
+
+    public static String notes(byte reasonCode) {
+        return NOTES[reasonCode];
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package org.example.filter;
+
+import java.util.Arrays;
+
+/**
+ * Column store for ID/value rows: ID codes and values in parallel int
+ * arrays, allocated in fixed-size chunks so growing never copies rows.
+ * A row costs 8 bytes instead of a LabelValue, ID and String.
+ * Rows are appended; row r lives at chunk r >> CHUNK_SHIFT. A value can
+ * be rewritten in place: a frozen copy handed to a snapshot shares the
+ * chunks, so the writer copies a value chunk before its first rewrite
+ * after a freeze.
+ */
+public class LabelValueColumns {
+    public static final int CHUNK_SHIFT = 16;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private int[][] codes = new int[0][];
+    private int[][] values = new int[0][];
+    // Value chunks shared with a frozen copy, copied before they are rewritten
+    private boolean[] sharedValues = new boolean[0];
+    // Written after the row, so a reader that sees a size also sees the rows before it
+    private volatile int size;
+
+    public void append(int code, int value) {
+        int row = size;
+        int chunk = row >>> CHUNK_SHIFT;
+        if (chunk == codes.length) {
+            codes = Arrays.copyOf(codes, chunk + 1);
+            values = Arrays.copyOf(values, chunk + 1);
+            codes[chunk] = new int[CHUNK_SIZE];
+            values[chunk] = new int[CHUNK_SIZE];
+        }
+        codes[chunk][row & CHUNK_MASK] = code;
+        values[chunk][row & CHUNK_MASK] = value;
+        size = row + 1;
+    }
+
+    // Appends the first length rows of the arrays, a chunk-sized copy at a time
+    public void append(int[] rowCodes, int[] rowValues, int length) {
+        int copied = 0;
+        while (copied < length) {
+            int chunk = size >>> CHUNK_SHIFT;
+            if (chunk == codes.length) {
+                codes = Arrays.copyOf(codes, chunk + 1);
+                values = Arrays.copyOf(values, chunk + 1);
+                codes[chunk] = new int[CHUNK_SIZE];
+                values[chunk] = new int[CHUNK_SIZE];
+            }
+            int offset = size & CHUNK_MASK;
+            int count = Math.min(length - copied, CHUNK_SIZE - offset);
+            System.arraycopy(rowCodes, copied, codes[chunk], offset, count);
+            System.arraycopy(rowValues, copied, values[chunk], offset, count);
+            size += count;
+            copied += count;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setValue(int row, int value) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        int chunk = row >>> CHUNK_SHIFT;
+        if (chunk < sharedValues.length && sharedValues[chunk]) {
+            values[chunk] = values[chunk].clone();
+            sharedValues[chunk] = false;
+        }
+        values[chunk][row & CHUNK_MASK] = value;
+    }
+
+    // Copy that keeps the rows present now, whatever this one does later.
+    // Chunks are shared; only the chunk arrays are copied
+    public LabelValueColumns freeze() {
+        LabelValueColumns frozen = new LabelValueColumns();
+        frozen.codes = codes.clone();
+        frozen.values = values.clone();
+        frozen.size = size;
+        sharedValues = new boolean[values.length];
+        Arrays.fill(sharedValues, true);
+        return frozen;
+    }
+
+    public int code(int row) {
+        return codes[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    public int value(int row) {
+        return values[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    // Chunk access for scans: rows of chunk i are codeChunk(i)[0..chunkLength(i))
+    public int chunkCount() {
+        return (size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+    }
+
+    public int chunkLength(int chunk) {
+        return Math.min(CHUNK_SIZE, size - (chunk << CHUNK_SHIFT));
+    }
+
+    public int[] codeChunk(int chunk) {
+        return codes[chunk];
+    }
+
+    public int[] valueChunk(int chunk) {
+        return values[chunk];
+    }
+
+    // Full scan sum of the rows with the given code
+    public long sumValues(int code) {
+        long sum = 0;
+        for (int chunk = 0; chunk < chunkCount(); chunk++) {
+            int[] chunkCodes = codes[chunk];
+            int[] chunkValues = values[chunk];
+            int length = chunkLength(chunk);
+            for (int i = 0; i < length; i++) {
+                if (chunkCodes[i] == code) {
+                    sum += chunkValues[i];
+                }
+            }
+        }
+        return sum;
+    }
+
+    public long sumValues() {
+        long sum = 0;
+        for (int chunk = 0; chunk < chunkCount(); chunk++) {
+            int[] chunkValues = values[chunk];
+            int length = chunkLength(chunk);
+            for (int i = 0; i < length; i++) {
+                sum += chunkValues[i];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One shard of a PartitionedDataFilter: a DataFilter in its own JVM,
+ * answering the coordinator over a loopback socket.
+ *
+ * The worker listens on a free loopback port, prints "READY <port>" on
+ * standard output and serves the one connection that follows; it exits
+ * when the coordinator sends SHUTDOWN or closes the socket. Requests are
+ * an op byte and its arguments; every request gets one response, in
+ * order, starting with a status byte (OK, or ERROR and a message).
+ * Responses are only flushed once no further request is buffered, so a
+ * coordinator that pipelines requests gets its answers in few packets.
+ */
+public class PartitionWorker {
+    static final String READY = "READY";
+
+    static final int SHUTDOWN = 0;
+    static final int ADD = 1;           // n, then n x (id, value)         -> n
+    static final int SUM = 2;           // expression                      -> long
+    static final int COUNT = 3;         // expression                      -> int
+    static final int ROWS = 4;          // expression                      -> n, then n x (id, value)
+    static final int GROUP_BY_ID = 5;   //                                 -> n, then n x (id, sum, count, min, max)
+    static final int TOP_K = 6;         // k                               -> n, then n x (id, total)
+    static final int ROW_COUNT = 7;     //                                 -> int
+    static final int DELETE_ID = 8;     // id                              -> int
+    static final int SUMMARIZE = 9;     // expression                      -> ValueSummary
+
+    static final int OK = 0;
+    static final int ERROR = 1;
+
+    private final DataFilter filter;
+
+    PartitionWorker(DataFilter filter) {
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            System.out.println(READY + " " + server.getLocalPort());
+            System.out.flush();
+            try (Socket socket = server.accept()) {
+                socket.setTcpNoDelay(true);
+                new PartitionWorker(new DataFilter()).serve(socket.getInputStream(), socket.getOutputStream());
+            }
+        }
+    }
+
+    void serve(InputStream input, OutputStream output) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        while (true) {
+            int op;
+            try {
+                op = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            if (op == SHUTDOWN) {
+                out.flush();
+                return;
+            }
+            handle(op, in, out);
+            if (in.available() == 0) {
+                out.flush();
+            }
+        }
+    }
+
+    // Reads the whole request before running it, so a failed request
+    // leaves the stream at the next one
+    private void handle(int op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case ADD: {
+                int rows = in.readInt();
+                String[] ids = new String[rows];
+                int[] values = new int[rows];
+                for (int i = 0; i < rows; i++) {
+                    ids[i] = in.readUTF();
+                    values[i] = in.readInt();
+                }
+                try {
+                    for (int i = 0; i < rows; i++) {
+                        filter.addData(ids[i], values[i]);
+                    }
+                } catch (RuntimeException e) {
+                    error(out, e);
+                    return;
+                }
+                out.writeByte(OK);
+                out.writeInt(rows);
+                return;
+            }
+            case SUM:
+            case COUNT:
+            case ROWS:
+            case SUMMARIZE: {
+                FilterExpression expression = FilterExpression.readFrom(in);
+                try {
+                    if (op == SUM) {
+                        long sum = filter.sum(expression);
+                        out.writeByte(OK);
+                        out.writeLong(sum);
+                    } else if (op == COUNT) {
+                        int count = filter.count(expression);
+                        out.writeByte(OK);
+                        out.writeInt(count);
+                    } else if (op == SUMMARIZE) {
+                        ValueSummary summary = filter.summarize(expression);
+                        out.writeByte(OK);
+                        summary.writeTo(out);
+                    } else {
+                        List<LabelValue> rows = filter.getFilteredData(expression);
+                        out.writeByte(OK);
+                        out.writeInt(rows.size());
+                        for (LabelValue row : rows) {
+                            out.writeUTF(row.getId().getValue());
+                            out.writeInt(row.getValue());
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    error(out, e);
+                }
+                return;
+            }
+            case GROUP_BY_ID: {
+                Map<ID, IDTotals> grouped;
+                try {
+                    grouped = filter.groupByID();
+                } catch (RuntimeException e) {
+                    error(out, e);
+                    return;
+                }
+                out.writeByte(OK);
+                out.writeInt(grouped.size());
+                for (IDTotals totals : grouped.values()) {
+                    out.writeUTF(totals.getId().getValue());
+                    out.writeLong(totals.getSum());
+                    out.writeLong(totals.getCount());
+                    out.writeInt(totals.getMin());
+                    out.writeInt(totals.getMax());
+                }
+                return;
+            }
+            case TOP_K: {
+                int k = in.readInt();
+                List<HeavyHitter> top;
+                try {
+                    top = filter.topK(k);
+                } catch (RuntimeException e) {
+                    error(out, e);
+                    return;
+                }
+                out.writeByte(OK);
+                out.writeInt(top.size());
+                for (HeavyHitter hitter : top) {
+                    out.writeUTF(hitter.getId().getValue());
+                    out.writeLong(hitter.getTotal());
+                }
+                return;
+            }
+            case ROW_COUNT: {
+                int rows;
+                try {
+                    rows = filter.getRowCount();
+                } catch (RuntimeException e) {
+                    error(out, e);
+                    return;
+                }
+                out.writeByte(OK);
+                out.writeInt(rows);
+                return;
+            }
+            case DELETE_ID: {
+                String id = in.readUTF();
+                int deleted;
+                try {
+                    deleted = filter.deleteID(id);
+                } catch (RuntimeException e) {
+                    error(out, e);
+                    return;
+                }
+                out.writeByte(OK);
+                out.writeInt(deleted);
+                return;
+            }
+            default:
+                // The arguments cannot be skipped, so the stream is lost
+                throw new IOException("Unknown request: " + op);
+        }
+    }
+
+    private static void error(DataOutputStream out, RuntimeException e) throws IOException {
+        out.writeByte(ERROR);
+        out.writeUTF(String.valueOf(e.getMessage()));
+    }
+}
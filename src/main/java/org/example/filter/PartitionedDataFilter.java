@@ -0,0 +1,460 @@
+package org.example.filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataFilter split over worker JVMs on this machine, so the rows need not
+ * fit in one heap.
+ *
+ * IDs are hash-partitioned: every row of an ID goes to the same worker
+ * (see PartitionWorker), so per-ID results come from one worker and the
+ * group-by and top-K results of different workers never overlap. Rows
+ * are sent in batches of batchRows per worker, and up to
+ * MAX_PENDING_BATCHES batches per worker are in flight before the
+ * coordinator waits for an acknowledgement, so the workers index rows
+ * in parallel while the coordinator keeps sending. Every query first
+ * sends the buffered rows, so it sees every row added before it.
+ *
+ * Queries are scattered to every worker before any answer is read, then
+ * gathered and merged; expressions that name their IDs only go to the
+ * workers that own them. Network failures surface as UncheckedIOException,
+ * failed requests as IllegalStateException. One thread at a time.
+ */
+public class PartitionedDataFilter implements Closeable {
+    public static final int DEFAULT_BATCH_ROWS = 4096;
+    static final int MAX_PENDING_BATCHES = 8;
+
+    private final Partition[] partitions;
+    private int batchRows = DEFAULT_BATCH_ROWS;
+
+    private PartitionedDataFilter(Partition[] partitions) {
+        this.partitions = partitions;
+    }
+
+    // Starts the workers with this JVM's java and class path; jvmOptions
+    // (for example "-Xmx512m") apply to each worker
+    public static PartitionedDataFilter startLocal(int workers, String... jvmOptions) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workers);
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(jvmOptions));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PartitionWorker.class.getName());
+
+        // All workers start before any is waited for, so their startups overlap
+        List<Process> processes = new ArrayList<>();
+        Partition[] partitions = new Partition[workers];
+        try {
+            for (int i = 0; i < workers; i++) {
+                processes.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+            for (int i = 0; i < workers; i++) {
+                partitions[i] = new Partition(i, processes.get(i), readPort(processes.get(i)));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+            throw e;
+        }
+        return new PartitionedDataFilter(partitions);
+    }
+
+    private static int readPort(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line == null || !line.startsWith(PartitionWorker.READY + " ")) {
+            throw new IOException("Worker did not start: " + line);
+        }
+        return Integer.parseInt(line.substring(PartitionWorker.READY.length() + 1).trim());
+    }
+
+    public void setBatchRows(int batchRows) {
+        if (batchRows < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchRows);
+        }
+        flush();
+        this.batchRows = batchRows;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    // Same default as new ID(null)
+    private static String idValue(String id) {
+        return id != null ? id : "Q0000";
+    }
+
+    int partitionOf(String id) {
+        int hash = id.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+    }
+
+    public void addData(LabelValue item) {
+        addData(item.getId().getValue(), item.getValue());
+    }
+
+    public void addData(String id, int value) {
+        String key = idValue(id);
+        try {
+            partitions[partitionOf(key)].add(key, value, batchRows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Sends the buffered rows and waits until every worker has added them
+    public void flush() {
+        try {
+            for (Partition partition : partitions) {
+                partition.sendBatch();
+            }
+            for (Partition partition : partitions) {
+                partition.sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getRowCount() {
+        long rows = 0;
+        for (int count : getPartitionRowCounts()) {
+            rows += count;
+        }
+        return rows;
+    }
+
+    // Rows held by each worker, in partition order
+    public int[] getPartitionRowCounts() {
+        List<Integer> counts = gather(all(), PartitionWorker.ROW_COUNT, out -> { }, DataInput::readInt);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Sums are kept as longs; as in DataFilter, one outside the int range throws
+    public int filterByIDAndSum(String targetId) {
+        return Math.toIntExact(sum(FilterExpression.idEquals(targetId)));
+    }
+
+    public int filterByIDAndSum(ID targetId) {
+        return filterByIDAndSum(targetId.getValue());
+    }
+
+    public ResultValue filterBy(FilterExpression filter) {
+        return new ResultValue(sum(filter));
+    }
+
+    public long sum(FilterExpression filter) {
+        long sum = 0;
+        for (long partial : gather(owners(filter), PartitionWorker.SUM, filter::writeTo, DataInput::readLong)) {
+            sum += partial;
+        }
+        return sum;
+    }
+
+    // A long, as the rows of all workers together may pass the int range
+    public long count(FilterExpression filter) {
+        long count = 0;
+        for (int partial : gather(owners(filter), PartitionWorker.COUNT, filter::writeTo, DataInput::readInt)) {
+            count += partial;
+        }
+        return count;
+    }
+
+    // Summary of the ID's values, from the worker that holds them
+    public ValueSummary summarize(String id) {
+        return summarize(FilterExpression.idEquals(id));
+    }
+
+    // The workers' summaries of their matching rows, merged
+    public ValueSummary summarize(FilterExpression filter) {
+        ValueSummary summary = new ValueSummary();
+        for (ValueSummary partial : gather(owners(filter), PartitionWorker.SUMMARIZE, filter::writeTo,
+                ValueSummary::readFrom)) {
+            summary.merge(partial);
+        }
+        return summary;
+    }
+
+    // Matching rows, worker by worker, each worker's in row order
+    public List<LabelValue> getFilteredData(FilterExpression filter) {
+        List<LabelValue> rows = new ArrayList<>();
+        for (List<LabelValue> partial : gather(owners(filter), PartitionWorker.ROWS, filter::writeTo, in -> {
+            int count = in.readInt();
+            List<LabelValue> part = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                part.add(new LabelValue(in.readUTF(), in.readInt()));
+            }
+            return part;
+        })) {
+            rows.addAll(partial);
+        }
+        return rows;
+    }
+
+    // Every worker groups its own IDs; no ID is in two groups, so merging is
+    // a sort by ID
+    public Map<ID, IDTotals> groupByID() {
+        List<IDTotals> results = new ArrayList<>();
+        for (List<IDTotals> partial : gather(all(), PartitionWorker.GROUP_BY_ID, out -> { }, in -> {
+            int count = in.readInt();
+            List<IDTotals> part = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                part.add(new IDTotals(new ID(in.readUTF()), in.readLong(), in.readLong(), in.readInt(), in.readInt()));
+            }
+            return part;
+        })) {
+            results.addAll(partial);
+        }
+        results.sort(Comparator.comparing(totals -> totals.getId().getValue()));
+        Map<ID, IDTotals> grouped = new LinkedHashMap<>();
+        for (IDTotals totals : results) {
+            grouped.put(totals.getId(), totals);
+        }
+        return grouped;
+    }
+
+    // The k IDs with the largest sums, largest first; the global top k are
+    // among the workers' top k, since each ID lives on one worker
+    public List<HeavyHitter> topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative: " + k);
+        }
+        List<HeavyHitter> candidates = new ArrayList<>();
+        for (List<HeavyHitter> partial : gather(all(), PartitionWorker.TOP_K, out -> out.writeInt(k), in -> {
+            int count = in.readInt();
+            List<HeavyHitter> part = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                part.add(new HeavyHitter(new ID(in.readUTF()), in.readLong(), 0));
+            }
+            return part;
+        })) {
+            candidates.addAll(partial);
+        }
+        candidates.sort(Comparator.comparingLong(HeavyHitter::getTotal).reversed()
+                .thenComparing(hitter -> hitter.getId().getValue()));
+        return new ArrayList<>(candidates.subList(0, Math.min(k, candidates.size())));
+    }
+
+    // Deletes every row of the ID on its worker; returns how many there were
+    public int deleteID(String id) {
+        String key = idValue(id);
+        return gather(new Partition[] {partitions[partitionOf(key)]}, PartitionWorker.DELETE_ID,
+                out -> out.writeUTF(key), DataInput::readInt).get(0);
+    }
+
+    private Partition[] all() {
+        return partitions;
+    }
+
+    // The workers that can hold matching rows
+    private Partition[] owners(FilterExpression filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter expression cannot be null");
+        }
+        List<String> ids = filter.namedIds();
+        if (ids == null) {
+            return partitions;
+        }
+        boolean[] owner = new boolean[partitions.length];
+        for (String id : ids) {
+            owner[partitionOf(id)] = true;
+        }
+        List<Partition> owners = new ArrayList<>();
+        for (int i = 0; i < partitions.length; i++) {
+            if (owner[i]) {
+                owners.add(partitions[i]);
+            }
+        }
+        return owners.toArray(new Partition[0]);
+    }
+
+    private interface Request {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private interface Response<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    // Sends the request to every target, then reads the answers in the same order
+    private <T> List<T> gather(Partition[] targets, int op, Request request, Response<T> response) {
+        try {
+            for (Partition partition : targets) {
+                partition.sendBatch();
+            }
+            // Every target is synced before any request is written, so a
+            // failed batch leaves no request whose answer would go unread
+            IllegalStateException batchFailure = null;
+            for (Partition partition : targets) {
+                try {
+                    partition.sync();
+                } catch (IllegalStateException e) {
+                    batchFailure = e;
+                }
+            }
+            if (batchFailure != null) {
+                throw batchFailure;
+            }
+            for (Partition partition : targets) {
+                partition.out.writeByte(op);
+                request.write(partition.out);
+                partition.out.flush();
+            }
+            // Every answer is read, even after a failed one, to keep the streams in step
+            List<T> results = new ArrayList<>(targets.length);
+            IllegalStateException failure = null;
+            for (Partition partition : targets) {
+                try {
+                    partition.readStatus();
+                    results.add(response.read(partition.in));
+                } catch (IllegalStateException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Stops the workers; their rows are gone
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Partition partition : partitions) {
+            try {
+                partition.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Partition {
+        final int number;
+        final Process process;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        String[] ids = new String[16];
+        int[] values = new int[16];
+        int buffered;
+        // ADD batches sent but not yet acknowledged
+        int pendingBatches;
+
+        Partition(int number, Process process, int port) throws IOException {
+            this.number = number;
+            this.process = process;
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        }
+
+        void add(String id, int value, int batchRows) throws IOException {
+            if (buffered == ids.length) {
+                int capacity = Math.min(batchRows, buffered * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            ids[buffered] = id;
+            values[buffered] = value;
+            buffered++;
+            if (buffered >= batchRows) {
+                sendBatch();
+            }
+        }
+
+        // Sends the buffered rows without waiting for them to be added,
+        // unless too many batches are already waiting
+        void sendBatch() throws IOException {
+            if (buffered == 0) {
+                return;
+            }
+            out.writeByte(PartitionWorker.ADD);
+            out.writeInt(buffered);
+            for (int i = 0; i < buffered; i++) {
+                out.writeUTF(ids[i]);
+                out.writeInt(values[i]);
+                ids[i] = null;
+            }
+            out.flush();
+            buffered = 0;
+            pendingBatches++;
+            while (pendingBatches > MAX_PENDING_BATCHES) {
+                readAck();
+            }
+        }
+
+        // Waits for every batch sent so far; after a failed batch the rest
+        // stay pending for the next call
+        void sync() throws IOException {
+            while (pendingBatches > 0) {
+                readAck();
+            }
+        }
+
+        private void readAck() throws IOException {
+            pendingBatches--;
+            readStatus();
+            in.readInt();
+        }
+
+        void readStatus() throws IOException {
+            int status = in.readByte();
+            if (status != PartitionWorker.OK) {
+                throw new IllegalStateException("Worker " + number + ": " + in.readUTF());
+            }
+        }
+
+        void close() throws IOException {
+            try {
+                out.writeByte(PartitionWorker.SHUTDOWN);
+                out.flush();
+                socket.close();
+            } finally {
+                try {
+                    if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.filter;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Load and query throughput of a PartitionedDataFilter with 1 to 8 local
+ * worker JVMs, and the rows each worker has to hold.
+ * Usage: PartitionedFilterBenchmark [rows] [distinctIDs]   (defaults 10,000,000 and 100,000)
+ */
+public class PartitionedFilterBenchmark {
+    private static final int[] WORKER_COUNTS = {1, 2, 4, 8};
+    private static final int SCANS = 20;
+    private static final int LOOKUPS = 10_000;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int distinct = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        String[] ids = new String[distinct];
+        for (int i = 0; i < distinct; i++) {
+            ids[i] = String.format("Q%04d", i);
+        }
+
+        System.out.printf("%,d rows over %,d IDs, %d processors%n", rows, distinct,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %16s %16s %16s %18s%n", "workers", "load (rows/s)", "scans (/s)",
+                "lookups (/s)", "rows per worker");
+        for (int workers : WORKER_COUNTS) {
+            try (PartitionedDataFilter filter = PartitionedDataFilter.startLocal(workers)) {
+                SplittableRandom random = new SplittableRandom(1);
+                long begin = System.nanoTime();
+                for (int i = 0; i < rows; i++) {
+                    filter.addData(ids[random.nextInt(distinct)], i & 1023);
+                }
+                filter.flush();
+                double loadRate = rows / seconds(begin);
+
+                // Value ranges name no IDs, so every worker scans its rows
+                begin = System.nanoTime();
+                for (int i = 0; i < SCANS; i++) {
+                    filter.sum(FilterExpression.valueRange(i, 1000 - i));
+                }
+                double scanRate = SCANS / seconds(begin);
+
+                begin = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    filter.filterByIDAndSum(ids[random.nextInt(distinct)]);
+                }
+                double lookupRate = LOOKUPS / seconds(begin);
+
+                int largest = 0;
+                for (int count : filter.getPartitionRowCounts()) {
+                    largest = Math.max(largest, count);
+                }
+                System.out.printf("%8d %,16.0f %,16.1f %,16.0f %,18d%n", workers, loadRate, scanRate, lookupRate,
+                        largest);
+            }
+        }
+    }
+
+    private static double seconds(long begin) {
+        return (System.nanoTime() - begin) / 1e9;
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Quantiles of int values with a relative error bound, in logarithmic
+ * buckets (the DDSketch scheme). A value v != 0 is counted in bucket
+ * ceil(log_gamma |v|) of its sign, gamma = (1 + a) / (1 - a) for relative
+ * accuracy a, and a quantile is answered with its bucket's midpoint, which
+ * is within a * |v| of the true value. Buckets are dense arrays covering
+ * only the indexes seen, at most about 1,100 per sign for a = 1%.
+ * Merging adds bucket counts, so the merge of two sketches is the sketch
+ * of all their values, whatever the order they were added or merged in.
+ */
+public class QuantileSketch {
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+    private final double relativeAccuracy;
+    private final double logGamma;
+    private final Buckets positive = new Buckets();
+    private final Buckets negative = new Buckets();
+    private long zeros;
+    private long count;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+    }
+
+    public void add(int value) {
+        if (value > 0) {
+            positive.add(bucket(value), 1);
+        } else if (value < 0) {
+            negative.add(bucket(-(long) value), 1);
+        } else {
+            zeros++;
+        }
+        count++;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    private int bucket(long magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    // Midpoint of the bucket in relative terms, so either end is within the bound
+    private double bucketValue(int bucket) {
+        return 2 * Math.exp(bucket * logGamma) / (1 + Math.exp(logGamma));
+    }
+
+    // The value at rank q * (count - 1) in sorted order, q from 0 to 1;
+    // the smallest and largest values are exact; NaN when no values were added
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be from 0 to 1: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank == 0) {
+            return min;
+        }
+        if (rank == count - 1) {
+            return max;
+        }
+        double value;
+        long seen = negative.count;
+        if (rank < seen) {
+            // Negative values sort from the largest magnitude down
+            value = -bucketValue(negative.bucketAt(negative.count - 1 - rank));
+        } else if (rank < (seen += zeros)) {
+            value = 0;
+        } else {
+            value = bucketValue(positive.bucketAt(rank - seen));
+        }
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge relative accuracy " + other.relativeAccuracy
+                    + " into " + relativeAccuracy);
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeros += other.zeros;
+        count += other.count;
+        if (other.min < min) min = other.min;
+        if (other.max > max) max = other.max;
+    }
+
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(relativeAccuracy);
+        copy.merge(this);
+        return copy;
+    }
+
+    public long getCount() { return count; }
+    public double getRelativeAccuracy() { return relativeAccuracy; }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeDouble(relativeAccuracy);
+        out.writeLong(zeros);
+        out.writeInt(min);
+        out.writeInt(max);
+        positive.writeTo(out);
+        negative.writeTo(out);
+    }
+
+    static QuantileSketch readFrom(DataInput in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch(in.readDouble());
+        sketch.zeros = in.readLong();
+        sketch.min = in.readInt();
+        sketch.max = in.readInt();
+        sketch.positive.readFrom(in);
+        sketch.negative.readFrom(in);
+        sketch.count = sketch.zeros + sketch.positive.count + sketch.negative.count;
+        return sketch;
+    }
+
+    @Override
+    public String toString() {
+        if (count == 0) {
+            return "QuantileSketch(count=0)";
+        }
+        return String.format("QuantileSketch(count=%d, p50=%.1f, p99=%.1f)", count, quantile(0.5), quantile(0.99));
+    }
+
+    // Counts for bucket indexes offset .. offset + counts.length - 1
+    private static final class Buckets {
+        long[] counts = new long[0];
+        int offset;
+        long count;
+
+        void add(int bucket, long n) {
+            if (counts.length == 0) {
+                counts = new long[8];
+                offset = bucket;
+            } else if (bucket < offset) {
+                int grow = Math.max(offset - bucket, counts.length / 2);
+                long[] grown = new long[counts.length + grow];
+                System.arraycopy(counts, 0, grown, grow, counts.length);
+                counts = grown;
+                offset -= grow;
+            } else if (bucket >= offset + counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(bucket - offset + 1, counts.length * 3 / 2));
+            }
+            counts[bucket - offset] += n;
+            count += n;
+        }
+
+        // Bucket holding the value of this rank, counted from the smallest bucket
+        int bucketAt(long rank) {
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (rank < seen) {
+                    return offset + i;
+                }
+            }
+            throw new IllegalStateException("Rank " + rank + " of " + count);
+        }
+
+        void merge(Buckets other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeInt(offset);
+            out.writeInt(counts.length);
+            for (long n : counts) {
+                out.writeLong(n);
+            }
+        }
+
+        void readFrom(DataInput in) throws IOException {
+            offset = in.readInt();
+            counts = new long[in.readInt()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = in.readLong();
+                count += counts[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Least-recently-used cache of DataFilter query results, keyed by the kind
+ * of query and the expression's canonical form (see
+ * FilterExpression.canonicalKey), which lists IDs sorted and once each.
+ * An added row drops only the results it can change: results limited to
+ * named IDs are found through a map from ID to entries, the rest (prefix,
+ * range and value queries) are each asked whether the row's ID can match.
+ * Cached row lists are unmodifiable and handed to every caller as is;
+ * their rows are created on each read, so callers cannot change them.
+ * A result computed while a row was being added is not stored.
+ */
+public class QueryCache {
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Entry>> entriesById = new HashMap<>();
+    private final Set<Entry> unnamed = new LinkedHashSet<>();
+    // Codes whose rows no entry depends on, until the next entry is added
+    private final IntLongHashMap unaffectedCodes = new IntLongHashMap();
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    // Lets the writer skip the lock while nothing is cached
+    private volatile int size;
+    // Bumped by every added row; a result is only stored if it did not move
+    private volatile long version;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    // The cached result, or the computed one, stored when the data did not change meanwhile
+    @SuppressWarnings("unchecked")
+    <T> T lookup(String kind, FilterExpression filter, Supplier<T> query) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter expression cannot be null");
+        }
+        String canonical = filter.canonicalKey();
+        if (canonical == null) {
+            return query.get();
+        }
+        String key = kind + ' ' + canonical;
+        long before = version;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return (T) entry.result;
+            }
+            misses++;
+        }
+        T result = query.get();
+        synchronized (this) {
+            if (maxEntries > 0 && version == before && !entries.containsKey(key)) {
+                add(new Entry(key, filter, result));
+            }
+        }
+        return result;
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.key, entry);
+        unaffectedCodes.clear();
+        if (entry.namedIds != null) {
+            for (String id : entry.namedIds) {
+                entriesById.computeIfAbsent(id, unused -> new LinkedHashSet<>()).add(entry);
+            }
+        } else {
+            unnamed.add(entry);
+        }
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        while (entries.size() > maxEntries) {
+            Iterator<Entry> eldest = entries.values().iterator();
+            Entry evicted = eldest.next();
+            eldest.remove();
+            unlink(evicted);
+            evictions++;
+        }
+        size = entries.size();
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.key);
+        unlink(entry);
+        invalidations++;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.namedIds == null) {
+            unnamed.remove(entry);
+            return;
+        }
+        for (String id : entry.namedIds) {
+            Set<Entry> forId = entriesById.get(id);
+            if (forId != null) {
+                forId.remove(entry);
+                if (forId.isEmpty()) {
+                    entriesById.remove(id);
+                }
+            }
+        }
+    }
+
+    // Called by the writer after a row with this code is added
+    void invalidate(IDIndex index, int code) {
+        version++;
+        if (size == 0) {
+            return;
+        }
+        synchronized (this) {
+            if (unaffectedCodes.containsKey(code)) {
+                return;
+            }
+            String id = index.idOf(code);
+            List<Entry> matching = new ArrayList<>();
+            Set<Entry> forId = entriesById.get(id);
+            if (forId != null) {
+                matching.addAll(forId);
+            }
+            for (Entry entry : unnamed) {
+                if (entry.filter.mayMatchId(id)) {
+                    matching.add(entry);
+                }
+            }
+            if (matching.isEmpty()) {
+                unaffectedCodes.put(code, 1);
+            }
+            for (Entry entry : matching) {
+                remove(entry);
+            }
+            size = entries.size();
+        }
+    }
+
+    public synchronized void clear() {
+        version++;
+        invalidations += entries.size();
+        entries.clear();
+        entriesById.clear();
+        unaffectedCodes.clear();
+        unnamed.clear();
+        size = 0;
+    }
+
+    // 0 turns caching off
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        evictOverflow();
+    }
+
+    public synchronized int getMaxEntries() { return maxEntries; }
+    public int size() { return size; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getInvalidations() { return invalidations; }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits / (double) lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("QueryCache(entries=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, invalidations=%d)",
+                entries.size(), maxEntries, hits, misses, getHitRate() * 100, evictions, invalidations);
+    }
+
+    private static class Entry {
+        final String key;
+        final FilterExpression filter;
+        final Object result;
+        final List<String> namedIds;
+
+        Entry(String key, FilterExpression filter, Object result) {
+            this.key = key;
+            this.filter = filter;
+            this.result = result;
+            this.namedIds = filter.namedIds();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.filter;
+
+// RejectedID.java - A data file row left out of the filter, with the reason
+public class RejectedID {
+    private final long line;
+    private final String id;
+    private final String reason;
+
+    public RejectedID(long line, String id, String reason) {
+        this.line = line;
+        this.id = id;
+        this.reason = reason;
+    }
+
+    // Line is 1-based in the file; reasons for IDs are the IDValidator notes
+    public long getLine() { return line; }
+    public String getId() { return id; }
+    public String getReason() { return reason; }
+
+    @Override
+    public String toString() {
+        return String.format("RejectedID(line=%d, id='%s', reason='%s')", line, id, reason);
+    }
+}
@@ -1,7 +1,9 @@
 package org.example.filter;
 
+// The sum is kept as a long; getSum throws ArithmeticException when it is
+// outside the int range, getLongSum gives the whole sum
 public class ResultValue {
-    private int sum;
+    private long sum;
 
     public ResultValue() {
         this.sum = 0;
@@ -11,9 +13,15 @@ public class ResultValue {
         this.sum = sum;
     }
 
+    public ResultValue(long sum) {
+        this.sum = sum;
+    }
+
     // Getters and setters
-    public int getSum() { return sum; }
+    public int getSum() { return Math.toIntExact(sum); }
+    public long getLongSum() { return sum; }
     public void setSum(int sum) { this.sum = sum; }
+    public void setSum(long sum) { this.sum = sum; }
 
     @Override
     public String toString() {
@@ -0,0 +1,78 @@
+package org.example.filter;
+
+/**
+ * Forward-only cursor over a range of DataFilter rows.
+ * Reading code() and value() allocates nothing; id() and toLabelValue()
+ * build the String and LabelValue for callers that need them.
+ * Deleted rows are stepped over; row() counts only the rows the cursor
+ * can stop on.
+ *
+ *   RowCursor cursor = filter.snapshot().cursor();
+ *   while (cursor.next()) {
+ *       total += cursor.value();
+ *   }
+ */
+public class RowCursor {
+    private final LabelValueColumns columns;
+    private final IDIndex index;
+    private final Tombstones tombstones;
+    private final int end;
+    // Position in the columns, and the row number callers see
+    private int position;
+    private int row;
+    private boolean onRow;
+
+    // Columns positions from (inclusive) to (exclusive); firstRow numbers the first live one
+    RowCursor(LabelValueColumns columns, IDIndex index, Tombstones tombstones, int from, int to, int firstRow) {
+        this.columns = columns;
+        this.index = index;
+        this.tombstones = tombstones;
+        this.position = from - 1;
+        this.row = firstRow - 1;
+        this.end = to;
+    }
+
+    // Moves to the next row; false once the range is used up
+    public boolean next() {
+        do {
+            if (position + 1 >= end) {
+                position = end;
+                onRow = false;
+                return false;
+            }
+            position++;
+        } while (tombstones.dead() > 0 && tombstones.isDead(position));
+        row++;
+        onRow = true;
+        return true;
+    }
+
+    public int row() {
+        checkRow();
+        return row;
+    }
+
+    public int code() {
+        checkRow();
+        return columns.code(position);
+    }
+
+    public int value() {
+        checkRow();
+        return columns.value(position);
+    }
+
+    public String id() {
+        return index.idOf(code());
+    }
+
+    public LabelValue toLabelValue() {
+        return new LabelValue(id(), value());
+    }
+
+    private void checkRow() {
+        if (!onRow) {
+            throw new IllegalStateException("Cursor is not on a row");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.filter;
+
+/**
+ * A FilterExpression compiled against one IDIndex.
+ * test checks a single row; evaluate checks a whole column chunk and
+ * writes one bit per row (bit r % 64 of word r / 64), so each leaf runs
+ * a tight loop over one primitive column.
+ */
+interface RowFilter {
+    boolean test(int code, int value);
+
+    // Bits past length in the last word are left clear
+    void evaluate(int[] codes, int[] values, int length, long[] bits);
+}
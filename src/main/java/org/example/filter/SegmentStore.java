@@ -0,0 +1,655 @@
+package org.example.filter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Durable, append-only storage of DataFilter rows in a directory.
+ *
+ * Rows go to the active segment file as 8-byte (ID code, value) records.
+ * When it holds rowsPerSegment rows it is sealed: its per-ID summary
+ * (count and sum of every ID in it) is written next to it and a new
+ * active segment is started. IDs that cannot be packed get codes from an
+ * append-only dictionary file. A MANIFEST file, replaced atomically,
+ * names the sealed segments and the active one; files it does not name
+ * are left-overs of an interrupted seal or compaction and are deleted
+ * on open.
+ *
+ * Opening a store reads only the dictionary, the summaries and the
+ * active segment, so sum and count work at once; loadInto reads the
+ * rows into a DataFilter when they are needed. Compaction merges sealed
+ * segments into one segment with one summary, so startup reads fewer
+ * files; it runs on a background thread and only appends are blocked
+ * while the manifest is swapped. Appends come from one thread.
+ *
+ * Every sealed segment has a Bloom filter over its IDs, built from its
+ * summary, so getFilteredData only reads the segments that may hold the ID.
+ */
+public class SegmentStore implements Closeable {
+    public static final int DEFAULT_ROWS_PER_SEGMENT = 1 << 20;
+
+    private static final String MANIFEST = "MANIFEST";
+    private static final String DICTIONARY = "ids.dict";
+    private static final int SUMMARY_MAGIC = 0x49445355; // "IDSU"
+    private static final int SUMMARY_VERSION = 1;
+    private static final int ROW_BYTES = 8;
+    private static final int LOAD_BATCH_ROWS = 1 << 16;
+    private static final double SEGMENT_FALSE_POSITIVE_RATE = 0.01;
+
+    private final Path directory;
+    private final int rowsPerSegment;
+    // Codes for IDs that cannot be packed, in dictionary file order
+    private final IDIndex dictionary = new IDIndex();
+    private final IntLongHashMap totalSums = new IntLongHashMap();
+    private final IntLongHashMap totalCounts = new IntLongHashMap();
+
+    private final List<Segment> sealed = new ArrayList<>();
+    private long nextSegment;
+    private Segment active;
+    private FileChannel activeChannel;
+    private FileChannel dictionaryChannel;
+    private final ByteBuffer rowBuffer = ByteBuffer.allocate(ROW_BYTES * 8192);
+    private IntLongHashMap activeSums = new IntLongHashMap();
+    private IntLongHashMap activeCounts = new IntLongHashMap();
+    private ExecutorService compactor;
+    // One compaction at a time: two would merge the same sealed segments
+    private boolean compacting;
+    // Files replaced by compaction wait here while a load may still open them
+    private int loadsInProgress;
+    private final List<Path> pendingDeletes = new ArrayList<>();
+    private long segmentsSkipped;
+    private long segmentsRead;
+    private long segmentFalsePositives;
+
+    private SegmentStore(Path directory, int rowsPerSegment) {
+        this.directory = directory;
+        this.rowsPerSegment = rowsPerSegment;
+    }
+
+    public static SegmentStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_ROWS_PER_SEGMENT);
+    }
+
+    public static SegmentStore open(Path directory, int rowsPerSegment) throws IOException {
+        if (rowsPerSegment < 1) {
+            throw new IllegalArgumentException("Rows per segment must be positive: " + rowsPerSegment);
+        }
+        Files.createDirectories(directory);
+        SegmentStore store = new SegmentStore(directory, rowsPerSegment);
+        store.recover();
+        return store;
+    }
+
+    // ---- Startup ----
+
+    private void recover() throws IOException {
+        readDictionary();
+        readManifest();
+        deleteUnlistedFiles();
+
+        long firstRow = 0;
+        for (Segment segment : sealed) {
+            segment.firstRow = firstRow;
+            firstRow += segment.rowCount;
+            readSummary(segment);
+        }
+
+        // The active segment is scanned; a record cut short by a crash is dropped
+        Path rows = directory.resolve(active.rowsFile());
+        activeChannel = FileChannel.open(rows, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+        long size = activeChannel.size() - activeChannel.size() % ROW_BYTES;
+        activeChannel.truncate(size);
+        activeChannel.position(size);
+        active.firstRow = firstRow;
+        active.rowCount = size / ROW_BYTES;
+        forEachRow(activeChannel, size, (code, value) -> {
+            activeSums.addTo(code, value);
+            activeCounts.addTo(code, 1);
+        });
+        activeSums.forEach(totalSums::addTo);
+        activeCounts.forEach(totalCounts::addTo);
+    }
+
+    private void readDictionary() throws IOException {
+        Path file = directory.resolve(DICTIONARY);
+        dictionaryChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+        long size = dictionaryChannel.size();
+        long valid = 0;
+        if (size > 0) {
+            MappedByteBuffer buffer = dictionaryChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                dictionary.codeFor(new String(bytes, StandardCharsets.UTF_8));
+                valid = buffer.position();
+            }
+        }
+        dictionaryChannel.truncate(valid);
+        dictionaryChannel.position(valid);
+    }
+
+    private void readManifest() throws IOException {
+        Path file = directory.resolve(MANIFEST);
+        if (!Files.exists(file)) {
+            nextSegment = 2;
+            active = new Segment(1);
+            writeManifest();
+            return;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] parts = line.trim().split(" ");
+            switch (parts[0]) {
+                case "next":
+                    nextSegment = Long.parseLong(parts[1]);
+                    break;
+                case "active":
+                    active = new Segment(Long.parseLong(parts[1]));
+                    break;
+                case "sealed":
+                    Segment segment = new Segment(Long.parseLong(parts[1]));
+                    segment.rowCount = Long.parseLong(parts[2]);
+                    sealed.add(segment);
+                    break;
+                default:
+                    if (!parts[0].isEmpty()) {
+                        throw new IOException("Bad manifest line: " + line);
+                    }
+            }
+        }
+        if (active == null) {
+            throw new IOException("Manifest names no active segment");
+        }
+    }
+
+    private void deleteUnlistedFiles() throws IOException {
+        Set<String> listed = new HashSet<>(Arrays.asList(MANIFEST, DICTIONARY, active.rowsFile()));
+        for (Segment segment : sealed) {
+            listed.add(segment.rowsFile());
+            listed.add(segment.summaryFile());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (!listed.contains(file.getFileName().toString())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void readSummary(Segment segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(segment.summaryFile())));
+        if (buffer.getInt() != SUMMARY_MAGIC || buffer.getInt() != SUMMARY_VERSION) {
+            throw new IOException("Not a segment summary: " + segment.summaryFile());
+        }
+        long rowCount = buffer.getLong();
+        if (rowCount != segment.rowCount) {
+            throw new IOException("Summary row count " + rowCount + " does not match manifest for "
+                    + segment.summaryFile());
+        }
+        int entries = buffer.getInt();
+        segment.ids = new BloomFilter(Math.max(1, entries), SEGMENT_FALSE_POSITIVE_RATE);
+        for (int i = 0; i < entries; i++) {
+            int code = buffer.getInt();
+            segment.ids.add(code);
+            long count = buffer.getLong();
+            long sum = buffer.getLong();
+            totalCounts.addTo(code, count);
+            totalSums.addTo(code, sum);
+        }
+    }
+
+    // ---- Appends ----
+
+    public void append(LabelValue item) throws IOException {
+        append(item.getId().getValue(), item.getValue());
+    }
+
+    public synchronized void append(String id, int value) throws IOException {
+        String idValue = id != null ? id : "Q0000";
+        int code = IDCodec.encode(idValue);
+        if (code == IDCodec.NO_CODE) {
+            code = dictionary.codeOf(idValue);
+            if (code == IDCodec.NO_CODE) {
+                code = dictionary.codeFor(idValue);
+                writeDictionaryEntry(idValue);
+            }
+        }
+        if (!rowBuffer.hasRemaining()) {
+            writeRows();
+        }
+        rowBuffer.putInt(code).putInt(value);
+        active.rowCount++;
+        activeSums.addTo(code, value);
+        activeCounts.addTo(code, 1);
+        totalSums.addTo(code, value);
+        totalCounts.addTo(code, 1);
+        if (active.rowCount >= rowsPerSegment) {
+            seal();
+        }
+    }
+
+    private void writeDictionaryEntry(String id) throws IOException {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length);
+        entry.putInt(bytes.length).put(bytes).flip();
+        while (entry.hasRemaining()) {
+            dictionaryChannel.write(entry);
+        }
+    }
+
+    private void writeRows() throws IOException {
+        rowBuffer.flip();
+        while (rowBuffer.hasRemaining()) {
+            activeChannel.write(rowBuffer);
+        }
+        rowBuffer.clear();
+    }
+
+    // Writes buffered rows and forces them and the dictionary to disk
+    public synchronized void flush() throws IOException {
+        writeRows();
+        dictionaryChannel.force(false);
+        activeChannel.force(false);
+    }
+
+    private void seal() throws IOException {
+        flush();
+        writeSummary(active, activeSums, activeCounts);
+        active.ids = idFilter(activeCounts);
+        activeChannel.close();
+
+        sealed.add(active);
+        Segment next = new Segment(nextSegment++);
+        next.firstRow = active.firstRow + active.rowCount;
+        active = next;
+        activeChannel = FileChannel.open(directory.resolve(active.rowsFile()), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+        activeSums = new IntLongHashMap();
+        activeCounts = new IntLongHashMap();
+        writeManifest();
+    }
+
+    private void writeSummary(Segment segment, IntLongHashMap sums, IntLongHashMap counts) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(24 + counts.size() * 20);
+        buffer.putInt(SUMMARY_MAGIC).putInt(SUMMARY_VERSION).putLong(segment.rowCount).putInt(counts.size());
+        counts.forEach((code, count) -> buffer.putInt(code).putLong(count).putLong(sums.get(code, 0)));
+        writeAtomically(directory.resolve(segment.summaryFile()), Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    private static BloomFilter idFilter(IntLongHashMap counts) {
+        BloomFilter ids = new BloomFilter(Math.max(1, counts.size()), SEGMENT_FALSE_POSITIVE_RATE);
+        counts.forEach((code, count) -> ids.add(code));
+        return ids;
+    }
+
+    private void writeManifest() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("next ").append(nextSegment).append('\n');
+        sb.append("active ").append(active.number).append('\n');
+        for (Segment segment : sealed) {
+            sb.append("sealed ").append(segment.number).append(' ').append(segment.rowCount).append('\n');
+        }
+        writeAtomically(directory.resolve(MANIFEST), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---- Queries ----
+
+    public synchronized long sum(String id) {
+        int code = codeOf(id);
+        return code == IDCodec.NO_CODE ? 0 : totalSums.get(code, 0);
+    }
+
+    public synchronized long count(String id) {
+        int code = codeOf(id);
+        return code == IDCodec.NO_CODE ? 0 : totalCounts.get(code, 0);
+    }
+
+    private int codeOf(String id) {
+        String idValue = id != null ? id : "Q0000";
+        int code = IDCodec.encode(idValue);
+        return code != IDCodec.NO_CODE ? code : dictionary.codeOf(idValue);
+    }
+
+    // Rows of one ID in stored order; sealed segments whose Bloom filter rules
+    // the ID out are not read, and an unknown ID reads nothing
+    public List<LabelValue> getFilteredData(String id) throws IOException {
+        List<Segment> segments;
+        Segment current;
+        long activeRows;
+        int code;
+        String idValue = id != null ? id : "Q0000";
+        synchronized (this) {
+            code = codeOf(idValue);
+            if (code == IDCodec.NO_CODE || totalCounts.get(code, 0) == 0) {
+                return new ArrayList<>();
+            }
+            // Reads only need the buffered rows written, not forced to disk
+            writeRows();
+            segments = new ArrayList<>(sealed);
+            current = active;
+            activeRows = active.rowCount;
+            loadsInProgress++;
+        }
+        List<LabelValue> rows = new ArrayList<>();
+        long skipped = 0;
+        long read = 0;
+        long falsePositives = 0;
+        try {
+            for (Segment segment : segments) {
+                if (!segment.ids.mightContain(code)) {
+                    skipped++;
+                    continue;
+                }
+                read++;
+                int before = rows.size();
+                readRows(segment, segment.rowCount, code, idValue, rows);
+                if (rows.size() == before) {
+                    segment.ids.recordFalsePositive();
+                    falsePositives++;
+                }
+            }
+            readRows(current, activeRows, code, idValue, rows);
+        } finally {
+            synchronized (this) {
+                loadsInProgress--;
+                segmentsSkipped += skipped;
+                segmentsRead += read;
+                segmentFalsePositives += falsePositives;
+            }
+            deletePending();
+        }
+        return rows;
+    }
+
+    private void readRows(Segment segment, long rowCount, int code, String id, List<LabelValue> rows)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve(segment.rowsFile()), StandardOpenOption.READ)) {
+            forEachRow(channel, rowCount * ROW_BYTES, (rowCode, value) -> {
+                if (rowCode == code) {
+                    rows.add(new LabelValue(id, (int) value));
+                }
+            });
+        }
+    }
+
+    // Sealed segments passed over or read by getFilteredData, and reads that found nothing
+    public synchronized long getSegmentsSkipped() { return segmentsSkipped; }
+    public synchronized long getSegmentsRead() { return segmentsRead; }
+    public synchronized long getSegmentFalsePositives() { return segmentFalsePositives; }
+
+    public synchronized long getRowCount() {
+        return active.firstRow + active.rowCount;
+    }
+
+    public synchronized int getSegmentCount() {
+        return sealed.size() + 1;
+    }
+
+    public synchronized int getDistinctIDs() {
+        return totalCounts.size();
+    }
+
+    // Appends every stored row, in order, to the filter; returns the number of rows
+    public long loadInto(DataFilter filter) throws IOException {
+        List<Segment> segments;
+        Segment current;
+        long activeRows;
+        int foreignCount;
+        synchronized (this) {
+            writeRows();
+            segments = new ArrayList<>(sealed);
+            current = active;
+            activeRows = active.rowCount;
+            foreignCount = dictionary.foreignIDCount();
+            loadsInProgress++;
+        }
+        try {
+            return loadRows(filter, segments, current, activeRows, foreignCount);
+        } finally {
+            synchronized (this) {
+                loadsInProgress--;
+            }
+            deletePending();
+        }
+    }
+
+    private long loadRows(DataFilter filter, List<Segment> segments, Segment current, long activeRows,
+                          int foreignCount) throws IOException {
+        // Store dictionary codes become the filter's own codes
+        int[] foreignCodes = new int[foreignCount + 1];
+        for (int code = 1; code <= foreignCount; code++) {
+            foreignCodes[code] = filter.codeFor(dictionary.idOf(code));
+        }
+        RowBatch batch = new RowBatch(filter, foreignCodes);
+        for (Segment segment : segments) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(segment.rowsFile()), StandardOpenOption.READ)) {
+                forEachRow(channel, segment.rowCount * ROW_BYTES, batch);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(current.rowsFile()), StandardOpenOption.READ)) {
+            forEachRow(channel, activeRows * ROW_BYTES, batch);
+        }
+        batch.flush();
+        return batch.rows;
+    }
+
+    private static void forEachRow(FileChannel channel, long bytes, IntLongHashMap.Entry visitor) throws IOException {
+        long position = 0;
+        while (position < bytes) {
+            long length = Math.min(bytes - position, (Integer.MAX_VALUE / ROW_BYTES) * (long) ROW_BYTES);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            while (buffer.hasRemaining()) {
+                visitor.accept(buffer.getInt(), buffer.getInt());
+            }
+            position += length;
+        }
+    }
+
+    // ---- Compaction ----
+
+    // Merges all sealed segments into one; returns how many were merged.
+    // Waits for a compaction already running, here or in the background
+    public int compact() throws IOException {
+        synchronized (this) {
+            while (compacting) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for a running compaction");
+                }
+            }
+            if (sealed.size() < 2) {
+                return 0;
+            }
+            compacting = true;
+        }
+        try {
+            return merge();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private int merge() throws IOException {
+        List<Segment> merging;
+        long number;
+        synchronized (this) {
+            merging = new ArrayList<>(sealed);
+            number = nextSegment++;
+            writeManifest();
+        }
+
+        Segment merged = new Segment(number);
+        IntLongHashMap sums = new IntLongHashMap();
+        IntLongHashMap counts = new IntLongHashMap();
+        try (FileChannel out = FileChannel.open(directory.resolve(merged.rowsFile()), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Segment segment : merging) {
+                try (FileChannel in = FileChannel.open(directory.resolve(segment.rowsFile()), StandardOpenOption.READ)) {
+                    long bytes = segment.rowCount * ROW_BYTES;
+                    for (long done = 0; done < bytes; ) {
+                        done += in.transferTo(done, bytes - done, out);
+                    }
+                    forEachRow(in, bytes, (code, value) -> {
+                        sums.addTo(code, value);
+                        counts.addTo(code, 1);
+                    });
+                }
+                merged.rowCount += segment.rowCount;
+            }
+            out.force(true);
+        }
+        writeSummary(merged, sums, counts);
+        merged.ids = idFilter(counts);
+
+        synchronized (this) {
+            // Segments sealed meanwhile stay after the merged one
+            merged.firstRow = merging.get(0).firstRow;
+            sealed.subList(0, merging.size()).clear();
+            sealed.add(0, merged);
+            writeManifest();
+        }
+        synchronized (this) {
+            for (Segment segment : merging) {
+                pendingDeletes.add(directory.resolve(segment.rowsFile()));
+                pendingDeletes.add(directory.resolve(segment.summaryFile()));
+            }
+        }
+        deletePending();
+        return merging.size();
+    }
+
+    private void deletePending() throws IOException {
+        List<Path> files;
+        synchronized (this) {
+            if (loadsInProgress > 0 || pendingDeletes.isEmpty()) {
+                return;
+            }
+            files = new ArrayList<>(pendingDeletes);
+            pendingDeletes.clear();
+        }
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Runs compact() on the store's background thread
+    public synchronized Future<Integer> compactInBackground() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "segment-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactor.submit(this::compact);
+    }
+
+    @Override
+    public void close() throws IOException {
+        ExecutorService background;
+        synchronized (this) {
+            background = compactor;
+            compactor = null;
+        }
+        if (background != null) {
+            background.shutdown();
+            try {
+                background.awaitTermination(1, java.util.concurrent.TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            flush();
+            activeChannel.close();
+            dictionaryChannel.close();
+        }
+    }
+
+    private static class Segment {
+        final long number;
+        long firstRow;
+        long rowCount;
+        // IDs of a sealed segment; the active segment has none
+        BloomFilter ids;
+
+        Segment(long number) {
+            this.number = number;
+        }
+
+        String rowsFile() { return String.format("segment-%08d.rows", number); }
+        String summaryFile() { return String.format("segment-%08d.sum", number); }
+    }
+
+    // Collects rows and hands them to the filter a batch at a time
+    private static class RowBatch implements IntLongHashMap.Entry {
+        private final DataFilter filter;
+        private final int[] foreignCodes;
+        private final int[] codes = new int[LOAD_BATCH_ROWS];
+        private final int[] values = new int[LOAD_BATCH_ROWS];
+        private int size;
+        long rows;
+
+        RowBatch(DataFilter filter, int[] foreignCodes) {
+            this.filter = filter;
+            this.foreignCodes = foreignCodes;
+        }
+
+        @Override
+        public void accept(int code, long value) {
+            codes[size] = IDCodec.isPacked(code) ? code : foreignCodes[code];
+            values[size] = (int) value;
+            if (++size == LOAD_BATCH_ROWS) {
+                flush();
+            }
+        }
+
+        void flush() {
+            filter.appendRows(codes, values, size);
+            rows += size;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.filter;
+
+import java.util.Arrays;
+
+/**
+ * The IDs of an IDIndex in ID string order, for range and prefix queries.
+ * Codes sit in a sorted array with Fenwick trees of per-ID sums and row
+ * counts over the array positions, so finding a range's ends is a binary
+ * search and its sum or count takes O(log n). Packed codes are compared
+ * byte by byte without decoding; IDs that cannot be packed are compared
+ * as strings. A row for a known ID updates the trees in O(log n); new IDs
+ * wait in a pending list and are merged in, in one O(n) pass, by the
+ * next query. Positions are only valid until the next row is added.
+ * An ID whose rows are all deleted keeps its position with a zero sum
+ * and count until the index is rebuilt.
+ */
+public class SortedIDIndex {
+    private final IDIndex index;
+    private final IntLongHashMap positions = new IntLongHashMap();
+    private int[] codes = new int[0];
+    // Fenwick trees, 1-based: node i covers positions (i - (i & -i), i]
+    private long[] sumTree = new long[1];
+    private long[] countTree = new long[1];
+    private int[] pending = new int[16];
+    private int pendingCount;
+
+    SortedIDIndex(IDIndex index) {
+        this.index = index;
+        int[] all = new int[index.distinctIDs()];
+        int[] count = {0};
+        index.forEachSum((code, sum) -> all[count[0]++] = code);
+        pending = all;
+        pendingCount = all.length;
+    }
+
+    // Called by IDIndex for every row added
+    void add(int code, int value, boolean newId) {
+        if (newId && !positions.containsKey(code)) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(16, pendingCount * 2));
+            }
+            pending[pendingCount++] = code;
+            return;
+        }
+        update(code, value, 1);
+    }
+
+    // Called by IDIndex when rows change or are deleted; pending IDs are
+    // read from the index when they are merged in
+    void update(int code, long sumDelta, int countDelta) {
+        int pos = (int) positions.get(code, -1);
+        if (pos >= 0) {
+            for (int i = pos + 1; i < sumTree.length; i += i & -i) {
+                sumTree[i] += sumDelta;
+                countTree[i] += countDelta;
+            }
+        }
+    }
+
+    public int size() {
+        merge();
+        return codes.length;
+    }
+
+    public int code(int position) {
+        merge();
+        return codes[position];
+    }
+
+    // First position whose ID is at or after id
+    public int lowerBound(String id) {
+        return search(id, Integer.MAX_VALUE, false);
+    }
+
+    // First position whose ID is after id
+    public int upperBound(String id) {
+        return search(id, Integer.MAX_VALUE, true);
+    }
+
+    // First position after every ID that starts with prefix; the IDs with
+    // the prefix are lowerBound(prefix) up to here
+    public int prefixEnd(String prefix) {
+        return search(prefix, prefix.length(), true);
+    }
+
+    // Sum of the IDs at positions [from, to)
+    public long sum(int from, int to) {
+        merge();
+        return total(sumTree, to) - total(sumTree, from);
+    }
+
+    // Rows of the IDs at positions [from, to)
+    public long count(int from, int to) {
+        merge();
+        return total(countTree, to) - total(countTree, from);
+    }
+
+    public int[] codes(int from, int to) {
+        merge();
+        return Arrays.copyOfRange(codes, from, to);
+    }
+
+    private static long total(long[] tree, int positions) {
+        long total = 0;
+        for (int i = positions; i > 0; i -= i & -i) {
+            total += tree[i];
+        }
+        return total;
+    }
+
+    // First position whose ID, cut to limit chars, compares above the bound
+    // (after) or at or above it (!after)
+    private int search(String bound, int limit, boolean after) {
+        merge();
+        int low = 0;
+        int high = codes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(codes[mid], bound, limit);
+            if (cmp > 0 || (cmp == 0 && !after)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int code, String bound, int limit) {
+        if (!IDCodec.isPacked(code)) {
+            String id = index.idOf(code);
+            return (id.length() > limit ? id.substring(0, limit) : id).compareTo(bound);
+        }
+        int length = Math.min(5, limit);
+        for (int i = 0; i < length && i < bound.length(); i++) {
+            int c = i == 0 ? 'Q' : (code >>> (32 - 8 * i)) & 0xFF;
+            if (c != bound.charAt(i)) {
+                return c - bound.charAt(i);
+            }
+        }
+        return length - bound.length();
+    }
+
+    private int compareCodes(int a, int b) {
+        if (IDCodec.isPacked(a) && IDCodec.isPacked(b)) {
+            return Integer.compareUnsigned(a, b);
+        }
+        return index.idOf(a).compareTo(index.idOf(b));
+    }
+
+    // Sorts the pending codes into the array and rebuilds the trees
+    private void merge() {
+        if (pendingCount == 0) {
+            return;
+        }
+        int[] added = sortPending();
+        int[] merged = new int[codes.length + added.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            if (j == added.length || (i < codes.length && compareCodes(codes[i], added[j]) < 0)) {
+                merged[k] = codes[i++];
+            } else {
+                merged[k] = added[j++];
+            }
+        }
+        codes = merged;
+        pendingCount = 0;
+
+        positions.clear();
+        sumTree = new long[codes.length + 1];
+        countTree = new long[codes.length + 1];
+        for (int pos = 0; pos < codes.length; pos++) {
+            positions.put(codes[pos], pos);
+            sumTree[pos + 1] += index.sum(codes[pos]);
+            countTree[pos + 1] += index.count(codes[pos]);
+            int parent = (pos + 1) + ((pos + 1) & -(pos + 1));
+            if (parent < sumTree.length) {
+                sumTree[parent] += sumTree[pos + 1];
+                countTree[parent] += countTree[pos + 1];
+            }
+        }
+    }
+
+    // Pending codes in ID order, without repeats or codes already placed
+    private int[] sortPending() {
+        int[] added = new int[pendingCount];
+        int count = 0;
+        for (int k = 0; k < pendingCount; k++) {
+            if (!positions.containsKey(pending[k])) {
+                added[count++] = pending[k];
+            }
+        }
+        return dedupe(sortCodes(Arrays.copyOf(added, count)));
+    }
+
+    private int[] dedupe(int[] sortedCodes) {
+        int count = 0;
+        for (int k = 0; k < sortedCodes.length; k++) {
+            if (k == 0 || sortedCodes[k] != sortedCodes[count - 1]) {
+                sortedCodes[count++] = sortedCodes[k];
+            }
+        }
+        return Arrays.copyOf(sortedCodes, count);
+    }
+
+    private int[] sortCodes(int[] added) {
+        boolean allPacked = true;
+        for (int code : added) {
+            allPacked &= IDCodec.isPacked(code);
+        }
+        if (allPacked) {
+            // Flipping the sign bit makes signed order the unsigned order
+            for (int k = 0; k < added.length; k++) {
+                added[k] ^= Integer.MIN_VALUE;
+            }
+            Arrays.sort(added);
+            for (int k = 0; k < added.length; k++) {
+                added[k] ^= Integer.MIN_VALUE;
+            }
+            return added;
+        }
+        Integer[] boxed = new Integer[added.length];
+        for (int k = 0; k < added.length; k++) {
+            boxed[k] = added[k];
+        }
+        Arrays.sort(boxed, this::compareCodes);
+        for (int k = 0; k < added.length; k++) {
+            added[k] = boxed[k];
+        }
+        return added;
+    }
+}
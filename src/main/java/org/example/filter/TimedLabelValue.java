@@ -0,0 +1,30 @@
+package org.example.filter;
+
+// TimedLabelValue.java - A LabelValue with the time it happened (epoch millis)
+public class TimedLabelValue extends LabelValue {
+    private long timestamp;
+
+    public TimedLabelValue() {
+        super();
+        this.timestamp = 0;
+    }
+
+    public TimedLabelValue(String id, int value, long timestamp) {
+        super(id, value);
+        this.timestamp = timestamp;
+    }
+
+    public TimedLabelValue(ID id, int value, long timestamp) {
+        super(id, value);
+        this.timestamp = timestamp;
+    }
+
+    // Getters and setters
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    @Override
+    public String toString() {
+        return String.format("TimedLabelValue(id=%s, value=%d, timestamp=%d)", getId(), getValue(), timestamp);
+    }
+}
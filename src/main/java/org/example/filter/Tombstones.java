@@ -0,0 +1,116 @@
+package org.example.filter;
+
+import java.util.Arrays;
+
+/**
+ * Deleted-row marks for a LabelValueColumns, one bit per row in blocks that
+ * line up with the column chunks; a chunk with no deleted rows has no block.
+ * Snapshots get a frozen copy that shares the blocks: the copy costs one
+ * array clone per chunk count, and the writer copies a block the first
+ * time it marks a row in it after the freeze.
+ */
+class Tombstones {
+    static final Tombstones NONE = new Tombstones();
+
+    private static final int WORDS_PER_CHUNK = LabelValueColumns.CHUNK_SIZE >>> 6;
+
+    private long[][] bits = new long[0][];
+    private int[] deadPerChunk = new int[0];
+    // Blocks this instance may write; the rest are shared with a frozen copy
+    private boolean[] owned = new boolean[0];
+    private int dead;
+
+    int dead() {
+        return dead;
+    }
+
+    boolean isDead(int row) {
+        int chunk = row >>> LabelValueColumns.CHUNK_SHIFT;
+        if (chunk >= bits.length || bits[chunk] == null) {
+            return false;
+        }
+        int offset = row & (LabelValueColumns.CHUNK_SIZE - 1);
+        return (bits[chunk][offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    // The chunk's block, or null when none of its rows are deleted
+    long[] chunkBits(int chunk) {
+        return chunk < bits.length ? bits[chunk] : null;
+    }
+
+    int deadInChunk(int chunk) {
+        return chunk < deadPerChunk.length ? deadPerChunk[chunk] : 0;
+    }
+
+    // Returns false when the row was already deleted
+    boolean markDead(int row) {
+        int chunk = row >>> LabelValueColumns.CHUNK_SHIFT;
+        if (chunk >= bits.length) {
+            bits = Arrays.copyOf(bits, chunk + 1);
+            deadPerChunk = Arrays.copyOf(deadPerChunk, chunk + 1);
+            owned = Arrays.copyOf(owned, chunk + 1);
+        }
+        if (bits[chunk] == null) {
+            bits[chunk] = new long[WORDS_PER_CHUNK];
+            owned[chunk] = true;
+        } else if (!owned[chunk]) {
+            bits[chunk] = bits[chunk].clone();
+            owned[chunk] = true;
+        }
+        int offset = row & (LabelValueColumns.CHUNK_SIZE - 1);
+        long mask = 1L << offset;
+        long[] block = bits[chunk];
+        if ((block[offset >>> 6] & mask) != 0) {
+            return false;
+        }
+        block[offset >>> 6] |= mask;
+        deadPerChunk[chunk]++;
+        dead++;
+        return true;
+    }
+
+    // Read-only copy for a snapshot; later marks here do not reach it
+    Tombstones freeze() {
+        if (dead == 0) {
+            return NONE;
+        }
+        Tombstones frozen = new Tombstones();
+        frozen.bits = bits.clone();
+        frozen.deadPerChunk = deadPerChunk.clone();
+        frozen.dead = dead;
+        Arrays.fill(owned, false);
+        return frozen;
+    }
+
+    // Position in the columns of the liveRow-th row that is not deleted
+    int physicalRow(int liveRow, int size) {
+        if (dead == 0) {
+            return liveRow;
+        }
+        int remaining = liveRow;
+        for (int chunk = 0, base = 0; base < size; chunk++, base += LabelValueColumns.CHUNK_SIZE) {
+            int length = Math.min(LabelValueColumns.CHUNK_SIZE, size - base);
+            int live = length - deadInChunk(chunk);
+            if (remaining >= live) {
+                remaining -= live;
+                continue;
+            }
+            long[] block = chunkBits(chunk);
+            if (block == null) {
+                return base + remaining;
+            }
+            for (int w = 0; ; w++) {
+                long liveBits = ~block[w];
+                int count = Long.bitCount(liveBits);
+                if (remaining < count) {
+                    for (int k = 0; k < remaining; k++) {
+                        liveBits &= liveBits - 1;
+                    }
+                    return base + (w << 6) + Long.numberOfTrailingZeros(liveBits);
+                }
+                remaining -= count;
+            }
+        }
+        throw new IndexOutOfBoundsException("Row " + liveRow + " of " + (size - dead));
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Sum, count, min and max of a set of values, with a HyperLogLog estimate
+ * of how many distinct values there are and a QuantileSketch for their
+ * percentiles. The sum is a long: one DataFilter holds fewer than 2^31
+ * rows of 32-bit values, so it cannot overflow there; merging summaries
+ * throws ArithmeticException rather than wrap. Values are added one at a
+ * time and summaries merge, so per-partition summaries combine into the
+ * summary of all the values. The minimum and maximum of no values are
+ * Integer.MAX_VALUE and Integer.MIN_VALUE, as in IDTotalsAccumulator.
+ */
+public class ValueSummary {
+    private long sum;
+    private long count;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+    private final HyperLogLog distinct;
+    private final QuantileSketch quantiles;
+
+    public ValueSummary() {
+        this(new HyperLogLog(), new QuantileSketch());
+    }
+
+    private ValueSummary(HyperLogLog distinct, QuantileSketch quantiles) {
+        this.distinct = distinct;
+        this.quantiles = quantiles;
+    }
+
+    public void add(int value) {
+        sum += value;
+        count++;
+        if (value < min) min = value;
+        if (value > max) max = value;
+        distinct.add(value);
+        quantiles.add(value);
+    }
+
+    public void merge(ValueSummary other) {
+        sum = Math.addExact(sum, other.sum);
+        count += other.count;
+        if (other.min < min) min = other.min;
+        if (other.max > max) max = other.max;
+        distinct.merge(other.distinct);
+        quantiles.merge(other.quantiles);
+    }
+
+    public ValueSummary copy() {
+        ValueSummary copy = new ValueSummary(distinct.copy(), quantiles.copy());
+        copy.sum = sum;
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        return copy;
+    }
+
+    public long getSum() { return sum; }
+    public long getCount() { return count; }
+    public int getMin() { return min; }
+    public int getMax() { return max; }
+
+    public double getMean() {
+        return count == 0 ? 0 : sum / (double) count;
+    }
+
+    // Estimated number of distinct values (see HyperLogLog)
+    public long getDistinctCount() {
+        return count == 0 ? 0 : Math.min(count, distinct.estimate());
+    }
+
+    // Value at quantile q (0.5 for the median), within the sketch's relative
+    // accuracy; NaN for an empty summary
+    public double getQuantile(double q) {
+        return quantiles.quantile(q);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(sum);
+        out.writeLong(count);
+        out.writeInt(min);
+        out.writeInt(max);
+        distinct.writeTo(out);
+        quantiles.writeTo(out);
+    }
+
+    static ValueSummary readFrom(DataInput in) throws IOException {
+        long sum = in.readLong();
+        long count = in.readLong();
+        int min = in.readInt();
+        int max = in.readInt();
+        ValueSummary summary = new ValueSummary(HyperLogLog.readFrom(in), QuantileSketch.readFrom(in));
+        summary.sum = sum;
+        summary.count = count;
+        summary.min = min;
+        summary.max = max;
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        if (count == 0) {
+            return "ValueSummary(count=0)";
+        }
+        return String.format("ValueSummary(sum=%d, count=%d, min=%d, max=%d, distinct~%d, p50~%.1f, p99~%.1f)",
+                sum, count, min, max, getDistinctCount(), getQuantile(0.5), getQuantile(0.99));
+    }
+}
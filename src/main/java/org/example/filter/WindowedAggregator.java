@@ -0,0 +1,187 @@
+package org.example.filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-ID sums over a sliding time window, kept in a ring of panes.
+ *
+ * Time is cut into panes of paneMillis; each pane holds the sum and count
+ * of every ID seen in it, so a row costs one map update however long the
+ * window is. The ring keeps the latest paneCount panes, and running
+ * totals over all of them are kept alongside, so the whole-window sum of
+ * an ID is one lookup. Shorter sliding windows and tumbling (pane-aligned)
+ * intervals add up at most paneCount panes, never rows.
+ *
+ * A pane leaves the ring when time moves past it: the IDs it touched are
+ * subtracted from the running totals, and IDs whose count drops to zero
+ * are dropped, so memory follows the IDs active in the window.
+ * Time moves with the newest timestamp added, or with advanceTo.
+ * Rows older than the ring are counted as late and ignored.
+ */
+public class WindowedAggregator {
+    private final long paneMillis;
+    private final int paneCount;
+    private final Pane[] panes;
+    private final IntLongHashMap windowSums = new IntLongHashMap();
+    private final IntLongHashMap windowCounts = new IntLongHashMap();
+    // Only used for codes of IDs that cannot be packed
+    private final IDIndex dictionary = new IDIndex();
+    private long currentPane = Long.MIN_VALUE;
+    private long lateRows;
+
+    public WindowedAggregator(long paneMillis, int paneCount) {
+        if (paneMillis < 1) {
+            throw new IllegalArgumentException("Pane length must be positive: " + paneMillis);
+        }
+        if (paneCount < 1) {
+            throw new IllegalArgumentException("Pane count must be positive: " + paneCount);
+        }
+        this.paneMillis = paneMillis;
+        this.paneCount = paneCount;
+        this.panes = new Pane[paneCount];
+        for (int i = 0; i < paneCount; i++) {
+            panes[i] = new Pane();
+        }
+    }
+
+    public void add(TimedLabelValue item) {
+        add(item.getId().getValue(), item.getValue(), item.getTimestamp());
+    }
+
+    // Returns false when the row is older than the window and was ignored
+    public boolean add(String id, int value, long timestamp) {
+        long pane = Math.floorDiv(timestamp, paneMillis);
+        if (pane > currentPane) {
+            advanceToPane(pane);
+        } else if (pane <= currentPane - paneCount) {
+            lateRows++;
+            return false;
+        }
+        int code = dictionary.codeFor(id != null ? id : "Q0000");
+        Pane target = panes[slot(pane)];
+        target.sums.addTo(code, value);
+        target.counts.addTo(code, 1);
+        windowSums.addTo(code, value);
+        windowCounts.addTo(code, 1);
+        return true;
+    }
+
+    // Moves time forward without data, evicting panes that fall out of the window
+    public void advanceTo(long timestamp) {
+        long pane = Math.floorDiv(timestamp, paneMillis);
+        if (pane > currentPane) {
+            advanceToPane(pane);
+        }
+    }
+
+    private void advanceToPane(long pane) {
+        long firstNew = pane - paneCount + 1;
+        if (currentPane != Long.MIN_VALUE) {
+            // Panes in (currentPane - paneCount, pane - paneCount] leave the ring
+            for (long old = currentPane - paneCount + 1; old < firstNew && old <= currentPane; old++) {
+                evict(panes[slot(old)]);
+            }
+            firstNew = Math.max(firstNew, currentPane + 1);
+        }
+        for (long fresh = firstNew; fresh <= pane; fresh++) {
+            panes[slot(fresh)].number = fresh;
+        }
+        currentPane = pane;
+    }
+
+    private void evict(Pane pane) {
+        pane.sums.forEach((code, sum) -> windowSums.addTo(code, -sum));
+        pane.counts.forEach((code, count) -> {
+            if (windowCounts.addTo(code, -count) == 0) {
+                windowCounts.remove(code);
+                windowSums.remove(code);
+            }
+        });
+        pane.sums.clear();
+        pane.counts.clear();
+    }
+
+    private int slot(long pane) {
+        return (int) Math.floorMod(pane, (long) paneCount);
+    }
+
+    // Whole window
+    public long sum(String id) {
+        int code = dictionary.codeOf(id != null ? id : "Q0000");
+        return code == IDCodec.NO_CODE ? 0 : windowSums.get(code, 0);
+    }
+
+    public long count(String id) {
+        int code = dictionary.codeOf(id != null ? id : "Q0000");
+        return code == IDCodec.NO_CODE ? 0 : windowCounts.get(code, 0);
+    }
+
+    // Sliding window: the latest panes covering windowMillis, ending with the current pane
+    public long sum(String id, long windowMillis) {
+        if (windowMillis < paneMillis || windowMillis > paneMillis * paneCount || windowMillis % paneMillis != 0) {
+            throw new IllegalArgumentException("Window must be 1 to " + paneCount + " panes of " + paneMillis
+                    + " ms: " + windowMillis);
+        }
+        long panesWanted = windowMillis / paneMillis;
+        return sumPanes(id, currentPane - panesWanted + 1, currentPane);
+    }
+
+    // Tumbling window: the panes that start in [fromMillis, toMillis)
+    public long sum(String id, long fromMillis, long toMillis) {
+        if (fromMillis % paneMillis != 0 || toMillis % paneMillis != 0 || toMillis < fromMillis) {
+            throw new IllegalArgumentException("Interval must be whole panes of " + paneMillis + " ms: "
+                    + fromMillis + " to " + toMillis);
+        }
+        return sumPanes(id, Math.floorDiv(fromMillis, paneMillis), Math.floorDiv(toMillis, paneMillis) - 1);
+    }
+
+    private long sumPanes(String id, long firstPane, long lastPane) {
+        int code = dictionary.codeOf(id != null ? id : "Q0000");
+        if (code == IDCodec.NO_CODE || currentPane == Long.MIN_VALUE) {
+            return 0;
+        }
+        long from = Math.max(firstPane, currentPane - paneCount + 1);
+        long to = Math.min(lastPane, currentPane);
+        long sum = 0;
+        for (long pane = from; pane <= to; pane++) {
+            Pane p = panes[slot(pane)];
+            if (p.number == pane) {
+                sum += p.sums.get(code, 0);
+            }
+        }
+        return sum;
+    }
+
+    // Whole-window sum of every ID in the window, ordered by ID
+    public Map<ID, Long> sums() {
+        List<String> ids = new ArrayList<>();
+        for (int code : windowSums.keys()) {
+            ids.add(dictionary.idOf(code));
+        }
+        ids.sort(null);
+        Map<ID, Long> sums = new LinkedHashMap<>();
+        for (String id : ids) {
+            sums.put(new ID(id), windowSums.get(dictionary.codeOf(id), 0));
+        }
+        return sums;
+    }
+
+    public int getActiveIDs() { return windowCounts.size(); }
+    public long getLateRows() { return lateRows; }
+    public long getPaneMillis() { return paneMillis; }
+    public int getPaneCount() { return paneCount; }
+
+    // Start of the window (epoch millis), or Long.MIN_VALUE before any data
+    public long getWindowStart() {
+        return currentPane == Long.MIN_VALUE ? Long.MIN_VALUE : (currentPane - paneCount + 1) * paneMillis;
+    }
+
+    private static class Pane {
+        final IntLongHashMap sums = new IntLongHashMap();
+        final IntLongHashMap counts = new IntLongHashMap();
+        long number = Long.MIN_VALUE;
+    }
+}
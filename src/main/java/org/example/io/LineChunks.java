@@ -0,0 +1,147 @@
+package org.example.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parses the lines of a (usually memory-mapped) buffer in parallel, for
+ * the file loaders. The buffer is split into line-aligned chunks, each
+ * chunk's first line number comes from a cheap newline count, and every
+ * non-blank line is handed to a row parser with its line number and
+ * without its line ending. The byte helpers find and trim fields without
+ * making Strings.
+ */
+public final class LineChunks {
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+
+    private LineChunks() {
+    }
+
+    // Parses one line, from .. to, into the chunk's results
+    public interface RowParser<C extends Chunk> {
+        void parseRow(ByteBuffer buffer, int from, int to, long line, C chunk);
+    }
+
+    // Results of one chunk; rowsRead counts its non-blank lines
+    public abstract static class Chunk {
+        long rowsRead;
+
+        public long getRowsRead() { return rowsRead; }
+    }
+
+    // Chunk results in buffer order, parsed on up to parallelism * 4 chunks
+    public static <C extends Chunk> List<C> parse(ByteBuffer buffer, int start, int end, long firstLine,
+                                                  int parallelism, Supplier<C> newChunk, RowParser<C> parser) {
+        int[] bounds = splitAtLines(buffer, start, end, parallelism);
+        int chunks = bounds.length - 1;
+
+        long[] lineCounts = IntStream.range(0, chunks).parallel()
+                .mapToLong(i -> countLines(buffer, bounds[i], bounds[i + 1]))
+                .toArray();
+        long[] chunkFirstLines = new long[chunks];
+        long line = firstLine;
+        for (int i = 0; i < chunks; i++) {
+            chunkFirstLines[i] = line;
+            line += lineCounts[i];
+        }
+
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(i -> parseChunk(buffer, bounds[i], bounds[i + 1], chunkFirstLines[i],
+                        newChunk.get(), parser))
+                .collect(Collectors.toList());
+    }
+
+    private static <C extends Chunk> C parseChunk(ByteBuffer buffer, int from, int to, long firstLine,
+                                                  C chunk, RowParser<C> parser) {
+        long line = firstLine;
+        int pos = from;
+        while (pos < to) {
+            int end = lineEnd(buffer, pos, to);
+            int rowEnd = trimCR(buffer, pos, end);
+            if (!isBlank(buffer, pos, rowEnd)) {
+                chunk.rowsRead++;
+                parser.parseRow(buffer, pos, rowEnd, line, chunk);
+            }
+            pos = end + 1;
+            line++;
+        }
+        return chunk;
+    }
+
+    private static int[] splitAtLines(ByteBuffer buffer, int start, int end, int parallelism) {
+        int size = end - start;
+        int chunks = Math.max(1, Math.min(size / MIN_CHUNK_BYTES, parallelism * 4));
+        int[] bounds = new int[chunks + 1];
+        bounds[0] = start;
+        for (int i = 1; i < chunks; i++) {
+            int nominal = Math.max(bounds[i - 1], start + (int) ((long) size * i / chunks));
+            bounds[i] = Math.min(end, lineEnd(buffer, nominal, end) + 1);
+        }
+        bounds[chunks] = end;
+        return bounds;
+    }
+
+    private static long countLines(ByteBuffer buffer, int from, int to) {
+        long lines = 0;
+        for (int pos = from; pos < to; pos++) {
+            if (buffer.get(pos) == '\n') {
+                lines++;
+            }
+        }
+        // A final line without a newline still counts
+        if (to > from && buffer.get(to - 1) != '\n') {
+            lines++;
+        }
+        return lines;
+    }
+
+    // Position of the next newline, or end
+    public static int lineEnd(ByteBuffer buffer, int from, int end) {
+        int pos = from;
+        while (pos < end && buffer.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    public static int trimCR(ByteBuffer buffer, int from, int to) {
+        return to > from && buffer.get(to - 1) == '\r' ? to - 1 : to;
+    }
+
+    public static int skipSpaces(ByteBuffer buffer, int from, int to) {
+        int pos = from;
+        while (pos < to && buffer.get(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    public static int trimSpaces(ByteBuffer buffer, int from, int to) {
+        int pos = to;
+        while (pos > from && buffer.get(pos - 1) == ' ') {
+            pos--;
+        }
+        return pos;
+    }
+
+    // Nothing but spaces, tabs and commas, as spreadsheets pad empty rows
+    public static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int pos = from; pos < to; pos++) {
+            byte b = buffer.get(pos);
+            if (b != ' ' && b != '\t' && b != ',') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
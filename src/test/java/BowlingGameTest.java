@@ -1,14 +1,40 @@
 // JUnit 5 Test class to verify the scenarios
+import org.example.bowling.BowlerProfile;
 import org.example.bowling.BowlingGame;
+import org.example.bowling.BowlingSimulator;
 import org.example.bowling.FrameValues;
+import org.example.bowling.GameBoardServer;
+import org.example.bowling.GameRegistry;
+import org.example.bowling.HandicapCalculator;
+import org.example.bowling.HandicapFormula;
+import org.example.bowling.ImportResult;
+import org.example.bowling.ImportedGame;
 import org.example.bowling.InputControlValues;
+import org.example.bowling.LaneScoreboard;
+import org.example.bowling.LeagueScoreImporter;
+import org.example.bowling.MatchProjection;
+import org.example.bowling.ReferenceScorer;
+import org.example.bowling.RejectedRow;
 import org.example.bowling.Roll;
+import org.example.bowling.RollSequenceGenerator;
+import org.example.bowling.ScoreDistribution;
+import org.example.bowling.ScoringMismatch;
+import org.example.bowling.ScoringStressHarness;
+import org.example.bowling.SeasonFrameStore;
 import org.junit.jupiter.api.Test;
         import org.junit.jupiter.api.BeforeEach;
         import org.junit.jupiter.api.DisplayName;
         import org.junit.jupiter.api.Nested;
         import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.*;
 public class BowlingGameTest {
 
@@ -253,4 +279,407 @@ public class BowlingGameTest {
             assertTrue(display.contains("-"), "Gutter ball should be displayed as -");
         }
     }
+
+    @Nested
+    @DisplayName("Season Frame Store Tests")
+    class SeasonFrameStoreTests {
+
+        @Test
+        @DisplayName("Stored game reads back the same frame values")
+        void testStoredGameMatchesGame() {
+            int[] rolls = {5, 5, 4, 5, 8, 2, 10, 0, 10, 10, 6, 2, 10, 4, 6, 10, 10, 10};
+            for (int roll : rolls) {
+                game.addRoll(new Roll(roll));
+            }
+            game.score();
+
+            SeasonFrameStore store = new SeasonFrameStore();
+            int stored = store.addGame(7, game);
+
+            assertEquals(7, store.getBowler(stored));
+            for (int frame = 1; frame <= 10; frame++) {
+                FrameValues expected = game.getFrameValues().get(frame - 1);
+                FrameValues actual = store.getFrameValues(stored, frame);
+                assertEquals(expected.getRoll1().getIntValue(), actual.getRoll1().getIntValue());
+                assertEquals(expected.getRoll2().getIntValue(), actual.getRoll2().getIntValue());
+                assertEquals(expected.getRoll3().getIntValue(), actual.getRoll3().getIntValue());
+                assertEquals(expected.getScore(), store.getScore(stored, frame));
+                assertEquals(expected.getTotalScore(), store.getTotalScore(stored, frame));
+            }
+            assertEquals(179, store.getFinalScore(stored));
+        }
+
+        @Test
+        @DisplayName("Bowler and frame range queries read the stored season")
+        void testBowlerAndRangeQueries() {
+            for (int i = 0; i < 12; i++) {
+                game.addRoll(new Roll(10));
+            }
+            game.score();
+
+            SeasonFrameStore store = new SeasonFrameStore();
+            store.addGame(1, game);
+            store.addGame(2, game);
+            store.addGame(1, game);
+
+            assertArrayEquals(new int[] {0, 2}, store.getGamesForBowler(1));
+            assertEquals(600, store.getSeasonTotal(1));
+            assertEquals(300.0, store.getAverage(2), 0.001);
+            assertEquals(30, store.sumFrameScores(10, 11));
+            assertEquals(30, store.getFrameCount());
+
+            IndexOutOfBoundsException outside = assertThrows(IndexOutOfBoundsException.class,
+                    () -> store.getScore(-1, 1));
+            assertEquals("No game -1 in season of 3", outside.getMessage());
+            outside = assertThrows(IndexOutOfBoundsException.class, () -> store.getRoll(1 << 20, 1, 1));
+            assertEquals("No game 1048576 in season of 3", outside.getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("League Score Import Tests")
+    class LeagueScoreImportTests {
+
+        @Test
+        @DisplayName("Valid rows become games and invalid rows are reported")
+        void testImportWithValidationReport() {
+            String file = "Bowler,R1,R2,R3\n"
+                    + "Ann,5,5,4,5,8,2,10,0,10,10,6,2,10,4,6,10,10,10\n"
+                    + "Bob,5,6,4,5,8,2,10,0,10,10,6,2,10,4,6,10,10,10\n"
+                    + "\n"
+                    + "Cal,10,10,10,10,10,10,10,10,10,10,10\n"
+                    + "Dee,10,10,10,10,10,10,10,10,10,10,10,10,,\r\n"
+                    + "Eve,3,x,4\n";
+
+            ImportResult result = new LeagueScoreImporter().importBytes(file.getBytes());
+
+            assertEquals(5, result.getRowsRead());
+            assertEquals(2, result.getGames().size());
+            ImportedGame ann = result.getGames().get(0);
+            assertEquals("Ann", ann.getBowler());
+            assertEquals(2, ann.getLine());
+            assertEquals(179, ann.toBowlingGame().getFrameValues().get(9).getTotalScore());
+            assertEquals("Dee", result.getGames().get(1).getBowler());
+
+            List<RejectedRow> rejected = result.getRejectedRows();
+            assertEquals(3, rejected.size());
+            assertEquals(3, rejected.get(0).getLine());
+            assertEquals(3, rejected.get(0).getColumn());
+            assertEquals("Frame 1 exceeds 10 pins", rejected.get(0).getReason());
+            assertEquals(5, rejected.get(1).getLine());
+            assertEquals("Game incomplete - frame 10 needs a bonus roll", rejected.get(1).getReason());
+            assertEquals(7, rejected.get(2).getLine());
+            assertEquals(3, rejected.get(2).getColumn());
+            assertEquals("Roll is not a number", rejected.get(2).getReason());
+        }
+
+        @Test
+        @DisplayName("Tab separated rows import the same way")
+        void testTabSeparatedImport() {
+            String file = "Ann\t9\t1\t9\t1\t9\t1\t9\t1\t9\t1\t9\t1\t9\t1\t9\t1\t9\t1\t9\t1\t9\n";
+
+            ImportResult result = new LeagueScoreImporter().importBytes(file.getBytes());
+
+            assertEquals(1, result.getGames().size());
+            assertEquals(190, result.getGames().get(0).toBowlingGame().getFrameValues().get(9).getTotalScore());
+        }
+
+        @Test
+        @DisplayName("A malformed first row is reported, not taken for a header")
+        void testMalformedFirstRow() {
+            String file = "Bob,ten,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0\n"
+                    + "Ann,9,1,9,1,9,1,9,1,9,1,9,1,9,1,9,1,9,1,9,1,9\n";
+
+            ImportResult result = new LeagueScoreImporter().importBytes(file.getBytes());
+
+            assertEquals(2, result.getRowsRead());
+            assertEquals(1, result.getGames().size());
+            assertEquals(1, result.getRejectedRows().size());
+            assertEquals(1, result.getRejectedRows().get(0).getLine());
+
+            ImportResult withHeader = new LeagueScoreImporter().importBytes(("player,Roll 1,Roll 2\n" + file).getBytes());
+            assertEquals(2, withHeader.getRowsRead());
+            assertEquals(2, withHeader.getRejectedRows().get(0).getLine());
+        }
+    }
+
+    @Nested
+    @DisplayName("Handicap Tests")
+    class HandicapTests {
+
+        @Test
+        @DisplayName("Average covers only the last N games")
+        void testRollingAverage() {
+            HandicapCalculator calculator = new HandicapCalculator(3, new HandicapFormula(220, 90));
+            calculator.recordScore(4, 100);
+            calculator.recordScore(4, 150);
+            assertEquals(125, calculator.getAverage(4));
+
+            calculator.recordScore(4, 200);
+            calculator.recordScore(4, 181);
+
+            // 100 has dropped out: (150 + 200 + 181) / 3 = 177 truncated
+            assertEquals(177, calculator.getAverage(4));
+            assertEquals(3, calculator.getGamesInWindow(4));
+            assertEquals(4, calculator.getGamesBowled(4));
+            assertEquals(0, calculator.getGamesInWindow(3));
+        }
+
+        @Test
+        @DisplayName("Handicap is a percentage of the difference from basis")
+        void testHandicapFormula() {
+            HandicapCalculator calculator = new HandicapCalculator(3, new HandicapFormula(220, 90));
+            int[] rolls = {5, 5, 4, 5, 8, 2, 10, 0, 10, 10, 6, 2, 10, 4, 6, 10, 10, 10};
+            for (int roll : rolls) {
+                game.addRoll(new Roll(roll));
+            }
+            calculator.recordGame(0, game);
+
+            // (220 - 179) * 90% = 36.9 truncated
+            assertEquals(36, calculator.getHandicap(0));
+            assertEquals(0, new HandicapFormula(220, 90).calculateHandicap(230));
+        }
+
+        @Test
+        @DisplayName("Incomplete games are not recorded")
+        void testIncompleteGameRejected() {
+            HandicapCalculator calculator = new HandicapCalculator(3, new HandicapFormula(220, 90));
+            game.addRoll(new Roll(10));
+            assertThrows(IllegalArgumentException.class, () -> calculator.recordGame(0, game));
+        }
+    }
+
+    @Nested
+    @DisplayName("Lane Scoreboard Tests")
+    class LaneScoreboardTests {
+
+        @Test
+        @DisplayName("Only changed cells are redrawn")
+        void testIncrementalRender() {
+            StringWriter out = new StringWriter();
+            LaneScoreboard board = new LaneScoreboard(4, 2, out);
+
+            board.render();
+            String firstFrame = out.toString();
+            assertTrue(firstFrame.contains("Lane 4"), "First frame should draw every lane");
+            long cellsAfterFirst = board.getCellsWritten();
+
+            out.getBuffer().setLength(0);
+            board.render();
+            assertEquals("", out.toString(), "Nothing changed so nothing should be written");
+
+            assertTrue(board.addRoll(2, new Roll(10)));
+            board.render();
+            String update = out.toString();
+            assertTrue(update.contains("X"), "Strike should be drawn");
+            assertFalse(update.contains("Lane 1"), "Unchanged lanes should not be redrawn");
+            assertTrue(board.getCellsWritten() - cellsAfterFirst < 40);
+            assertEquals(3, board.getFramesRendered());
+        }
+
+        @Test
+        @DisplayName("Rejected rolls do not mark the lane changed")
+        void testRejectedRoll() {
+            StringWriter out = new StringWriter();
+            LaneScoreboard board = new LaneScoreboard(1, 1, out);
+            board.addRoll(0, new Roll(6));
+            board.render();
+
+            out.getBuffer().setLength(0);
+            assertFalse(board.addRoll(0, new Roll(5)));
+            board.render();
+            assertEquals("", out.toString());
+        }
+
+        @Test
+        @DisplayName("A failed write stops the ticker and is reported")
+        void testRenderFailure() throws InterruptedException {
+            Writer broken = new Writer() {
+                @Override
+                public void write(char[] buffer, int offset, int length) throws IOException {
+                    throw new IOException("Terminal closed");
+                }
+
+                @Override
+                public void flush() { }
+
+                @Override
+                public void close() { }
+            };
+            LaneScoreboard board = new LaneScoreboard(2, 1, broken);
+            board.start(1);
+            for (int i = 0; i < 500 && board.getRenderFailure() == null; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals("Terminal closed", board.getRenderFailure().getCause().getMessage());
+            UncheckedIOException failure = assertThrows(UncheckedIOException.class, board::stop);
+            assertEquals("Terminal closed", failure.getCause().getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("Scoring Stress Harness Tests")
+    class ScoringStressHarnessTests {
+
+        @Test
+        @DisplayName("Reference scorer agrees with the featurex game in steps")
+        void testReferenceScorerExample() {
+            ReferenceScorer reference = new ReferenceScorer();
+            int[] rolls = {5, 5, 4, 5, 8, 2, 10, 0, 10, 10, 6, 2, 10, 4, 6, 10, 10};
+            for (int roll : rolls) {
+                assertTrue(reference.addRoll(roll));
+            }
+
+            assertEquals(149, reference.getTotalScore(9));
+            assertEquals(FrameValues.TBS, reference.getScore(10));
+            assertEquals(10, reference.getFrame());
+            assertEquals(3, reference.getRoll());
+            assertEquals("|5/ |45 |8/ |X  |-/ |X  |62 |X  |4/ |XX |\n"
+                    + "| 14| 23| 43| 63| 83|101|109|129|149|   |", reference.getDisplay());
+            assertFalse(new ReferenceScorer().addRoll(11));
+        }
+
+        @Test
+        @DisplayName("Complete legal games score the same in both scorers")
+        void testCompleteGameTotalsAgree() {
+            SplittableRandom random = new SplittableRandom(26);
+            for (int i = 0; i < 2000; i++) {
+                int[] rolls = RollSequenceGenerator.legalGame(random);
+                BowlingGame bowlingGame = new BowlingGame();
+                for (int roll : rolls) {
+                    bowlingGame.addRoll(new Roll(roll));
+                }
+                bowlingGame.score();
+
+                assertTrue(bowlingGame.isGameComplete());
+                assertEquals(ReferenceScorer.scoreGame(rolls),
+                        bowlingGame.getFrameValues().get(9).getTotalScore(), Arrays.toString(rolls));
+            }
+        }
+
+        @Test
+        @DisplayName("Failing sequences shrink to a minimal example")
+        void testShrinking() {
+            // A strike with one bonus roll is not yet scorable
+            int[] rolls = {10, 5};
+            ScoringMismatch mismatch = ScoringStressHarness.check(rolls);
+            assertNotNull(mismatch);
+            assertEquals(ScoringMismatch.FRAME_VALUES, mismatch.getKind());
+
+            int[] shrunk = ScoringStressHarness.shrink(rolls, mismatch.getKind());
+            assertArrayEquals(new int[] {10}, shrunk);
+        }
+
+        @Test
+        @DisplayName("Harness runs every requested game")
+        void testHarnessRun() {
+            ScoringStressHarness.Result result = ScoringStressHarness.run(ScoringStressHarness.NEAR_LEGAL, 25_000, 1);
+            assertEquals(25_000, result.getGames());
+            assertTrue(result.getGamesPerSecond() > 0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Simulation Tests")
+    class SimulationTests {
+
+        @Test
+        @DisplayName("Simulated games score the same as BowlingGame")
+        void testSimulatedGamesScoreLikeBowlingGame() {
+            BowlerProfile profile = BowlerProfile.ofRates(0.4, 0.7);
+            SplittableRandom random = new SplittableRandom(31);
+            int[] rolls = new int[21];
+            for (int i = 0; i < 2000; i++) {
+                int count = BowlingSimulator.simulateRolls(profile, random, rolls);
+                BowlingGame bowlingGame = new BowlingGame();
+                for (int r = 0; r < count; r++) {
+                    bowlingGame.addRoll(new Roll(rolls[r]));
+                }
+                bowlingGame.score();
+
+                assertTrue(bowlingGame.isGameComplete());
+                assertEquals(bowlingGame.getFrameValues().get(9).getTotalScore(), ReferenceScorer.scoreGame(rolls));
+            }
+        }
+
+        @Test
+        @DisplayName("A seed always gives the same distribution")
+        void testDeterministicDistribution() {
+            BowlerProfile profile = BowlerProfile.ofRates(0.3, 0.6);
+            ScoreDistribution first = new BowlingSimulator().simulateScores(profile, 200_000, 5);
+            ScoreDistribution second = new BowlingSimulator().simulateScores(profile, 200_000, 5);
+
+            assertEquals(200_000, first.getGames());
+            assertArrayEquals(first.getCounts(), second.getCounts());
+            assertTrue(first.getMean() > 100 && first.getMean() < 250);
+        }
+
+        @Test
+        @DisplayName("Perfect and gutter bowlers project as expected")
+        void testExtremeProfiles() {
+            BowlerProfile perfect = BowlerProfile.ofRates(1.0, 1.0);
+            // Never strikes or spares, so never scores more than 9 a frame
+            BowlerProfile gutter = new BowlerProfile(new double[] {1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}, 0.0);
+
+            ScoreDistribution scores = new BowlingSimulator().simulateScores(perfect, 1000, 1);
+            assertEquals(1.0, scores.probabilityAtLeast(300), 0.0);
+
+            MatchProjection match = new BowlingSimulator().simulateMatch(perfect, gutter, 1000, 1);
+            assertEquals(1000, match.getFirstWins());
+            assertEquals(0.0, match.getSecondScores().probabilityAtLeast(91), 0.0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Game Board Server Tests")
+    class GameBoardServerTests {
+
+        private HttpResponse<String> get(HttpClient client, int port, String path, String etag) throws Exception {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        }
+
+        @Test
+        @DisplayName("Boards are cached until a roll is accepted")
+        void testCachedBoardAndConditionalGet() throws Exception {
+            GameRegistry registry = new GameRegistry();
+            registry.createGame("lane1", "Ann");
+            GameBoardServer server = new GameBoardServer(registry, 0);
+            server.start();
+            try {
+                HttpClient client = HttpClient.newHttpClient();
+                int port = server.getPort();
+
+                HttpResponse<String> first = get(client, port, "/games/lane1/board", null);
+                assertEquals(200, first.statusCode());
+                String etag = first.headers().firstValue("ETag").orElseThrow();
+
+                HttpResponse<String> unchanged = get(client, port, "/games/lane1/board", etag);
+                assertEquals(304, unchanged.statusCode());
+                assertEquals(1, server.getCacheHits());
+
+                HttpResponse<String> roll = client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/games/lane1/rolls"))
+                        .POST(HttpRequest.BodyPublishers.ofString("10")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(204, roll.statusCode());
+
+                HttpResponse<String> changed = get(client, port, "/games/lane1/board", etag);
+                assertEquals(200, changed.statusCode());
+                assertTrue(changed.body().startsWith("|X  |"));
+                assertFalse(etag.equals(changed.headers().firstValue("ETag").orElseThrow()));
+
+                HttpResponse<String> frames = get(client, port, "/games/lane1/frames", null);
+                assertTrue(frames.body().startsWith("[{\"frame\":1,\"roll1\":10,"));
+                HttpResponse<String> standings = get(client, port, "/standings", null);
+                assertTrue(standings.body().contains("\"bowler\":\"Ann\",\"score\":10"));
+                assertEquals(404, get(client, port, "/games/lane9/board", null).statusCode());
+            } finally {
+                server.stop();
+            }
+        }
+    }
 }
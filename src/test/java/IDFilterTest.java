@@ -34,6 +34,55 @@ public class IDFilterTest {
             assertEquals("Must begin with Q", result4.getNotes());
         }
 
+        @Test
+        @DisplayName("Bulk validation gives the same answers as validateID")
+        void testBulkValidation() {
+            String[] ids = {"Q1234", "Q123", "Q12345", "A1234", null, "Q12\u00e94", "Q\ud83d\ude001", "Q12\ud83d\ude00", ""};
+            IDValidation bulk = IDValidator.validateAll(ids);
+
+            assertEquals(ids.length, bulk.size());
+            assertEquals(3, bulk.getValidCount());
+            for (int i = 0; i < ids.length; i++) {
+                ValueValid single = IDValidator.validateID(ids[i]);
+                assertEquals(single.isValid(), bulk.isValid(i));
+                assertEquals(single.isValid(), bulk.toBitSet().get(i));
+                assertEquals(single.getNotes(), bulk.getNotes(i));
+                assertEquals(single.toString(), bulk.toValueValid(i).toString());
+            }
+            assertEquals(IDValidator.TOO_LONG, bulk.getReasonCode(2));
+            assertEquals(6, bulk.getFailures().size());
+            assertEquals("Q123", bulk.getFailures().get(0).getValue());
+        }
+
+        @Test
+        @DisplayName("Bulk validation over CharSequences and UTF-8 bytes")
+        void testBulkValidationSources() {
+            List<CharSequence> ids = Arrays.asList("Q1234", new StringBuilder("Q123"), "Q12\u00e94", "Q\ud83d\ude001", "B1234");
+            IDValidation fromList = IDValidator.validateAll(ids);
+
+            StringBuilder joined = new StringBuilder();
+            for (CharSequence id : ids) {
+                joined.append(id);
+            }
+            byte[] bytes = joined.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            int[] offsets = new int[ids.size()];
+            int[] lengths = new int[ids.size()];
+            int offset = 0;
+            for (int i = 0; i < ids.size(); i++) {
+                offsets[i] = offset;
+                lengths[i] = ids.get(i).toString().getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
+                offset += lengths[i];
+            }
+            IDValidation fromBytes = IDValidator.validateAll(java.nio.ByteBuffer.wrap(bytes), offsets, lengths);
+
+            assertArrayEquals(new byte[] {IDValidator.VALID, IDValidator.TOO_SHORT, IDValidator.VALID,
+                    IDValidator.TOO_SHORT, IDValidator.NO_Q_PREFIX}, fromList.getReasonCodes());
+            assertArrayEquals(fromList.getReasonCodes(), fromBytes.getReasonCodes());
+            assertArrayEquals(fromList.getValidWords(), fromBytes.getValidWords());
+            assertEquals("Q12\u00e94", fromBytes.toValueValid(2).getValue());
+            assertEquals("Must begin with Q", fromBytes.getFailures().get(2).getNotes());
+        }
+
         @Test
         @DisplayName("ID class should validate correctly")
         void testIDClass() {
@@ -96,6 +145,1370 @@ public class IDFilterTest {
             int sum = dataFilter.filterByIDAndSum("Q0000");
             assertEquals(0, sum);
         }
+
+        @Test
+        @DisplayName("Index follows setData and later additions")
+        void testIndexAfterSetDataAndAdd() {
+            dataFilter.setData(Arrays.asList(new LabelValue("Q9999", 5), new LabelValue("Q1234", 7)));
+            dataFilter.addData("Q1234", 3);
+            dataFilter.addData(new LabelValue("Q9999", 1));
+
+            assertEquals(10, dataFilter.filterByIDAndSum("Q1234"));
+            assertEquals(6, dataFilter.filterByIDAndSum(new ID("Q9999")));
+            List<LabelValue> filtered = dataFilter.getFilteredData("Q9999");
+            assertEquals(2, filtered.size());
+            assertEquals(5, filtered.get(0).getValue());
+            assertEquals(1, filtered.get(1).getValue());
+        }
+
+        @Test
+        @DisplayName("getData is a read-only view of the rows present when it was taken")
+        void testGetDataView() {
+            List<LabelValue> data = dataFilter.getData();
+            dataFilter.addData("Q7777", 9);
+
+            assertEquals(3, data.size());
+            assertEquals("Q9999", data.get(1).getId().getValue());
+            assertEquals(2, data.get(1).getValue());
+            assertEquals(4, dataFilter.getRowCount());
+            assertThrows(UnsupportedOperationException.class, () -> data.add(new LabelValue("Q1111", 1)));
+        }
+
+        @Test
+        @DisplayName("Group by ID totals every ID in one pass")
+        void testGroupByID() {
+            dataFilter.addData("Q1234", -2);
+            Map<ID, IDTotals> totals = dataFilter.groupByID();
+
+            assertEquals(2, totals.size());
+            assertEquals(new IDTotals(new ID("Q1234"), 2, 3, -2, 3), totals.get(new ID("Q1234")));
+            assertEquals(new IDTotals(new ID("Q9999"), 2, 1, 2, 2), totals.get(new ID("Q9999")));
+            assertEquals("Q1234", totals.keySet().iterator().next().getValue());
+        }
+
+        @Test
+        @DisplayName("Group by ID matches per-ID sums across many chunks")
+        void testGroupByIDLarge() {
+            DataFilter large = new DataFilter();
+            for (int row = 0; row < 300_000; row++) {
+                large.addData(String.format("Q%04d", row % 97), row % 1000);
+            }
+            Map<ID, IDTotals> totals = large.groupByID();
+
+            assertEquals(97, totals.size());
+            for (IDTotals total : totals.values()) {
+                assertEquals(large.filterByIDAndSum(total.getId()), (int) total.getSum());
+                assertEquals(large.getFilteredData(total.getId()).size(), total.getCount());
+            }
+        }
+
+        @Test
+        @DisplayName("Invalid IDs are still filtered by exact match")
+        void testInvalidIDsStillFiltered() {
+            dataFilter.addData("A1234", 5);
+            dataFilter.addData("Q123", 6);
+            dataFilter.addData("A1234", 1);
+
+            assertEquals(6, dataFilter.filterByIDAndSum("A1234"));
+            assertEquals(6, dataFilter.filterByIDAndSum("Q123"));
+            assertEquals(0, dataFilter.filterByIDAndSum("B1234"));
+            assertEquals(2, dataFilter.getFilteredData("A1234").size());
+        }
+
+        @Test
+        @DisplayName("Sums outside the int range throw instead of wrapping")
+        void testSumOverflowThrows() {
+            dataFilter.addData("Q5555", Integer.MAX_VALUE);
+            dataFilter.addData("Q5555", 2);
+            assertThrows(ArithmeticException.class, () -> dataFilter.filterByIDAndSum("Q5555"));
+            assertEquals(Integer.MAX_VALUE + 2L, dataFilter.sum(FilterExpression.idEquals("Q5555")));
+        }
+    }
+
+    @Nested
+    @DisplayName("ID Encoding Tests")
+    class IDEncodingTests {
+
+        @Test
+        @DisplayName("Valid IDs pack into a canonical int and back")
+        void testEncodeDecode() {
+            int code = IDCodec.encode("Q1234");
+            assertTrue(IDCodec.isPacked(code));
+            assertEquals("Q1234", IDCodec.decode(code));
+            assertEquals(code, IDCodec.encode(new StringBuilder("Q1234")));
+            assertTrue(Integer.compareUnsigned(IDCodec.encode("Q1234"), IDCodec.encode("Q9999")) < 0);
+
+            assertEquals(IDCodec.NO_CODE, IDCodec.encode("Q123"));
+            assertEquals(IDCodec.NO_CODE, IDCodec.encode("A1234"));
+            assertEquals(IDCodec.NO_CODE, IDCodec.encode("Q12\u20ac4"));
+        }
+
+        @Test
+        @DisplayName("Aggregation map adds, grows and removes without boxing")
+        void testIntLongHashMap() {
+            IntLongHashMap map = new IntLongHashMap(2);
+            for (int key = 1; key <= 1000; key++) {
+                map.addTo(key, key);
+                map.addTo(key, 1);
+            }
+            assertEquals(1000, map.size());
+            assertEquals(501, map.get(500, -1));
+            assertEquals(-1, map.get(1001, -1));
+
+            for (int key = 1; key <= 1000; key += 2) {
+                assertTrue(map.remove(key));
+            }
+            assertEquals(500, map.size());
+            assertFalse(map.containsKey(999));
+            assertEquals(1001, map.get(1000, -1));
+            assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Filter Expression Tests")
+    class FilterExpressionTests {
+
+        private DataFilter dataFilter;
+        private List<LabelValue> rows;
+
+        @BeforeEach
+        void setUp() {
+            dataFilter = new DataFilter();
+            rows = new ArrayList<>();
+            Random random = new Random(7);
+            for (int row = 0; row < 150_000; row++) {
+                String id = row % 997 == 0 ? "Q12" : String.format("Q%04d", random.nextInt(400));
+                int value = random.nextInt(2001) - 1000;
+                dataFilter.addData(id, value);
+                rows.add(new LabelValue(id, value));
+            }
+        }
+
+        private void assertMatchesScan(FilterExpression filter, java.util.function.Predicate<LabelValue> expected) {
+            long sum = 0;
+            List<String> matching = new ArrayList<>();
+            for (LabelValue row : rows) {
+                if (expected.test(row)) {
+                    sum += row.getValue();
+                    matching.add(row.toString());
+                }
+            }
+            assertEquals(sum, dataFilter.sum(filter), filter.toString());
+            assertEquals(matching.size(), dataFilter.count(filter), filter.toString());
+            List<String> actual = new ArrayList<>();
+            for (LabelValue row : dataFilter.getFilteredData(filter)) {
+                actual.add(row.toString());
+            }
+            assertEquals(matching, actual, filter.toString());
+        }
+
+        @Test
+        @DisplayName("ID sets are answered through the index")
+        void testIdSets() {
+            assertMatchesScan(FilterExpression.idEquals("Q0007"), r -> r.getId().getValue().equals("Q0007"));
+            assertMatchesScan(FilterExpression.idIn("Q0001", "Q0002", "Q12", "Q9999"),
+                    r -> Arrays.asList("Q0001", "Q0002", "Q12").contains(r.getId().getValue()));
+            assertMatchesScan(FilterExpression.and(FilterExpression.idIn("Q0001", "Q0002"), FilterExpression.valueRange(0, 500)),
+                    r -> Arrays.asList("Q0001", "Q0002").contains(r.getId().getValue())
+                            && r.getValue() >= 0 && r.getValue() <= 500);
+            assertMatchesScan(FilterExpression.idIn(), r -> false);
+            assertEquals(dataFilter.filterByIDAndSum("Q0007"), dataFilter.filterBy(FilterExpression.idEquals("Q0007")).getSum());
+        }
+
+        @Test
+        @DisplayName("Prefixes, ranges, negation and combinations are scanned")
+        void testScans() {
+            assertMatchesScan(FilterExpression.idPrefix("Q01"), r -> r.getId().getValue().startsWith("Q01"));
+            assertMatchesScan(FilterExpression.idPrefix("Q1"), r -> r.getId().getValue().startsWith("Q1"));
+            assertMatchesScan(FilterExpression.idPrefix(""), r -> true);
+            assertMatchesScan(FilterExpression.idPrefix("X"), r -> false);
+            assertMatchesScan(FilterExpression.valueRange(-10, 10), r -> Math.abs(r.getValue()) <= 10);
+            assertMatchesScan(FilterExpression.valueRange(Integer.MIN_VALUE, Integer.MAX_VALUE), r -> true);
+            assertMatchesScan(FilterExpression.not(FilterExpression.idPrefix("Q0")), r -> !r.getId().getValue().startsWith("Q0"));
+            assertMatchesScan(FilterExpression.or(FilterExpression.idPrefix("Q02"),
+                            FilterExpression.and(FilterExpression.valueRange(900, 1000), FilterExpression.not(FilterExpression.idEquals("Q0300")))),
+                    r -> r.getId().getValue().startsWith("Q02")
+                            || (r.getValue() >= 900 && !r.getId().getValue().equals("Q0300")));
+        }
+
+        @Test
+        @DisplayName("FilterValue names beyond ID and expression text")
+        void testFilterValueAndText() {
+            int expected = 0;
+            for (LabelValue row : rows) {
+                if (row.getId().getValue().startsWith("Q00")) {
+                    expected += row.getValue();
+                }
+            }
+            assertEquals(expected, dataFilter.filterBy(new FilterValue("IDPrefix", "Q00")).getSum());
+            assertEquals(0, dataFilter.filterBy(new FilterValue("Other", "Q00")).getSum());
+            assertEquals("(id in [Q0001, Q0002] and not (value between 1 and 5))",
+                    FilterExpression.and(FilterExpression.idIn("Q0002", "Q0001"),
+                            FilterExpression.not(FilterExpression.valueRange(1, 5))).toString());
+            assertThrows(IllegalArgumentException.class, () -> FilterExpression.valueRange(5, 1));
+            assertThrows(IllegalArgumentException.class, () -> FilterExpression.and());
+        }
+    }
+
+    @Nested
+    @DisplayName("Sorted ID Index Tests")
+    class SortedIDIndexTests {
+
+        private long expectedSum(List<LabelValue> rows, java.util.function.Predicate<String> matches) {
+            long sum = 0;
+            for (LabelValue row : rows) {
+                if (matches.test(row.getId().getValue())) {
+                    sum += row.getValue();
+                }
+            }
+            return sum;
+        }
+
+        @Test
+        @DisplayName("Range and prefix sums stay exact while rows and new IDs arrive")
+        void testRangeSums() {
+            DataFilter dataFilter = new DataFilter();
+            List<LabelValue> rows = new ArrayList<>();
+            Random random = new Random(11);
+            String[] odd = {"Q12", "Q1000x", "bad", "Q1\u00e9\u00e9\u00e9", "Q\u4e00123"};
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 2_000; i++) {
+                    String id = i % 211 == 0 ? odd[random.nextInt(odd.length)]
+                            : String.format("Q%04d", random.nextInt(500 * (round + 1)));
+                    int value = random.nextInt(201) - 100;
+                    dataFilter.addData(id, value);
+                    rows.add(new LabelValue(id, value));
+                }
+                assertEquals(expectedSum(rows, id -> id.compareTo("Q1000") >= 0 && id.compareTo("Q1999") <= 0),
+                        dataFilter.sumRange("Q1000", "Q1999"));
+                assertEquals(expectedSum(rows, id -> id.compareTo("Q0") >= 0 && id.compareTo("Q1") <= 0),
+                        dataFilter.sumRange("Q0", "Q1"));
+                assertEquals(expectedSum(rows, id -> id.startsWith("Q1")),
+                        dataFilter.sum(FilterExpression.idPrefix("Q1")));
+                assertEquals(expectedSum(rows, id -> id.startsWith("Q12")),
+                        dataFilter.sum(FilterExpression.idPrefix("Q12")));
+                assertEquals(expectedSum(rows, id -> true), dataFilter.sum(FilterExpression.idPrefix("")));
+            }
+            int inRange = 0;
+            for (LabelValue row : rows) {
+                String id = row.getId().getValue();
+                if (id.compareTo("Q0100") >= 0 && id.compareTo("Q0199") <= 0) {
+                    inRange++;
+                }
+            }
+            assertEquals(inRange, dataFilter.countRange("Q0100", "Q0199"));
+            assertEquals(0, dataFilter.sumRange("R", "Z"));
+        }
+
+        @Test
+        @DisplayName("Range lists are ordered by ID, then by row")
+        void testRangeLists() {
+            DataFilter dataFilter = new DataFilter();
+            dataFilter.addData("Q0300", 1);
+            dataFilter.addData("Q0200", 2);
+            dataFilter.addData("Q02", 3);
+            dataFilter.addData("Q0200", 4);
+            dataFilter.addData("Q0100", 5);
+            List<String> listed = new ArrayList<>();
+            for (LabelValue row : dataFilter.getDataInRange("Q02", "Q0300")) {
+                listed.add(row.toString());
+            }
+            assertEquals(Arrays.asList(new LabelValue("Q02", 3).toString(), new LabelValue("Q0200", 2).toString(),
+                    new LabelValue("Q0200", 4).toString(), new LabelValue("Q0300", 1).toString()), listed);
+            assertTrue(dataFilter.getDataInRange("Q0301", "Q0400").isEmpty());
+            assertEquals(6, dataFilter.filterBy(FilterExpression.and(FilterExpression.idRange("Q0200", "Q0299"),
+                    FilterExpression.valueRange(1, 10))).getSum());
+            assertEquals("id between Q0200 and Q0299", FilterExpression.idRange("Q0200", "Q0299").toString());
+            assertThrows(IllegalArgumentException.class, () -> FilterExpression.idRange("Q2", "Q1"));
+            assertThrows(IllegalArgumentException.class, () -> dataFilter.getDataInRange("Q2", "Q1"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Query Cache Tests")
+    class QueryCacheTests {
+
+        private DataFilter dataFilter;
+
+        @BeforeEach
+        void setUp() {
+            dataFilter = new DataFilter();
+            for (int row = 0; row < 1_000; row++) {
+                dataFilter.addData(String.format("Q%04d", row % 50), row);
+            }
+        }
+
+        @Test
+        @DisplayName("Repeated queries share one unmodifiable result")
+        void testHits() {
+            FilterExpression query = FilterExpression.idIn("Q0003", "Q0001");
+            List<LabelValue> first = dataFilter.getFilteredData(query);
+            List<LabelValue> second = dataFilter.getFilteredData(FilterExpression.idIn("Q0001", "Q0003", "Q0001"));
+            assertSame(first, second);
+            assertEquals(40, first.size());
+            assertThrows(UnsupportedOperationException.class, () -> first.add(new LabelValue("Q0001", 1)));
+            int cachedValue = first.get(0).getValue();
+            first.get(0).setValue(999);
+            first.get(0).setId("Q9999");
+            LabelValue reread = dataFilter.getFilteredData(query).get(0);
+            assertEquals(cachedValue, reread.getValue());
+            assertEquals("Q0001", reread.getId().getValue());
+
+            assertEquals(dataFilter.filterByIDAndSum("Q0007"),
+                    dataFilter.filterBy(new FilterValue("ID", "Q0007")).getSum());
+            assertEquals(dataFilter.filterByIDAndSum("Q0007"),
+                    (int) dataFilter.sum(FilterExpression.idEquals("Q0007")));
+            QueryCache cache = dataFilter.getQueryCache();
+            assertEquals(3, cache.getHits());
+            assertEquals(2, cache.getMisses());
+            assertEquals(0.6, cache.getHitRate());
+        }
+
+        @Test
+        @DisplayName("IDs that read like expression text get their own cache entries")
+        void testAmbiguousIds() {
+            DataFilter filter = new DataFilter();
+            filter.addData("a", 1);
+            filter.addData("b, c", 10);
+            filter.addData("a, b", 100);
+            filter.addData("c", 1_000);
+            filter.addData("x and id = y", 10_000);
+            filter.addData("x", 100_000);
+
+            assertEquals(11, filter.sum(FilterExpression.idIn("a", "b, c")));
+            assertEquals(1_100, filter.sum(FilterExpression.idIn("a, b", "c")));
+            // Both print as "id = x and id = y"
+            assertEquals(10_000, filter.sum(FilterExpression.idEquals("x and id = y")));
+            assertEquals(0, filter.sum(FilterExpression.and(FilterExpression.idEquals("x"),
+                    FilterExpression.idEquals("y"))));
+            assertEquals(0, filter.getQueryCache().getHits());
+            assertEquals(1_100, filter.sum(FilterExpression.idIn("c", "a, b")));
+            assertEquals(1, filter.getQueryCache().getHits());
+        }
+
+        @Test
+        @DisplayName("An added row drops only the results it can change")
+        void testPreciseInvalidation() {
+            FilterExpression one = FilterExpression.idEquals("Q0001");
+            FilterExpression two = FilterExpression.idEquals("Q0002");
+            FilterExpression prefix = FilterExpression.idPrefix("Q001");
+            FilterExpression range = FilterExpression.and(FilterExpression.idRange("Q0040", "Q0049"),
+                    FilterExpression.valueRange(0, 100));
+            FilterExpression values = FilterExpression.valueRange(0, 10);
+            long oneSum = dataFilter.sum(one);
+            long twoSum = dataFilter.sum(two);
+            long prefixSum = dataFilter.sum(prefix);
+            long rangeSum = dataFilter.sum(range);
+            long valuesSum = dataFilter.sum(values);
+            QueryCache cache = dataFilter.getQueryCache();
+            assertEquals(5, cache.size());
+
+            dataFilter.addData("Q0002", 5);
+            assertEquals(3, cache.size());
+            assertEquals(oneSum, dataFilter.sum(one));
+            assertEquals(prefixSum, dataFilter.sum(prefix));
+            assertEquals(rangeSum, dataFilter.sum(range));
+            assertEquals(3, cache.getHits());
+            assertEquals(twoSum + 5, dataFilter.sum(two));
+            assertEquals(valuesSum + 5, dataFilter.sum(values));
+
+            dataFilter.addData("Q0015", 1_000);
+            dataFilter.addData("Q0099", 1);
+            assertEquals(prefixSum + 1_000, dataFilter.sum(prefix));
+            assertEquals(rangeSum, dataFilter.sum(range));
+            assertEquals(oneSum, dataFilter.sum(one));
+            assertEquals(4, cache.getInvalidations());
+        }
+
+        @Test
+        @DisplayName("The least recently used result is evicted first")
+        void testEviction() {
+            QueryCache cache = dataFilter.getQueryCache();
+            cache.setMaxEntries(2);
+            dataFilter.count(FilterExpression.idEquals("Q0001"));
+            dataFilter.count(FilterExpression.idEquals("Q0002"));
+            dataFilter.count(FilterExpression.idEquals("Q0001"));
+            dataFilter.count(FilterExpression.idEquals("Q0003"));
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getEvictions());
+            dataFilter.count(FilterExpression.idEquals("Q0001"));
+            assertEquals(2, cache.getHits());
+
+            cache.setMaxEntries(0);
+            assertEquals(0, cache.size());
+            assertEquals(20, dataFilter.count(FilterExpression.idEquals("Q0001")));
+            assertEquals(0, cache.size());
+            assertThrows(IllegalArgumentException.class, () -> cache.setMaxEntries(-1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Heavy Hitter Tests")
+    class HeavyHitterTests {
+
+        private List<String> sortedTop(Map<String, Long> totals, int k) {
+            List<String> ids = new ArrayList<>(totals.keySet());
+            ids.sort((a, b) -> totals.get(a).equals(totals.get(b)) ? a.compareTo(b) : Long.compare(totals.get(b), totals.get(a)));
+            List<String> top = new ArrayList<>();
+            for (String id : ids.subList(0, Math.min(k, ids.size()))) {
+                top.add(id + "=" + totals.get(id));
+            }
+            return top;
+        }
+
+        @Test
+        @DisplayName("Exact top-K follows every added row, including negative values")
+        void testExactTopK() {
+            DataFilter dataFilter = new DataFilter();
+            Map<String, Long> totals = new HashMap<>();
+            Random random = new Random(3);
+            for (int round = 0; round < 5; round++) {
+                for (int row = 0; row < 20_000; row++) {
+                    String id = String.format("Q%04d", random.nextInt(500));
+                    int value = random.nextInt(1000) - 300;
+                    dataFilter.addData(id, value);
+                    totals.merge(id, (long) value, Long::sum);
+                }
+                List<String> actual = new ArrayList<>();
+                for (HeavyHitter hitter : dataFilter.topK(10)) {
+                    assertEquals(0, hitter.getError());
+                    actual.add(hitter.getId().getValue() + "=" + hitter.getTotal());
+                }
+                assertEquals(sortedTop(totals, 10), actual);
+            }
+            assertEquals(500, dataFilter.topK(1000).size());
+            assertTrue(dataFilter.topK(0).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Space-Saving keeps its error bounds on a skewed feed")
+        void testSpaceSaving() {
+            HeavyHitterSketch sketch = new HeavyHitterSketch(100);
+            Map<String, Long> totals = new HashMap<>();
+            Random random = new Random(5);
+            for (int row = 0; row < 200_000; row++) {
+                // Roughly Zipf-distributed IDs over 10,000 values
+                int rank = (int) Math.floor(Math.pow(10_000, random.nextDouble()));
+                String id = String.format("Q%04d", rank % 10_000);
+                int weight = 1 + random.nextInt(5);
+                sketch.add(id, weight);
+                totals.merge(id, (long) weight, Long::sum);
+            }
+
+            long bound = sketch.getTotalWeight() / sketch.getCapacity();
+            assertTrue(sketch.getMaxError() <= bound);
+            List<HeavyHitter> top = sketch.top(100);
+            for (HeavyHitter hitter : top) {
+                long actual = totals.getOrDefault(hitter.getId().getValue(), 0L);
+                assertTrue(actual <= hitter.getTotal() && hitter.getTotal() - hitter.getError() <= actual, hitter.toString());
+            }
+            Set<String> tracked = new HashSet<>();
+            for (HeavyHitter hitter : top) {
+                tracked.add(hitter.getId().getValue());
+            }
+            for (Map.Entry<String, Long> entry : totals.entrySet()) {
+                if (entry.getValue() > bound) {
+                    assertTrue(tracked.contains(entry.getKey()), entry.getKey());
+                }
+            }
+            assertEquals(sortedTop(totals, 3).get(0).split("=")[0], top.get(0).getId().getValue());
+            assertThrows(IllegalArgumentException.class, () -> sketch.add("Q0001", -1));
+        }
+
+        @Test
+        @DisplayName("Count-Min never underestimates and stays within epsilon")
+        void testCountMin() {
+            CountMinSketch sketch = new CountMinSketch(0.001, 0.01);
+            CountMinSketch other = new CountMinSketch(0.001, 0.01);
+            Map<String, Long> totals = new HashMap<>();
+            Random random = new Random(9);
+            for (int row = 0; row < 100_000; row++) {
+                String id = row % 1000 == 0 ? "bad-" + row % 3 : String.format("Q%04d", random.nextInt(5000));
+                int weight = 1 + random.nextInt(3);
+                (row % 2 == 0 ? sketch : other).add(id, weight);
+                totals.merge(id, (long) weight, Long::sum);
+            }
+            sketch.merge(other);
+            assertEquals(2719, sketch.getWidth());
+            assertEquals(5, sketch.getDepth());
+
+            long slack = (long) (0.001 * sketch.getTotalWeight());
+            int over = 0;
+            for (Map.Entry<String, Long> entry : totals.entrySet()) {
+                long estimate = sketch.estimate(entry.getKey());
+                assertTrue(estimate >= entry.getValue());
+                if (estimate > entry.getValue() + slack) {
+                    over++;
+                }
+            }
+            assertTrue(over <= totals.size() / 50, "over by more than epsilon: " + over);
+        }
+    }
+
+    @Nested
+    @DisplayName("Value Summary Tests")
+    class ValueSummaryTests {
+
+        @Test
+        @DisplayName("Sums do not wrap around at the int range")
+        void testWideSums() {
+            DataFilter dataFilter = new DataFilter();
+            for (int i = 0; i < 3; i++) {
+                dataFilter.addData("Q1234", Integer.MAX_VALUE);
+            }
+            long expected = 3L * Integer.MAX_VALUE;
+            ResultValue result = dataFilter.filterBy(FilterExpression.idEquals("Q1234"));
+            assertEquals(expected, result.getLongSum());
+            assertThrows(ArithmeticException.class, result::getSum);
+            assertEquals(expected, dataFilter.summarize("Q1234").getSum());
+            assertEquals(Integer.MAX_VALUE, dataFilter.summarize("Q1234").getMin());
+            assertEquals(1L, dataFilter.summarize("Q1234").getDistinctCount());
+
+            ConcurrentDataFilter concurrent = new ConcurrentDataFilter(4);
+            for (int i = 0; i < 3; i++) {
+                concurrent.addData("Q1234", Integer.MAX_VALUE);
+            }
+            assertEquals(expected, concurrent.filterBy(new FilterValue("ID", "Q1234")).getLongSum());
+            assertThrows(ArithmeticException.class, () -> concurrent.filterByIDAndSum("Q1234"));
+        }
+
+        @Test
+        @DisplayName("Distinct counts and quantiles stay within their error bounds")
+        void testSketchAccuracy() {
+            HyperLogLog distinct = new HyperLogLog();
+            QuantileSketch quantiles = new QuantileSketch();
+            for (int value = -50_000; value < 50_000; value++) {
+                distinct.add(value);
+                distinct.add(value);
+                quantiles.add(value);
+            }
+            assertEquals(100_000, distinct.estimate(), 10_000);
+            assertEquals(0, quantiles.quantile(0.5), 1);
+            assertEquals(40_000, quantiles.quantile(0.9), 400);
+            assertEquals(-40_000, quantiles.quantile(0.1), 400);
+            assertEquals(-50_000, quantiles.quantile(0), 0);
+            assertEquals(49_999, quantiles.quantile(1), 0);
+            assertThrows(IllegalArgumentException.class, () -> quantiles.quantile(1.5));
+            assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+            assertTrue(Double.isNaN(new DataFilter().summarize("unknown-id").getQuantile(0.99)));
+            assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+            assertThrows(IllegalArgumentException.class, () -> distinct.merge(new HyperLogLog(12)));
+        }
+
+        @Test
+        @DisplayName("Merged summaries equal the summary of all the values")
+        void testMerge() {
+            ValueSummary all = new ValueSummary();
+            ValueSummary even = new ValueSummary();
+            ValueSummary odd = new ValueSummary();
+            Random random = new Random(3);
+            for (int i = 0; i < 20_000; i++) {
+                int value = random.nextInt(5_000) - 1_000;
+                all.add(value);
+                (i % 2 == 0 ? even : odd).add(value);
+            }
+            ValueSummary merged = odd.copy();
+            merged.merge(even);
+            assertEquals(all.getSum(), merged.getSum());
+            assertEquals(all.getCount(), merged.getCount());
+            assertEquals(all.getMin(), merged.getMin());
+            assertEquals(all.getMax(), merged.getMax());
+            assertEquals(all.getDistinctCount(), merged.getDistinctCount());
+            for (double q : new double[] {0, 0.25, 0.5, 0.99, 1}) {
+                assertEquals(all.getQuantile(q), merged.getQuantile(q), 0.0);
+            }
+            assertEquals(10_000L, odd.getCount());
+        }
+
+        @Test
+        @DisplayName("Per-ID summaries follow added, updated and deleted rows")
+        void testIncrementalSummaries() {
+            DataFilter dataFilter = new DataFilter();
+            dataFilter.setReclaimThreshold(1);
+            for (int value = 1; value <= 100; value++) {
+                dataFilter.addData("Q0001", value);
+                dataFilter.addData("odd id", -value);
+            }
+            ValueSummary first = dataFilter.summarize("Q0001");
+            assertEquals(5050L, first.getSum());
+            assertEquals(50.5, first.getMean(), 0.0);
+            assertEquals(100L, first.getDistinctCount());
+            assertEquals(50, first.getQuantile(0.5), 1);
+
+            dataFilter.addData("Q0001", 1000);
+            assertEquals(1000, dataFilter.summarize("Q0001").getMax());
+            assertEquals(100, first.getMax());
+
+            dataFilter.updateRow(0, 500);
+            dataFilter.deleteRow(1);
+            ValueSummary changed = dataFilter.summarize(new ID("Q0001"));
+            assertEquals(5050L - 1 + 500 + 1000, changed.getSum());
+            assertEquals(101L, changed.getCount());
+            assertEquals(2, changed.getMin());
+            assertEquals(-5049L, dataFilter.summarize("odd id").getSum());
+
+            ValueSummary both = dataFilter.summarize(FilterExpression.idIn("Q0001", "odd id"));
+            assertEquals(changed.getSum() - 5049, both.getSum());
+            ValueSummary negative = dataFilter.summarize(FilterExpression.valueRange(-10, -1));
+            assertEquals(-54L, negative.getSum());
+            assertEquals(0L, dataFilter.summarize("Q9999").getCount());
+        }
+    }
+
+    @Nested
+    @DisplayName("Windowed Aggregation Tests")
+    class WindowedAggregationTests {
+
+        @Test
+        @DisplayName("Sliding and tumbling sums match the rows in the window")
+        void testWindowsMatchRows() {
+            // One-minute panes, one hour kept
+            WindowedAggregator windows = new WindowedAggregator(60_000, 60);
+            List<TimedLabelValue> rows = new ArrayList<>();
+            Random random = new Random(11);
+            long now = 1_700_000_000_000L;
+            for (int row = 0; row < 50_000; row++) {
+                now += random.nextInt(400);
+                // Up to 2 minutes out of order
+                long timestamp = now - random.nextInt(120_000);
+                TimedLabelValue item = new TimedLabelValue(String.format("Q%04d", random.nextInt(50)), random.nextInt(100), timestamp);
+                rows.add(item);
+                windows.add(item);
+            }
+
+            long windowStart = windows.getWindowStart();
+            long currentPaneEnd = windowStart + 60 * 60_000L;
+            long fiveMinuteStart = currentPaneEnd - 5 * 60_000L;
+            long tumblingStart = windowStart + 10 * 60_000L;
+            for (String id : Arrays.asList("Q0000", "Q0017", "Q0049")) {
+                long hour = 0, fiveMinutes = 0, tumbling = 0, count = 0;
+                for (TimedLabelValue row : rows) {
+                    if (!row.getId().getValue().equals(id) || row.getTimestamp() < windowStart) {
+                        continue;
+                    }
+                    hour += row.getValue();
+                    count++;
+                    if (row.getTimestamp() >= fiveMinuteStart) {
+                        fiveMinutes += row.getValue();
+                    }
+                    if (row.getTimestamp() >= tumblingStart && row.getTimestamp() < tumblingStart + 15 * 60_000L) {
+                        tumbling += row.getValue();
+                    }
+                }
+                assertEquals(hour, windows.sum(id));
+                assertEquals(count, windows.count(id));
+                assertEquals(hour, windows.sum(id, 60 * 60_000L));
+                assertEquals(fiveMinutes, windows.sum(id, 5 * 60_000L));
+                assertEquals(tumbling, windows.sum(id, tumblingStart, tumblingStart + 15 * 60_000L));
+                assertEquals(hour, (long) windows.sums().get(new ID(id)));
+            }
+            assertEquals(50, windows.getActiveIDs());
+        }
+
+        @Test
+        @DisplayName("Expired panes are evicted and late rows ignored")
+        void testEviction() {
+            WindowedAggregator windows = new WindowedAggregator(1000, 5);
+            windows.add("Q0001", 5, 0);
+            windows.add("Q0002", 7, 2500);
+            windows.add("bad", 1, 4999);
+            assertEquals(5, windows.sum("Q0001"));
+            assertEquals(1, windows.sum("bad"));
+            assertEquals(3, windows.getActiveIDs());
+
+            windows.add("Q0002", 1, 5000);
+            assertEquals(0, windows.sum("Q0001"));
+            assertEquals(8, windows.sum("Q0002"));
+            assertEquals(2, windows.getActiveIDs());
+
+            assertFalse(windows.add("Q0001", 9, 999));
+            assertEquals(1, windows.getLateRows());
+            assertTrue(windows.add("Q0001", 9, 1000));
+            assertEquals(9, windows.sum("Q0001", 1000, 2000));
+
+            windows.advanceTo(1_000_000);
+            assertEquals(0, windows.getActiveIDs());
+            assertEquals(0, windows.sum("Q0002"));
+            assertTrue(windows.sums().isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> windows.sum("Q0002", 1500));
+        }
+    }
+
+    @Nested
+    @DisplayName("Data Snapshot Tests")
+    class DataSnapshotTests {
+
+        @Test
+        @DisplayName("Snapshots keep their rows while more are added")
+        void testSnapshotIsStable() {
+            DataFilter dataFilter = new DataFilter();
+            dataFilter.addData("Q1234", 1);
+            dataFilter.addData("bad", 2);
+            DataSnapshot snapshot = dataFilter.snapshot();
+            dataFilter.addData("Q9999", 3);
+
+            assertEquals(2, snapshot.size());
+            assertEquals(3, dataFilter.snapshot().size());
+            assertEquals("bad", snapshot.getId(1));
+            assertEquals(2, snapshot.getValue(1));
+            assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(2));
+
+            RowCursor cursor = snapshot.cursor();
+            assertThrows(IllegalStateException.class, cursor::value);
+            assertTrue(cursor.next());
+            assertEquals("Q1234", cursor.id());
+            assertEquals(IDCodec.encode("Q1234"), cursor.code());
+            assertTrue(cursor.next());
+            assertEquals("LabelValue(id=bad, value=2)", cursor.toLabelValue().toString());
+            assertFalse(cursor.next());
+
+            dataFilter.setData(new ArrayList<>());
+            assertEquals(2, snapshot.size());
+            assertEquals("Q1234", snapshot.get(0).getId().getValue());
+        }
+
+        @Test
+        @DisplayName("Pages, iterators and parallel streams read the same rows")
+        void testAccessPaths() {
+            DataFilter dataFilter = new DataFilter();
+            for (int row = 0; row < 100_000; row++) {
+                dataFilter.addData(String.format("Q%04d", row % 321), row);
+            }
+            DataSnapshot snapshot = dataFilter.snapshot();
+
+            long expected = 100_000L * 99_999 / 2;
+            assertEquals(expected, snapshot.parallelStream().mapToLong(LabelValue::getValue).sum());
+            assertEquals(expected, snapshot.stream().mapToLong(LabelValue::getValue).sum());
+            long iterated = 0;
+            for (LabelValue item : snapshot) {
+                iterated += item.getValue();
+            }
+            assertEquals(expected, iterated);
+
+            List<LabelValue> page = snapshot.page(99_990, 50);
+            assertEquals(10, page.size());
+            assertEquals(99_990, page.get(0).getValue());
+            assertTrue(snapshot.page(200_000, 10).isEmpty());
+
+            RowCursor range = snapshot.cursor(10, 12);
+            assertTrue(range.next());
+            assertEquals(10, range.row());
+            assertTrue(range.next());
+            assertFalse(range.next());
+        }
+
+        @Test
+        @DisplayName("Readers see whole rows while one thread appends")
+        void testConcurrentReaders() throws InterruptedException {
+            DataFilter dataFilter = new DataFilter();
+            int rows = 300_000;
+            java.util.concurrent.atomic.AtomicReference<String> failure = new java.util.concurrent.atomic.AtomicReference<>();
+            Thread writer = new Thread(() -> {
+                for (int row = 0; row < rows; row++) {
+                    dataFilter.addData(row % 7 == 0 ? "bad" + row % 5 : String.format("Q%04d", row % 1000), row);
+                }
+            });
+            Thread reader = new Thread(() -> {
+                int lastSize = 0;
+                while (lastSize < rows && failure.get() == null) {
+                    DataSnapshot snapshot = dataFilter.snapshot();
+                    if (snapshot.size() < lastSize) {
+                        failure.set("snapshot shrank");
+                    }
+                    lastSize = snapshot.size();
+                    RowCursor cursor = snapshot.cursor(Math.max(0, lastSize - 2000), lastSize);
+                    while (cursor.next()) {
+                        int row = cursor.row();
+                        String id = row % 7 == 0 ? "bad" + row % 5 : String.format("Q%04d", row % 1000);
+                        if (cursor.value() != row || !cursor.id().equals(id)) {
+                            failure.set("row " + row + " read as " + cursor.toLabelValue());
+                        }
+                    }
+                }
+            });
+            writer.start();
+            reader.start();
+            writer.join();
+            reader.join();
+            assertNull(failure.get(), failure.get());
+        }
+    }
+
+    @Nested
+    @DisplayName("Update and Delete Tests")
+    class UpdateDeleteTests {
+
+        private DataFilter filterWithRows() {
+            DataFilter dataFilter = new DataFilter();
+            dataFilter.setReclaimThreshold(1);
+            dataFilter.addData("Q1000", 1);
+            dataFilter.addData("Q2000", 2);
+            dataFilter.addData("odd id", 3);
+            dataFilter.addData("Q1000", 4);
+            dataFilter.addData("Q3000", 5);
+            return dataFilter;
+        }
+
+        @Test
+        @DisplayName("Updates and deletes keep sums, ranges and top IDs current")
+        void testIncrementalTotals() {
+            DataFilter dataFilter = filterWithRows();
+            assertEquals(1, dataFilter.topK(1).size());
+            assertEquals(12, dataFilter.sumRange("Q0000", "Q9999"));
+
+            assertEquals(4, dataFilter.updateRow(3, 40));
+            assertEquals(41, dataFilter.filterByIDAndSum("Q1000"));
+            assertEquals(48, dataFilter.sumRange("Q1000", "Q3000"));
+            assertEquals("Q1000", dataFilter.topK(1).get(0).getId().getValue());
+
+            assertEquals("LabelValue(id=Q2000, value=2)", dataFilter.deleteRow(1).toString());
+            assertEquals(4, dataFilter.getRowCount());
+            assertEquals(1, dataFilter.getDeletedRowCount());
+            assertEquals("odd id", dataFilter.snapshot().getId(1));
+            assertEquals(0, dataFilter.filterByIDAndSum("Q2000"));
+            assertEquals(46, dataFilter.sumRange("Q1000", "Q3000"));
+            assertEquals(2, dataFilter.countRange("Q1000", "Q1999"));
+
+            assertEquals(2, dataFilter.deleteID("Q1000"));
+            assertEquals(0, dataFilter.deleteID("Q1000"));
+            assertEquals(0, dataFilter.filterByIDAndSum("Q1000"));
+            assertTrue(dataFilter.getFilteredData("Q1000").isEmpty());
+            assertEquals(5, dataFilter.sumRange("Q0000", "Q9999"));
+            assertEquals(8, dataFilter.sum(FilterExpression.valueRange(0, Integer.MAX_VALUE)));
+            assertEquals(2, dataFilter.getRowCount());
+            assertEquals("Q3000", dataFilter.topK(1).get(0).getId().getValue());
+            assertEquals(2, dataFilter.groupByID().size());
+            assertEquals(3L, dataFilter.groupByID().get(new ID("odd id")).getSum());
+
+            assertThrows(IndexOutOfBoundsException.class, () -> dataFilter.updateRow(2, 0));
+            assertThrows(IndexOutOfBoundsException.class, () -> dataFilter.deleteRow(-1));
+        }
+
+        @Test
+        @DisplayName("Cached results are dropped for the changed ID only")
+        void testCacheInvalidation() {
+            DataFilter dataFilter = filterWithRows();
+            FilterExpression q1000 = FilterExpression.idEquals("Q1000");
+            FilterExpression q3000 = FilterExpression.idEquals("Q3000");
+            assertEquals(5, dataFilter.sum(q1000));
+            assertEquals(5, dataFilter.sum(q3000));
+
+            dataFilter.updateRow(0, 10);
+            assertEquals(14, dataFilter.sum(q1000));
+            long hits = dataFilter.getQueryCache().getHits();
+            assertEquals(5, dataFilter.sum(q3000));
+            assertEquals(hits + 1, dataFilter.getQueryCache().getHits());
+
+            dataFilter.deleteRow(3);
+            assertEquals(10, dataFilter.sum(q1000));
+            assertEquals(1, dataFilter.count(q1000));
+        }
+
+        @Test
+        @DisplayName("Snapshots keep the values and rows they were taken with")
+        void testSnapshotsUnaffected() {
+            DataFilter dataFilter = filterWithRows();
+            DataSnapshot before = dataFilter.snapshot();
+            dataFilter.updateRow(0, 100);
+            dataFilter.deleteRow(2);
+            DataSnapshot after = dataFilter.snapshot();
+            dataFilter.deleteID("Q3000");
+
+            assertEquals(5, before.size());
+            assertEquals(1, before.getValue(0));
+            assertEquals("odd id", before.getId(2));
+            assertEquals(15, before.stream().mapToInt(LabelValue::getValue).sum());
+
+            assertEquals(4, after.size());
+            assertEquals(100, after.getValue(0));
+            assertEquals("Q1000", after.getId(2));
+            RowCursor cursor = after.cursor(2, 4);
+            assertTrue(cursor.next());
+            assertEquals(2, cursor.row());
+            assertEquals(4, cursor.value());
+            assertTrue(cursor.next());
+            assertEquals(5, cursor.value());
+            assertFalse(cursor.next());
+            assertEquals(3, dataFilter.getRowCount());
+        }
+
+        @Test
+        @DisplayName("Reclaiming drops deleted rows without changing the data")
+        void testReclaim() throws Exception {
+            DataFilter dataFilter = new DataFilter();
+            dataFilter.setReclaimThreshold(1);
+            for (int row = 0; row < 200_000; row++) {
+                dataFilter.addData(row % 7 == 0 ? "odd" + (row % 5) : String.format("Q%04d", row % 100), row);
+            }
+            for (int row = 150_000; row >= 0; row -= 3) {
+                dataFilter.deleteRow(row);
+            }
+            dataFilter.deleteID("Q0042");
+            DataSnapshot before = dataFilter.snapshot();
+            long total = before.stream().mapToLong(LabelValue::getValue).sum();
+            long q0017 = dataFilter.filterByIDAndSum("Q0017");
+
+            assertEquals(dataFilter.getDeletedRowCount(), (int) dataFilter.reclaimInBackground().get());
+            assertEquals(0, dataFilter.getDeletedRowCount());
+            assertEquals(1, dataFilter.getReclaimCount());
+            assertEquals(0, dataFilter.reclaim());
+            assertEquals(before.size(), dataFilter.getRowCount());
+            assertEquals(total, dataFilter.sum(FilterExpression.valueRange(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+            assertEquals(q0017, dataFilter.filterByIDAndSum("Q0017"));
+            assertEquals(0, dataFilter.filterByIDAndSum("Q0042"));
+            DataSnapshot after = dataFilter.snapshot();
+            for (int row = 0; row < after.size(); row += 997) {
+                assertEquals(before.get(row).toString(), after.get(row).toString());
+            }
+
+            dataFilter.addData("odd3", 7);
+            dataFilter.setReclaimThreshold(0.5);
+            int rows = dataFilter.getRowCount();
+            for (int row = 0; row < rows / 2 + 1; row++) {
+                dataFilter.deleteRow(0);
+            }
+            // The delete that crossed the threshold started a reclaim already
+            dataFilter.reclaimInBackground().get();
+            assertTrue(dataFilter.getReclaimCount() >= 2);
+            assertEquals(0, dataFilter.getDeletedRowCount());
+            assertEquals(rows - rows / 2 - 1, dataFilter.getRowCount());
+            assertThrows(IllegalArgumentException.class, () -> dataFilter.setReclaimThreshold(0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Partitioned Data Filter Tests")
+    class PartitionedDataFilterTests {
+
+        @Test
+        @DisplayName("Worker processes answer like one DataFilter")
+        void testMatchesLocalFilter() throws Exception {
+            DataFilter local = new DataFilter();
+            try (PartitionedDataFilter partitioned = PartitionedDataFilter.startLocal(3, "-Xmx64m")) {
+                partitioned.setBatchRows(100);
+                Random random = new Random(7);
+                for (int row = 0; row < 30_000; row++) {
+                    String id = row % 11 == 0 ? "odd-" + random.nextInt(20) : String.format("Q%04d", random.nextInt(500));
+                    int value = random.nextInt(1000) - 100;
+                    local.addData(id, value);
+                    partitioned.addData(id, value);
+                }
+
+                assertEquals(30_000L, partitioned.getRowCount());
+                for (int rows : partitioned.getPartitionRowCounts()) {
+                    assertTrue(rows > 7_000 && rows < 13_000, "Unbalanced partition: " + rows);
+                }
+                assertEquals(local.filterByIDAndSum("Q0123"), partitioned.filterByIDAndSum("Q0123"));
+                assertEquals(local.filterByIDAndSum("odd-3"), partitioned.filterByIDAndSum(new ID("odd-3")));
+                assertEquals(0, partitioned.filterByIDAndSum("Q9999"));
+
+                FilterExpression expression = FilterExpression.and(FilterExpression.idPrefix("Q01"),
+                        FilterExpression.not(FilterExpression.valueRange(0, 500)));
+                assertEquals(local.sum(expression), partitioned.sum(expression));
+                assertEquals(local.count(expression), (int) partitioned.count(expression));
+                FilterExpression named = FilterExpression.idIn("Q0001", "Q0002", "odd-1");
+                assertEquals(local.sum(named), partitioned.sum(named));
+                assertEquals(local.getFilteredData(named).size(), partitioned.getFilteredData(named).size());
+                assertEquals(local.getFilteredData(FilterExpression.idEquals("Q0042")).toString(),
+                        partitioned.getFilteredData(FilterExpression.idEquals("Q0042")).toString());
+
+                assertEquals(local.groupByID().values().toString(), partitioned.groupByID().values().toString());
+                List<HeavyHitter> top = partitioned.topK(5);
+                assertEquals(5, top.size());
+                assertEquals(local.topK(1).get(0).getTotal(), top.get(0).getTotal());
+
+                ValueSummary merged = partitioned.summarize(FilterExpression.valueRange(0, 99));
+                ValueSummary whole = local.summarize(FilterExpression.valueRange(0, 99));
+                assertEquals(whole.getSum(), merged.getSum());
+                assertEquals(whole.getCount(), merged.getCount());
+                assertEquals(whole.getDistinctCount(), merged.getDistinctCount());
+                assertEquals(whole.getQuantile(0.9), merged.getQuantile(0.9), 0.0);
+                assertEquals(local.summarize("Q0123").getMax(), partitioned.summarize("Q0123").getMax());
+
+                assertEquals(local.deleteID("Q0007"), partitioned.deleteID("Q0007"));
+                assertEquals((long) local.getRowCount(), partitioned.getRowCount());
+                assertThrows(IllegalArgumentException.class, () -> partitioned.topK(-1));
+                assertThrows(IllegalArgumentException.class, () -> partitioned.sum(null));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Segment Store Tests")
+    class SegmentStoreTests {
+
+        private java.nio.file.Path directory;
+
+        @BeforeEach
+        void setUp() throws java.io.IOException {
+            directory = java.nio.file.Files.createTempDirectory("segments");
+        }
+
+        private void deleteDirectory() throws java.io.IOException {
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(directory)) {
+                for (java.nio.file.Path file : (Iterable<java.nio.file.Path>) files::iterator) {
+                    java.nio.file.Files.delete(file);
+                }
+            }
+            java.nio.file.Files.delete(directory);
+        }
+
+        private String idFor(int row) {
+            return row % 101 == 0 ? "bad-" + row % 3 : String.format("Q%04d", row % 37);
+        }
+
+        @Test
+        @DisplayName("Sums survive a restart and rows load back in order")
+        void testReopen() throws Exception {
+            try {
+                DataFilter expected = new DataFilter();
+                try (SegmentStore store = SegmentStore.open(directory, 1000)) {
+                    for (int row = 0; row < 10_500; row++) {
+                        store.append(idFor(row), row - 5000);
+                        expected.addData(idFor(row), row - 5000);
+                    }
+                    assertEquals(11, store.getSegmentCount());
+                }
+
+                try (SegmentStore store = SegmentStore.open(directory, 1000)) {
+                    assertEquals(10_500, store.getRowCount());
+                    assertEquals(expected.filterByIDAndSum("Q0005"), store.sum("Q0005"));
+                    assertEquals(expected.filterByIDAndSum("bad-1"), store.sum("bad-1"));
+                    assertEquals(expected.getFilteredData("Q0005").size(), store.count("Q0005"));
+                    assertEquals(0, store.sum("Q9999"));
+                    assertEquals(40, store.getDistinctIDs());
+
+                    store.append("Q0005", 7);
+                    expected.addData("Q0005", 7);
+                    DataFilter loaded = new DataFilter();
+                    assertEquals(10_501, store.loadInto(loaded));
+                    assertEquals(expected.groupByID(), loaded.groupByID());
+                    assertEquals(expected.getData().get(10_099).toString(), loaded.getData().get(10_099).toString());
+                }
+            } finally {
+                deleteDirectory();
+            }
+        }
+
+        @Test
+        @DisplayName("Compaction merges sealed segments without changing the data")
+        void testCompaction() throws Exception {
+            try {
+                DataFilter expected = new DataFilter();
+                try (SegmentStore store = SegmentStore.open(directory, 500)) {
+                    for (int row = 0; row < 5_200; row++) {
+                        store.append(idFor(row), row);
+                        expected.addData(idFor(row), row);
+                    }
+                    assertEquals(10, (int) store.compactInBackground().get());
+                    assertEquals(2, store.getSegmentCount());
+                    for (int row = 5_200; row < 6_000; row++) {
+                        store.append(idFor(row), row);
+                        expected.addData(idFor(row), row);
+                    }
+                    assertEquals(4, store.getSegmentCount());
+                    // Compactions run one at a time: the second finds one sealed segment left
+                    java.util.concurrent.Future<Integer> background = store.compactInBackground();
+                    int direct = store.compact();
+                    assertEquals(3, direct + background.get());
+                    assertEquals(0, Math.min(direct, background.get()));
+                    assertEquals(2, store.getSegmentCount());
+                }
+                // A left-over file and a torn last record are cleaned up on open
+                java.nio.file.Files.write(directory.resolve("segment-00009999.rows"), new byte[16]);
+                try (java.nio.channels.FileChannel active = java.nio.channels.FileChannel.open(
+                        lastRowsFile(), java.nio.file.StandardOpenOption.APPEND)) {
+                    active.write(java.nio.ByteBuffer.wrap(new byte[] {1, 2, 3}));
+                }
+
+                try (SegmentStore store = SegmentStore.open(directory, 500)) {
+                    assertFalse(java.nio.file.Files.exists(directory.resolve("segment-00009999.rows")));
+                    assertEquals(2, store.getSegmentCount());
+                    assertEquals(6_000, store.getRowCount());
+                    DataFilter loaded = new DataFilter();
+                    store.loadInto(loaded);
+                    assertEquals(expected.groupByID(), loaded.groupByID());
+                    assertEquals(expected.getData().get(5_999).toString(), loaded.getData().get(5_999).toString());
+                }
+            } finally {
+                deleteDirectory();
+            }
+        }
+
+        @Test
+        @DisplayName("Row lookups only read segments whose Bloom filter may hold the ID")
+        void testSegmentBloomFilters() throws Exception {
+            try {
+                try (SegmentStore store = SegmentStore.open(directory, 1000)) {
+                    // Each sealed segment holds its own 50 IDs
+                    for (int row = 0; row < 20_000; row++) {
+                        store.append(String.format("Q%04d", row / 1000 * 50 + row % 50), row);
+                    }
+                }
+                try (SegmentStore store = SegmentStore.open(directory, 1000)) {
+                    List<LabelValue> rows = store.getFilteredData("Q0123");
+                    assertEquals(20, rows.size());
+                    assertEquals("Q0123", rows.get(0).getId().getValue());
+                    assertEquals(2_023, rows.get(0).getValue());
+                    assertEquals(1, store.getSegmentsRead() - store.getSegmentFalsePositives());
+                    assertTrue(store.getSegmentsSkipped() >= 17, "skipped " + store.getSegmentsSkipped());
+
+                    long readBefore = store.getSegmentsRead();
+                    assertTrue(store.getFilteredData("Q9999").isEmpty());
+                    assertTrue(store.getFilteredData("bad").isEmpty());
+                    assertEquals(readBefore, store.getSegmentsRead());
+                }
+            } finally {
+                deleteDirectory();
+            }
+        }
+
+        private java.nio.file.Path lastRowsFile() throws java.io.IOException {
+            String active = null;
+            for (String line : java.nio.file.Files.readAllLines(directory.resolve("MANIFEST"))) {
+                if (line.startsWith("active ")) {
+                    active = String.format("segment-%08d.rows", Long.parseLong(line.substring(7)));
+                }
+            }
+            return directory.resolve(active);
+        }
+    }
+
+    @Nested
+    @DisplayName("Bloom Filter Tests")
+    class BloomFilterTests {
+
+        @Test
+        @DisplayName("Added codes are always found and absent ones rarely pass")
+        void testFalsePositiveRate() {
+            BloomFilter filter = new BloomFilter(10_000, 0.01);
+            for (int i = 0; i < 10_000; i++) {
+                filter.add(i * 7919);
+            }
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(filter.mightContain(i * 7919));
+            }
+            int passed = 0;
+            for (int i = 0; i < 100_000; i++) {
+                int absent = -1 - i;
+                if (filter.mightContain(absent)) {
+                    filter.recordFalsePositive();
+                    passed++;
+                }
+            }
+            assertTrue(passed < 2_000, passed + " false positives");
+            assertEquals(110_000, filter.getQueries());
+            assertEquals(100_000 - passed, filter.getNegatives());
+            assertEquals(passed / 100_000.0, filter.getObservedFalsePositiveRate(), 1e-9);
+            assertTrue(filter.getExpectedFalsePositiveRate() <= 0.01);
+        }
+
+        @Test
+        @DisplayName("Absent IDs return nothing and the filter grows with the data")
+        void testDataFilterLookups() {
+            DataFilter filter = new DataFilter();
+            for (int i = 0; i < 5_000; i++) {
+                filter.addData(String.format("Q%04d", i), i);
+            }
+            filter.addData("not-an-id", 7);
+            assertTrue(filter.getBloomFilter().getCapacity() >= 5_001);
+            for (int i = 0; i < 5_000; i++) {
+                assertEquals(i, filter.filterByIDAndSum(String.format("Q%04d", i)));
+            }
+            assertEquals(7, filter.filterByIDAndSum("not-an-id"));
+
+            BloomFilter ids = filter.getBloomFilter();
+            long negativesBefore = ids.getNegatives() + ids.getFalsePositives();
+            for (int i = 5_000; i < 10_000; i++) {
+                assertEquals(0, filter.filterByIDAndSum(String.format("Q%04d", i)));
+                assertTrue(filter.getFilteredData(String.format("Q%04d", i)).isEmpty());
+            }
+            assertEquals(10_000, ids.getNegatives() + ids.getFalsePositives() - negativesBefore);
+            assertTrue(ids.getObservedFalsePositiveRate() < 0.03, ids.toString());
+
+            filter.setBloomFalsePositiveRate(0.001);
+            assertEquals(0.001, filter.getBloomFilter().getFalsePositiveRate());
+            assertEquals(4_999, filter.filterByIDAndSum("Q4999"));
+            assertThrows(IllegalArgumentException.class, () -> filter.setBloomFalsePositiveRate(1.0));
+        }
+
+        @Test
+        @DisplayName("Lookups of deleted IDs are not counted as false positives")
+        void testDeletedIdLookups() {
+            DataFilter filter = new DataFilter();
+            filter.setReclaimThreshold(1);
+            for (int i = 0; i < 100; i++) {
+                filter.addData(String.format("Q%04d", i), i);
+            }
+            filter.deleteID("Q0007");
+            filter.deleteRow(0);
+            BloomFilter ids = filter.getBloomFilter();
+            for (int i = 0; i < 10; i++) {
+                assertEquals(0, filter.filterByIDAndSum("Q0007"));
+                assertEquals(0, filter.filterByIDAndSum("Q0000"));
+            }
+            assertEquals(0L, ids.getFalsePositives());
+
+            filter.addData("Q0007", 70);
+            assertEquals(70, filter.filterByIDAndSum("Q0007"));
+            for (int i = 8; i < 80; i++) {
+                filter.deleteID(String.format("Q%04d", i));
+            }
+            assertTrue(filter.getBloomFilter() != ids, "Filter should be rebuilt once most IDs are gone");
+            assertEquals(0, filter.filterByIDAndSum("Q0042"));
+            assertEquals(80 + 81, filter.filterByIDAndSum("Q0080") + filter.filterByIDAndSum("Q0081"));
+            assertEquals(0L, filter.getBloomFilter().getFalsePositives());
+        }
+    }
+
+    @Nested
+    @DisplayName("Data File Loader Tests")
+    class DataFileLoaderTests {
+
+        private byte[] bytes(String text) {
+            return text.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        }
+
+        @Test
+        @DisplayName("Valid rows are loaded and invalid IDs are reported")
+        void testLoadBytes() {
+            DataFilter filter = new DataFilter();
+            DataLoadResult result = new DataFileLoader().loadBytes(filter, bytes(
+                    "ID,Value\r\nQ1234,1\r\nQ123,5\nQ9999, 2\n\nA1234,7\nQ1234,3\nQ12345,4\nQ9999,x\n"));
+
+            assertEquals(7, result.getRowsRead());
+            assertEquals(3, result.getRowsLoaded());
+            assertEquals(3, filter.getRowCount());
+            assertEquals(4, filter.filterByIDAndSum("Q1234"));
+            assertEquals(2, filter.filterByIDAndSum("Q9999"));
+            assertEquals("Q1234", filter.getData().get(0).getId().getValue());
+
+            List<RejectedID> rejected = result.getRejectedRows();
+            assertEquals(4, rejected.size());
+            assertEquals(3, rejected.get(0).getLine());
+            assertEquals("Too short", rejected.get(0).getReason());
+            assertEquals("Must begin with Q", rejected.get(1).getReason());
+            assertEquals("Too long", rejected.get(2).getReason());
+            assertEquals("Value is not a number", rejected.get(3).getReason());
+            assertEquals(9, rejected.get(3).getLine());
+        }
+
+        @Test
+        @DisplayName("Non-ASCII IDs follow the IDValidator rules")
+        void testNonAsciiIDs() {
+            DataFilter filter = new DataFilter();
+            DataLoadResult result = new DataFileLoader().loadBytes(filter, bytes("Q12\u00e94,5\nQ12\u4e2d4,6\nQ\u4e2d,1\n"));
+
+            assertEquals(2, result.getRowsLoaded());
+            assertEquals(5, filter.filterByIDAndSum("Q12\u00e94"));
+            assertEquals(6, filter.filterByIDAndSum("Q12\u4e2d4"));
+            assertEquals("Too short", result.getRejectedRows().get(0).getReason());
+        }
+
+        @Test
+        @DisplayName("Values outside the int range are rejected")
+        void testValueRange() {
+            DataFilter filter = new DataFilter();
+            DataLoadResult result = new DataFileLoader().loadBytes(filter,
+                    bytes("Q1234,2147483647\nQ1234,-2147483648\nQ1234,2147483648\nQ1234,99999999999999\n"));
+
+            assertEquals(2, result.getRowsLoaded());
+            assertEquals(-1, filter.filterByIDAndSum("Q1234"));
+            assertEquals("Value is out of range", result.getRejectedRows().get(0).getReason());
+            assertEquals("Value is out of range", result.getRejectedRows().get(1).getReason());
+        }
+
+        @Test
+        @DisplayName("A mapped file split into parallel chunks loads like addData")
+        void testLoadFileInChunks() throws java.io.IOException {
+            StringBuilder text = new StringBuilder();
+            DataFilter expected = new DataFilter();
+            for (int row = 0; row < 400_000; row++) {
+                String id = row % 1000 == 0 ? "Q12" : String.format("Q%04d", row % 211);
+                text.append(id).append(',').append(row % 1000).append('\n');
+                if (id.length() == 5) {
+                    expected.addData(id, row % 1000);
+                }
+            }
+            java.nio.file.Path file = java.nio.file.Files.createTempFile("ids", ".csv");
+            try {
+                java.nio.file.Files.write(file, bytes(text.toString()));
+                DataFilter filter = new DataFilter();
+                DataLoadResult result = new DataFileLoader(4).load(filter, file);
+
+                assertEquals(400_000, result.getRowsRead());
+                assertEquals(400, result.getRejectedRows().size());
+                assertEquals(3001, result.getRejectedRows().get(3).getLine());
+                assertEquals(expected.getRowCount(), filter.getRowCount());
+                assertEquals(expected.groupByID(), filter.groupByID());
+                assertEquals(expected.getData().get(123_456).toString(), filter.getData().get(123_456).toString());
+            } finally {
+                java.nio.file.Files.delete(file);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrent Data Filter Tests")
+    class ConcurrentDataFilterTests {
+
+        @Test
+        @DisplayName("Single-threaded use matches DataFilter")
+        void testMatchesDataFilter() {
+            ConcurrentDataFilter filter = new ConcurrentDataFilter(4);
+            filter.addData("Q1234", 1);
+            filter.addData("Q9999", 2);
+            filter.addData(new LabelValue("Q1234", 3));
+            filter.addData("bad", 5);
+
+            assertEquals(4, filter.filterByIDAndSum("Q1234"));
+            assertEquals(4, filter.filterBy(new FilterValue("ID", "Q1234")).getSum());
+            assertEquals(5, filter.filterByIDAndSum("bad"));
+            assertEquals(2, filter.getCount(new ID("Q1234")));
+            assertEquals(3, filter.distinctIDs());
+            assertEquals(4, filter.getRowCount());
+            assertEquals("LabelValue(id=Q9999, value=2)", filter.getData().get(1).toString());
+            assertEquals(3, filter.getFilteredData("Q1234").get(1).getValue());
+            assertTrue(filter.getFilteredData("Q0000").isEmpty());
+        }
+
+        @Test
+        @DisplayName("Concurrent writers lose no rows and keep per-ID order")
+        void testConcurrentWriters() throws InterruptedException {
+            ConcurrentDataFilter filter = new ConcurrentDataFilter();
+            int threads = 8;
+            int perThread = 20_000;
+            Thread[] writers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                String ownId = String.format("Q%04d", t);
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        filter.addData(ownId, i);
+                        filter.addData("Q" + String.format("%04d", 100 + i % 50), 1);
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            assertEquals(2 * threads * perThread, filter.getRowCount());
+            assertEquals(2 * threads * perThread, filter.getData().size());
+            for (int t = 0; t < threads; t++) {
+                List<LabelValue> own = filter.getFilteredData(String.format("Q%04d", t));
+                assertEquals(perThread, own.size());
+                for (int i = 0; i < perThread; i++) {
+                    assertEquals(i, own.get(i).getValue());
+                }
+            }
+            long shared = 0;
+            for (int i = 0; i < 50; i++) {
+                shared += filter.filterByIDAndSum(String.format("Q%04d", 100 + i));
+            }
+            assertEquals(threads * perThread, shared);
+        }
     }
 
     @Nested